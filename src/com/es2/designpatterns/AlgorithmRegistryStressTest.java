@@ -0,0 +1,119 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Credential.Generator.AlgorithmRegistry;
+import src.com.es2.designpatterns.Credential.Generator.PasswordGenerator;
+import src.com.es2.designpatterns.Credential.SecurityCriteria;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AlgorithmRegistryStressTest {
+    private static final int GENERATOR_THREADS = 16;
+    private static final int CUSTOM_ALGORITHMS = 200;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("===== Stress Testing Algorithm Registration =====\n");
+
+        PasswordGenerator generator = new PasswordGenerator();
+
+        // Built-in criteria plus one criteria per custom algorithm that will be registered during the run
+        SecurityCriteria[] builtIn = {
+            new SecurityCriteria.Builder().length(16).algorithm("standard").build(),
+            new SecurityCriteria.Builder().length(16).algorithm("enhanced").build(),
+            new SecurityCriteria.Builder().length(6).algorithm("pin").build(),
+            new SecurityCriteria.Builder().length(16).algorithm("policy").build()
+        };
+        SecurityCriteria[] custom = new SecurityCriteria[CUSTOM_ALGORITHMS];
+        for (int i = 0; i < CUSTOM_ALGORITHMS; i++) {
+            custom[i] = new SecurityCriteria.Builder().algorithm("custom-" + i).build();
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong generated = new AtomicLong();
+        AtomicLong notYetRegistered = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(GENERATOR_THREADS);
+
+        Thread[] threads = new Thread[GENERATOR_THREADS];
+        for (int t = 0; t < GENERATOR_THREADS; t++) {
+            final int seed = t;
+            threads[t] = new Thread(() -> {
+                started.countDown();
+                int i = seed;
+                while (running.get() && failure.get() == null) {
+                    try {
+                        String password = generator.generatePassword(builtIn[i % builtIn.length]);
+                        if (password.isEmpty()) {
+                            throw new IllegalStateException("Built-in algorithm returned an empty password");
+                        }
+                        int index = i % CUSTOM_ALGORITHMS;
+                        try {
+                            String value = generator.generatePassword(custom[index]);
+                            // A registered algorithm may be replaced, but it always belongs to this name
+                            if (!value.startsWith("custom-" + index + ":")) {
+                                throw new IllegalStateException("Dispatched to the wrong algorithm: " + value);
+                            }
+                        } catch (IllegalArgumentException e) {
+                            notYetRegistered.incrementAndGet();
+                        }
+                        generated.incrementAndGet();
+                        i++;
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        started.await();
+        // Register every custom algorithm, then replace each of them once, while generation is running
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < CUSTOM_ALGORITHMS; i++) {
+                final String name = "custom-" + i;
+                final int version = round;
+                generator.registerAlgorithm(name, criteria -> name + ":v" + version);
+                Thread.sleep(1);
+            }
+        }
+
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Every custom algorithm must now resolve to its latest registration
+        for (int i = 0; i < CUSTOM_ALGORITHMS; i++) {
+            String value = generator.generatePassword(custom[i]);
+            if (!value.equals("custom-" + i + ":v1")) {
+                failure.compareAndSet(null, new IllegalStateException("Stale registration for custom-" + i + ": " + value));
+            }
+        }
+
+        // Criteria naming algorithms that are never registered must not take handles
+        int registered = AlgorithmRegistry.size();
+        for (int i = 0; i < 10_000; i++) {
+            SecurityCriteria unknown = new SecurityCriteria.Builder().algorithm("unknown-" + i).build();
+            try {
+                generator.generatePassword(unknown);
+                failure.compareAndSet(null, new IllegalStateException("Generated with unregistered algorithm unknown-" + i));
+            } catch (IllegalArgumentException expected) {
+                // Unknown algorithm
+            }
+        }
+        if (AlgorithmRegistry.size() != registered) {
+            failure.compareAndSet(null, new IllegalStateException("Unregistered names grew the registry from "
+                    + registered + " to " + AlgorithmRegistry.size()));
+        }
+
+        System.out.println("Generator threads: " + GENERATOR_THREADS);
+        System.out.println("Passwords generated: " + generated.get());
+        System.out.println("Lookups before registration: " + notYetRegistered.get());
+        if (failure.get() != null) {
+            throw new IllegalStateException("Stress test failed", failure.get());
+        }
+        System.out.println("Stress test passed.");
+    }
+}
@@ -0,0 +1,72 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Credential.CredentialFactory;
+import src.com.es2.designpatterns.Credential.CredentialType;
+import src.com.es2.designpatterns.Provisioning.AsyncProvisioningFacade;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+public class AsyncProvisioningBenchmark {
+    private static final int CONCURRENT_REQUESTS = 10_000;
+
+    public static void main(String[] args) {
+        System.out.println("===== Benchmarking Async Credential Provisioning =====\n");
+
+        CredentialFactory factory = CredentialFactory.getInstance();
+        AsyncProvisioningFacade facade = new AsyncProvisioningFacade(factory, null);
+        System.out.println("Virtual threads: " + facade.usesVirtualThreads());
+
+        // Warm up both paths
+        runSynchronous(factory);
+        runAsynchronous(facade);
+
+        report("Synchronous", runSynchronous(factory));
+        report("Asynchronous", runAsynchronous(facade));
+
+        facade.shutdown();
+    }
+
+    /**
+     * All requests arrive at once and are served one after another by the caller.
+     * @return Per-request latency in nanoseconds, measured from arrival, plus the total time as the last element
+     */
+    protected static long[] runSynchronous(CredentialFactory factory) {
+        long[] latencies = new long[CONCURRENT_REQUESTS + 1];
+        long arrival = System.nanoTime();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            factory.createCredential(CredentialType.API_KEY);
+            latencies[i] = System.nanoTime() - arrival;
+        }
+        latencies[CONCURRENT_REQUESTS] = System.nanoTime() - arrival;
+        return latencies;
+    }
+
+    /**
+     * All requests arrive at once and are submitted to the async facade.
+     * @return Per-request latency in nanoseconds, measured from arrival, plus the total time as the last element
+     */
+    protected static long[] runAsynchronous(AsyncProvisioningFacade facade) {
+        long[] latencies = new long[CONCURRENT_REQUESTS + 1];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[CONCURRENT_REQUESTS];
+        long arrival = System.nanoTime();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            final int request = i;
+            futures[i] = facade.createCredentialAsync(CredentialType.API_KEY)
+                    .whenComplete((credential, error) -> latencies[request] = System.nanoTime() - arrival);
+        }
+        CompletableFuture.allOf(futures).join();
+        latencies[CONCURRENT_REQUESTS] = System.nanoTime() - arrival;
+        return latencies;
+    }
+
+    private static void report(String label, long[] results) {
+        long total = results[CONCURRENT_REQUESTS];
+        long[] latencies = Arrays.copyOf(results, CONCURRENT_REQUESTS);
+        Arrays.sort(latencies);
+        System.out.printf("%-12s throughput %,.0f req/s | p50 %.2f ms | p99 %.2f ms%n", label,
+                CONCURRENT_REQUESTS / (total / 1_000_000_000.0),
+                latencies[CONCURRENT_REQUESTS / 2] / 1_000_000.0,
+                latencies[CONCURRENT_REQUESTS * 99 / 100] / 1_000_000.0);
+    }
+}
@@ -0,0 +1,74 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Credential.CredentialFactory;
+import src.com.es2.designpatterns.Credential.CredentialType;
+import src.com.es2.designpatterns.Storage.StorageFactory;
+import src.com.es2.designpatterns.Storage.StorageImplementor;
+import src.com.es2.designpatterns.Storage.StorageType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BatchStorageTest {
+    private static final int BATCH_SIZE = 1000;
+
+    public static void main(String[] args) {
+        System.out.println("===== Testing Batch Storage Operations =====\n");
+
+        CredentialFactory credentialFactory = CredentialFactory.getInstance();
+        StorageFactory storageFactory = StorageFactory.getInstance(StorageType.FILE);
+        List<Credential> batch = credentialFactory.createCredentials(CredentialType.API_KEY, BATCH_SIZE);
+        List<String> ids = new ArrayList<>();
+        for (Credential credential : batch) {
+            ids.add(credential.getId());
+        }
+        ids.add("missing-id");
+
+        for (StorageType type : StorageType.values()) {
+            System.out.println("\n--- " + type + " ---");
+            storageFactory.saveCredentials(type, batch);
+            checkBatch(storageFactory.retrieveCredentials(type, ids), batch);
+        }
+
+        // A third-party implementor that only has the single-item methods uses the looping defaults
+        System.out.println("\n--- Single-item implementor ---");
+        storageFactory.switchImplementor(StorageType.CLOUD, new StorageImplementor() {
+            private final Map<String, Credential> credentials = new HashMap<>();
+
+            @Override
+            public void storeCredential(Credential credential) {
+                credentials.put(credential.getId(), credential);
+            }
+
+            @Override
+            public Credential retrieveCredential(String id) {
+                return credentials.get(id);
+            }
+
+            @Override
+            public void allocateStorage() {
+            }
+        });
+        storageFactory.saveCredentials(StorageType.CLOUD, batch);
+        checkBatch(storageFactory.retrieveCredentials(StorageType.CLOUD, ids), batch);
+
+        System.out.println("\nAll batch storage checks passed.");
+    }
+
+    private static void checkBatch(Map<String, Credential> retrieved, List<Credential> expected) {
+        if (retrieved.size() != expected.size()) {
+            throw new IllegalStateException("FAILED: expected " + expected.size() + " credentials, got " + retrieved.size());
+        }
+        for (Credential credential : expected) {
+            // Persistent implementors return a decoded copy, so compare contents
+            Credential copy = retrieved.get(credential.getId());
+            if (copy == null || !copy.getValue().equals(credential.getValue()) || !copy.getName().equals(credential.getName())) {
+                throw new IllegalStateException("FAILED: wrong credential for ID " + credential.getId());
+            }
+        }
+        System.out.println("OK: " + retrieved.size() + " credentials round-tripped, missing ID skipped");
+    }
+}
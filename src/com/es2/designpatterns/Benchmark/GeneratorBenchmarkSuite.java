@@ -0,0 +1,90 @@
+package src.com.es2.designpatterns.Benchmark;
+
+import src.com.es2.designpatterns.Credential.CredentialFactory;
+import src.com.es2.designpatterns.Credential.CredentialType;
+import src.com.es2.designpatterns.Credential.Generator.EnhancedAlgorithm;
+import src.com.es2.designpatterns.Credential.Generator.GenerationAlgorithm;
+import src.com.es2.designpatterns.Credential.Generator.PasswordGenerator;
+import src.com.es2.designpatterns.Credential.Generator.PinAlgorithm;
+import src.com.es2.designpatterns.Credential.Generator.PolicyAlgorithm;
+import src.com.es2.designpatterns.Credential.Generator.StandardAlgorithm;
+import src.com.es2.designpatterns.Credential.SecurityCriteria;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regression benchmarks for the Credential.Generator package: throughput and allocation per operation
+ * for every algorithm at several lengths, with and without excluded characters, on one and on many
+ * threads, plus end-to-end CredentialFactory.createCredential per credential type.
+ *
+ * Usage: GeneratorBenchmarkSuite [iterationMillis]
+ */
+public class GeneratorBenchmarkSuite {
+    private static final int[] LENGTHS = {6, 16, 32, 64};
+    // Visually ambiguous characters, a typical exclusion set
+    private static final String EXCLUDED_CHARS = "0O1lI|";
+
+    public static void main(String[] args) {
+        long iterationMillis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int multiThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        MicroBenchmark benchmark = new MicroBenchmark(2, 3, iterationMillis);
+
+        System.out.println("===== Credential.Generator Benchmark Suite =====\n");
+        List<MicroBenchmark.Result> results = new ArrayList<>();
+
+        Map<String, GenerationAlgorithm> algorithms = new LinkedHashMap<>();
+        algorithms.put("standard", new StandardAlgorithm());
+        algorithms.put("enhanced", new EnhancedAlgorithm());
+        algorithms.put("pin", new PinAlgorithm());
+        algorithms.put("policy", new PolicyAlgorithm());
+
+        // Each algorithm on its own: generate() and the allocation-free generateInto()
+        for (Map.Entry<String, GenerationAlgorithm> entry : algorithms.entrySet()) {
+            GenerationAlgorithm algorithm = entry.getValue();
+            for (int length : LENGTHS) {
+                for (String excluded : new String[] {"", EXCLUDED_CHARS}) {
+                    SecurityCriteria criteria = new SecurityCriteria.Builder()
+                            .length(length).excludedChars(excluded).algorithm(entry.getKey()).build();
+                    String label = entry.getKey() + " len=" + length + (excluded.isEmpty() ? "" : " excl");
+
+                    for (int threads : new int[] {1, multiThreads}) {
+                        results.add(print(benchmark.run(label + " generate", threads,
+                                () -> algorithm.generate(criteria))));
+                        ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[length]);
+                        results.add(print(benchmark.run(label + " generateInto", threads,
+                                () -> algorithm.generateInto(buffers.get(), 0, criteria))));
+                    }
+                }
+            }
+        }
+
+        // Dispatch through PasswordGenerator
+        PasswordGenerator generator = new PasswordGenerator();
+        for (int length : LENGTHS) {
+            SecurityCriteria criteria = new SecurityCriteria.Builder().length(length).algorithm("enhanced").build();
+            for (int threads : new int[] {1, multiThreads}) {
+                results.add(print(benchmark.run("PasswordGenerator enhanced len=" + length, threads,
+                        () -> generator.generatePassword(criteria))));
+            }
+        }
+
+        // End to end through the factory
+        CredentialFactory factory = CredentialFactory.getInstance();
+        for (CredentialType type : CredentialType.values()) {
+            for (int threads : new int[] {1, multiThreads}) {
+                results.add(print(benchmark.run("CredentialFactory " + type, threads,
+                        () -> factory.createCredential(type))));
+            }
+        }
+
+        System.out.println("\n" + results.size() + " benchmarks completed.");
+    }
+
+    private static MicroBenchmark.Result print(MicroBenchmark.Result result) {
+        System.out.println(result);
+        return result;
+    }
+}
@@ -0,0 +1,171 @@
+package src.com.es2.designpatterns.Benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Minimal micro-benchmark harness: timed warmup and measurement iterations on one or more threads,
+ * reporting throughput and allocation per operation (from the HotSpot per-thread allocation counter).
+ * Every result is folded into a sink so the JIT cannot eliminate the measured work.
+ */
+public final class MicroBenchmark {
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationMillis;
+
+    // Written once per thread and iteration so results stay observable
+    private static volatile int sink;
+
+    /**
+     * @param warmupIterations Iterations run and discarded before measuring
+     * @param measurementIterations Iterations that are measured
+     * @param iterationMillis Duration of each iteration
+     */
+    public MicroBenchmark(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationMillis = iterationMillis;
+    }
+
+    /**
+     * Runs an operation repeatedly on the given number of threads.
+     * @param name The label reported with the result
+     * @param threads The number of threads calling the operation concurrently
+     * @param operation The operation to measure
+     * @return The measured throughput and allocation rate
+     */
+    public Result run(String name, int threads, Supplier<?> operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(threads, operation);
+        }
+
+        long operations = 0;
+        long allocatedBytes = 0;
+        long nanos = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long[] iteration = runIteration(threads, operation);
+            operations += iteration[0];
+            allocatedBytes += iteration[1];
+            nanos += iteration[2];
+        }
+
+        double opsPerSecond = operations / (nanos / 1_000_000_000.0);
+        double bytesPerOp = allocatedBytes < 0 ? Double.NaN : (double) allocatedBytes / operations;
+        return new Result(name, threads, opsPerSecond, bytesPerOp);
+    }
+
+    // Returns operations, allocated bytes (negative if unsupported) and elapsed nanos for one iteration
+    private long[] runIteration(int threads, Supplier<?> operation) {
+        long[] operations = new long[threads];
+        long[] allocated = new long[threads];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CyclicBarrier start = new CyclicBarrier(threads + 1);
+        long deadlineOffset = iterationMillis * 1_000_000L;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int worker = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    long allocatedBefore = allocatedBytes();
+                    long deadline = System.nanoTime() + deadlineOffset;
+                    long count = 0;
+                    int hash = 0;
+                    while (System.nanoTime() < deadline) {
+                        // Check the clock every few calls to keep the timer out of the measurement
+                        for (int i = 0; i < 16; i++) {
+                            Object result = operation.get();
+                            hash += result != null ? result.hashCode() : 0;
+                        }
+                        count += 16;
+                    }
+                    long allocatedAfter = allocatedBytes();
+                    sink = hash;
+                    operations[worker] = count;
+                    allocated[worker] = allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore;
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "micro-benchmark-" + t);
+            workers[t].start();
+        }
+
+        long begin;
+        try {
+            start.await();
+            begin = System.nanoTime();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Benchmark iteration interrupted", e);
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        if (failure.get() != null) {
+            throw new IllegalStateException("Benchmark operation failed", failure.get());
+        }
+
+        long totalOperations = 0;
+        long totalAllocated = 0;
+        for (int t = 0; t < threads; t++) {
+            totalOperations += operations[t];
+            totalAllocated = totalAllocated < 0 || allocated[t] < 0 ? -1 : totalAllocated + allocated[t];
+        }
+        return new long[] {totalOperations, totalAllocated, elapsed};
+    }
+
+    // Bytes allocated so far by the current thread, or -1 when the JVM does not report it
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Throughput and allocation rate of one benchmark.
+     */
+    public static final class Result {
+        private final String name;
+        private final int threads;
+        private final double opsPerSecond;
+        private final double bytesPerOp;
+
+        Result(String name, int threads, double opsPerSecond, double bytesPerOp) {
+            this.name = name;
+            this.threads = threads;
+            this.opsPerSecond = opsPerSecond;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public double getOpsPerSecond() {
+            return opsPerSecond;
+        }
+
+        // Bytes allocated per operation, NaN when the JVM does not report allocations
+        public double getBytesPerOp() {
+            return bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-48s %3d thr %,14.0f ops/s %10.1f B/op", name, threads, opsPerSecond, bytesPerOp);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.Cache.CachingStorageImplementor;
+import src.com.es2.designpatterns.Storage.Cache.WTinyLfuCache;
+import src.com.es2.designpatterns.Storage.Implementors.CloudStorageImplementor;
+import src.com.es2.designpatterns.Storage.StorageFactory;
+import src.com.es2.designpatterns.Storage.StorageImplementor;
+import src.com.es2.designpatterns.Storage.StorageType;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+public class CachingStorageTest {
+    private static final int CREDENTIALS = 100_000;
+    private static final int CACHE_SIZE = 1_000;
+    private static final int READS = 200_000;
+    // Simulated latency of a durable backend read
+    private static final long BACKEND_READ_NANOS = 20_000;
+
+    public static void main(String[] args) {
+        System.out.println("===== Testing Caching Storage =====\n");
+
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        SlowStorage backend = new SlowStorage();
+        List<Credential> credentials = new ArrayList<>(CREDENTIALS);
+        for (int i = 0; i < CREDENTIALS; i++) {
+            credentials.add(new Credential("id-" + i, "API Key", "value-" + i));
+        }
+        backend.storeCredentials(credentials);
+        System.setOut(stdout);
+
+        System.out.println("--- Skewed reads (Zipf 0.99 over " + CREDENTIALS + " credentials) ---");
+        int[] keys = zipf(READS, CREDENTIALS, 0.99, 42);
+        backend.reads.set(0);
+        long start = System.nanoTime();
+        for (int key : keys) {
+            backend.retrieveCredential("id-" + key);
+        }
+        long uncached = System.nanoTime() - start;
+
+        CachingStorageImplementor cached = new CachingStorageImplementor(backend, CACHE_SIZE, 0);
+        backend.reads.set(0);
+        start = System.nanoTime();
+        for (int key : keys) {
+            Credential credential = cached.retrieveCredential("id-" + key);
+            if (credential == null || !credential.getValue().equals("value-" + key)) {
+                throw new IllegalStateException("FAILED: wrong credential for id-" + key + ": " + credential);
+            }
+        }
+        long withCache = System.nanoTime() - start;
+        System.out.printf("uncached %,d ms, cached %,d ms (%.1fx), %,d backend reads%n", uncached / 1_000_000,
+                withCache / 1_000_000, (double) uncached / withCache, backend.reads.get());
+        System.out.println(cached);
+        check(cached.getHitRate() > 0.5, String.format("Hit rate %.1f%% with a cache of 1%% of the credentials", cached.getHitRate() * 100));
+        check(cached.getCachedCount() <= CACHE_SIZE && cached.getEvictionCount() > 0, "Cache stays bounded at " + cached.getCachedCount());
+        check(cached.getHitCount() + cached.getMissCount() == READS, "Every read is counted as a hit or a miss");
+
+        System.out.println("\n--- Scan resistance ---");
+        for (int i = 0; i < 10; i++) {
+            for (int hot = 0; hot < 100; hot++) {
+                cached.retrieveCredential("id-" + hot);
+            }
+        }
+        for (int i = 50_000; i < 60_000; i++) {
+            cached.retrieveCredential("id-" + i);
+        }
+        long hitsBefore = cached.getHitCount();
+        for (int hot = 0; hot < 100; hot++) {
+            cached.retrieveCredential("id-" + hot);
+        }
+        long hotHits = cached.getHitCount() - hitsBefore;
+        check(hotHits >= 95, hotHits + " of 100 hot credentials survived a scan of 10000 one-off reads");
+
+        System.out.println("\n--- Write invalidation ---");
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        cached.storeCredential(new Credential("id-1", "API Key", "value-1-updated"));
+        cached.storeCredentials(Arrays.asList(new Credential("id-2", "API Key", "value-2-updated")));
+        System.setOut(stdout);
+        check(cached.retrieveCredential("id-1").getValue().equals("value-1-updated"), "storeCredential invalidates the cached entry");
+        Map<String, Credential> batch = cached.retrieveCredentials(Arrays.asList("id-2", "id-3", "missing"));
+        check(batch.size() == 2 && batch.get("id-2").getValue().equals("value-2-updated"), "storeCredentials invalidates the cached entries");
+
+        WTinyLfuCache<String, String> cache = new WTinyLfuCache<>(10, 0);
+        long stamp = cache.stamp();
+        cache.invalidate("key");
+        check(!cache.putIfNotInvalidated("key", "stale", stamp) && cache.get("key") == null,
+                "A value loaded before a concurrent write is not cached");
+
+        System.out.println("\n--- TTL ---");
+        CachingStorageImplementor expiring = new CachingStorageImplementor(backend, 100, 50);
+        expiring.retrieveCredential("id-5");
+        backend.reads.set(0);
+        expiring.retrieveCredential("id-5");
+        check(backend.reads.get() == 0, "Fresh entry is served from the cache");
+        LockSupport.parkNanos(80_000_000L);
+        expiring.retrieveCredential("id-5");
+        check(backend.reads.get() == 1, "Expired entry is reloaded from the backend");
+
+        System.out.println("\n--- Enabling through the configuration ---");
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        config.setConfiguration("cloudStorageCacheEnabled", true);
+        config.setConfiguration("cloudStorageCacheMaximumSize", 500);
+        StorageFactory storageFactory = StorageFactory.getInstance(StorageType.CLOUD);
+        check(storageFactory.getImplementor(StorageType.CLOUD) instanceof CachingStorageImplementor, "CLOUD storage is cached");
+        check(!(storageFactory.getImplementor(StorageType.DATABASE) instanceof CachingStorageImplementor), "DATABASE storage is not cached");
+        storageFactory.switchImplementor(StorageType.CLOUD, backend);
+        StorageImplementor switched = storageFactory.getImplementor(StorageType.CLOUD);
+        check(switched instanceof CachingStorageImplementor && ((CachingStorageImplementor) switched).getDelegate() == backend,
+                "A switched-in implementor is wrapped as well");
+        storageFactory.retrieveCredential(StorageType.CLOUD, "id-9");
+        storageFactory.retrieveCredential(StorageType.CLOUD, "id-9");
+        check(((CachingStorageImplementor) switched).getHitCount() == 1, "Second read through the factory is a hit");
+        config.setConfiguration("cloudStorageCacheEnabled", false);
+
+        System.out.println("\nAll caching storage checks passed.");
+    }
+
+    // Indexes drawn from a Zipf distribution with the given exponent
+    private static int[] zipf(int count, int items, double exponent, long seed) {
+        double[] cumulative = new double[items];
+        double sum = 0;
+        for (int i = 0; i < items; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(seed);
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            keys[i] = index >= 0 ? index : Math.min(items - 1, -index - 1);
+        }
+        return keys;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    // In-memory implementor that waits on every read, like a durable backend
+    private static final class SlowStorage implements StorageImplementor {
+        private final StorageImplementor storage = new CloudStorageImplementor(null);
+        private final AtomicLong reads = new AtomicLong();
+
+        @Override
+        public void storeCredential(Credential credential) {
+            storage.storeCredential(credential);
+        }
+
+        @Override
+        public Credential retrieveCredential(String id) {
+            reads.incrementAndGet();
+            LockSupport.parkNanos(BACKEND_READ_NANOS);
+            return storage.retrieveCredential(id);
+        }
+
+        @Override
+        public void storeCredentials(Collection<Credential> credentials) {
+            storage.storeCredentials(credentials);
+        }
+
+        @Override
+        public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+            reads.incrementAndGet();
+            LockSupport.parkNanos(BACKEND_READ_NANOS);
+            return storage.retrieveCredentials(ids);
+        }
+
+        @Override
+        public void allocateStorage() {
+            storage.allocateStorage();
+        }
+
+        @Override
+        public void forEachCredential(Consumer<Credential> action) {
+            storage.forEachCredential(action);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package src.com.es2.designpatterns;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.Implementors.CloudStorageImplementor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs CloudStorageImplementor against a local S3-like HTTP stand-in and compares the packed layout
+ * with one object per credential by requests per credential and throughput.
+ */
+public class CloudStorageTest {
+    private static final int CREDENTIALS = 20_000;
+    private static final int BATCH = 500;
+    private static final int SINGLE_READS = 2_000;
+    private static final int REPLAY_GAP_PACKS = 2;
+    private static final int GAP_BATCH = 10;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.out.println("===== Testing Cloud Storage =====\n");
+
+        ObjectStore store = new ObjectStore();
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        try {
+            String endpoint = "http://127.0.0.1:" + store.server.getAddress().getPort();
+
+            System.out.println("--- Packed layout ---");
+            config.setConfiguration("cloudStorageLayout", CloudStorageImplementor.LAYOUT_PACKED);
+            config.setConfiguration("cloudStorageBucket", "packed");
+            // No checkpoint while writing, so reopening has to read the pack headers
+            config.setConfiguration("cloudStorageCheckpointPacks", Integer.MAX_VALUE);
+            config.setConfiguration("cloudStorageReplayGapPacks", REPLAY_GAP_PACKS);
+            CloudStorageImplementor packed = new CloudStorageImplementor(endpoint);
+            run(packed, store, true);
+
+            System.out.println("\n--- Reopening ---");
+            store.requests.set(0);
+            CloudStorageImplementor reopened = new CloudStorageImplementor(endpoint);
+            checkAll(reopened, 0);
+            long packs = CREDENTIALS / BATCH;
+            check(store.requests.get() >= 2 * packs, "Rebuilt the manifest from " + packs + " pack headers");
+            reopened.storeCredential(new Credential("id-7", "API Key", "value-7-1"));
+            reopened.close();
+
+            store.requests.set(0);
+            CloudStorageImplementor fromCheckpoint = new CloudStorageImplementor(endpoint);
+            Credential overwritten = fromCheckpoint.retrieveCredential("id-7");
+            check(overwritten != null && overwritten.getValue().equals("value-7-1"), "Checkpoint keeps the latest value");
+            // Manifest GET, a 404 probe for each number replay may skip and one more, and the ranged GET
+            check(store.requests.get() == REPLAY_GAP_PACKS + 3, "Reopened from the checkpoint with " + store.requests.get() + " requests");
+            check(fromCheckpoint.retrieveCredential("missing") == null, "Unknown id is not found");
+            int[] seen = new int[1];
+            fromCheckpoint.forEachCredential(credential -> seen[0]++);
+            check(seen[0] == CREDENTIALS, "forEachCredential visits " + seen[0] + " credentials");
+
+            System.out.println("\n--- Servers that ignore or cut short a Range ---");
+            store.ignoreRange = true;
+            CloudStorageImplementor wholeObjects = new CloudStorageImplementor(endpoint);
+            List<String> someIds = new ArrayList<>();
+            for (int i = 100; i < 200; i++) {
+                someIds.add("id-" + i);
+            }
+            Map<String, Credential> some = wholeObjects.retrieveCredentials(someIds);
+            Credential sliced = wholeObjects.retrieveCredential("id-7");
+            check(some.size() == someIds.size() && some.get("id-150").getValue().equals("value-150-0")
+                            && sliced != null && sliced.getValue().equals("value-7-1"),
+                    "Whole-object answers to ranged GETs are sliced to the range");
+            store.ignoreRange = false;
+            store.shortRanges = true;
+            boolean rejected = false;
+            try {
+                new CloudStorageImplementor(endpoint).retrieveCredential("id-7");
+            } catch (UncheckedIOException e) {
+                rejected = true;
+            } finally {
+                store.shortRanges = false;
+            }
+            check(rejected, "A partial response shorter than the range is rejected");
+
+            System.out.println("\n--- Failed and in-flight packs ---");
+            config.setConfiguration("cloudStorageBucket", "gaps");
+            checkGaps(endpoint, store);
+
+            System.out.println("\n--- Object per credential layout ---");
+            config.setConfiguration("cloudStorageLayout", CloudStorageImplementor.LAYOUT_OBJECT_PER_CREDENTIAL);
+            config.setConfiguration("cloudStorageBucket", "objects");
+            run(new CloudStorageImplementor(endpoint), store, false);
+        } finally {
+            config.setConfiguration("cloudStorageLayout", CloudStorageImplementor.LAYOUT_PACKED);
+            config.setConfiguration("cloudStorageBucket", "credentials");
+            config.setConfiguration("cloudStorageCheckpointPacks", 64);
+            config.setConfiguration("cloudStorageReplayGapPacks", 8);
+            store.stop();
+        }
+        System.out.println("\nAll cloud storage checks passed.");
+    }
+
+    private static void run(CloudStorageImplementor storage, ObjectStore store, boolean packed) {
+        List<Credential> credentials = new ArrayList<>(CREDENTIALS);
+        List<String> ids = new ArrayList<>(CREDENTIALS);
+        for (int i = 0; i < CREDENTIALS; i++) {
+            credentials.add(new Credential("id-" + i, "API Key", "value-" + i + "-0"));
+            ids.add("id-" + i);
+        }
+
+        store.requests.set(0);
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        long start = System.nanoTime();
+        try {
+            for (int from = 0; from < CREDENTIALS; from += BATCH) {
+                storage.storeCredentials(credentials.subList(from, from + BATCH));
+            }
+        } finally {
+            System.setOut(stdout);
+        }
+        report("store (batches of " + BATCH + ")", CREDENTIALS, System.nanoTime() - start, store.requests.getAndSet(0));
+        if (packed) {
+            check(store.objects.size() == CREDENTIALS / BATCH, "Stored " + CREDENTIALS + " credentials in " + store.objects.size() + " packs");
+        }
+
+        start = System.nanoTime();
+        for (int i = 0; i < SINGLE_READS; i++) {
+            Credential credential = storage.retrieveCredential(ids.get((i * 7919) % CREDENTIALS));
+            if (credential == null) {
+                throw new IllegalStateException("FAILED: missing credential " + ids.get((i * 7919) % CREDENTIALS));
+            }
+        }
+        report("retrieve (single, random)", SINGLE_READS, System.nanoTime() - start, store.requests.getAndSet(0));
+
+        start = System.nanoTime();
+        int found = 0;
+        for (int from = 0; from < CREDENTIALS; from += BATCH) {
+            found += storage.retrieveCredentials(ids.subList(from, from + BATCH)).size();
+        }
+        long requests = store.requests.getAndSet(0);
+        report("retrieve (batches of " + BATCH + ")", CREDENTIALS, System.nanoTime() - start, requests);
+        check(found == CREDENTIALS, "Batch reads found all " + found + " credentials");
+        if (packed) {
+            check(requests == CREDENTIALS / BATCH, "Adjacent ranges merged into " + requests + " GETs");
+            check(store.rangedGets.get() > 0, "Reads use ranged GETs");
+        }
+        checkAll(storage, 0);
+        check(storage.getRequestCount() > 0, "Implementor counted " + storage.getRequestCount() + " requests");
+    }
+
+    private static void checkGaps(String endpoint, ObjectStore store) throws InterruptedException {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        CloudStorageImplementor storage = new CloudStorageImplementor(endpoint);
+        boolean failed = false;
+        try {
+            storage.storeCredentials(gapBatch(0));
+            store.failing.add("/gaps/packs/0000000000000002");
+            try {
+                storage.storeCredentials(gapBatch(1));
+            } catch (UncheckedIOException e) {
+                failed = true;
+            }
+            // Stored, but filling pack 2 fails again
+            storage.storeCredentials(gapBatch(2));
+        } finally {
+            System.setOut(stdout);
+        }
+        check(failed, "A failed pack upload is reported");
+        CloudStorageImplementor reopened = new CloudStorageImplementor(endpoint);
+        check(gapBatchesFound(reopened, 3).equals(Arrays.asList(true, false, true)), "Replay skips the missing pack");
+
+        store.failing.clear();
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            storage.storeCredentials(gapBatch(3));
+        } finally {
+            System.setOut(stdout);
+        }
+        byte[] filled = store.objects.get("/gaps/packs/0000000000000002");
+        check(filled != null && filled.length == 12, "The failed pack number is filled with an empty pack");
+
+        // Pack 5 is still uploading when pack 6 is stored and the manifest is checkpointed
+        store.holdPut("/gaps/packs/0000000000000005");
+        Thread slow = new Thread(() -> storage.storeCredentials(gapBatch(4)));
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            slow.start();
+            store.held.await();
+            storage.storeCredentials(gapBatch(5));
+            storage.checkpoint();
+            store.release.countDown();
+            slow.join();
+        } finally {
+            System.setOut(stdout);
+        }
+        reopened = new CloudStorageImplementor(endpoint);
+        check(gapBatchesFound(reopened, 6).equals(Arrays.asList(true, false, true, true, true, true)),
+                "A checkpoint taken during an upload does not skip that pack");
+    }
+
+    private static List<Credential> gapBatch(int batch) {
+        List<Credential> credentials = new ArrayList<>(GAP_BATCH);
+        for (int i = 0; i < GAP_BATCH; i++) {
+            credentials.add(new Credential("gap-" + batch + "-" + i, "API Key", "value-" + i));
+        }
+        return credentials;
+    }
+
+    // Whether each batch is fully readable
+    private static List<Boolean> gapBatchesFound(CloudStorageImplementor storage, int batches) {
+        List<Boolean> found = new ArrayList<>(batches);
+        for (int batch = 0; batch < batches; batch++) {
+            List<String> ids = new ArrayList<>(GAP_BATCH);
+            for (Credential credential : gapBatch(batch)) {
+                ids.add(credential.getId());
+            }
+            found.add(storage.retrieveCredentials(ids).size() == GAP_BATCH);
+        }
+        return found;
+    }
+
+    private static void checkAll(CloudStorageImplementor storage, int round) {
+        List<String> ids = new ArrayList<>(CREDENTIALS);
+        for (int i = 0; i < CREDENTIALS; i++) {
+            ids.add("id-" + i);
+        }
+        Map<String, Credential> all = storage.retrieveCredentials(ids);
+        for (int i = 0; i < CREDENTIALS; i++) {
+            Credential credential = all.get("id-" + i);
+            if (credential == null || !credential.getValue().equals("value-" + i + "-" + round)) {
+                throw new IllegalStateException("FAILED: stale or missing credential id-" + i + ": " + credential);
+            }
+        }
+        System.out.println("OK: All " + CREDENTIALS + " credentials round-trip");
+    }
+
+    private static void report(String name, int items, long elapsedNanos, long requests) {
+        System.out.printf("%-28s %,7d items in %,6d ms  %,10.0f items/s  %,7d requests  %.4f requests/credential%n",
+                name, items, elapsedNanos / 1_000_000, items / (elapsedNanos / 1e9), requests, (double) requests / items);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    // In-memory object store speaking the subset of S3 the implementor uses: PUT, GET and GET with Range
+    private static final class ObjectStore {
+        private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong rangedGets = new AtomicLong();
+        // PUTs to these keys fail; a PUT to heldKey waits for release
+        private final Set<String> failing = ConcurrentHashMap.newKeySet();
+        private volatile String heldKey;
+        private volatile CountDownLatch held;
+        private volatile CountDownLatch release;
+        // Answer ranged GETs with the whole object, or with one byte less than asked for
+        private volatile boolean ignoreRange;
+        private volatile boolean shortRanges;
+        private final ExecutorService executor = Executors.newFixedThreadPool(8);
+        private final HttpServer server;
+
+        ObjectStore() throws IOException {
+            // Without TCP_NODELAY small responses wait on delayed ACKs, which would dominate single reads
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/", this::handle);
+            server.setExecutor(executor);
+            server.start();
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            String key = exchange.getRequestURI().getRawPath();
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    bytes.write(buffer, 0, read);
+                }
+                body = bytes.toByteArray();
+            }
+            if ("PUT".equals(exchange.getRequestMethod())) {
+                if (key.equals(heldKey)) {
+                    held.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (failing.contains(key)) {
+                    respond(exchange, 500, new byte[0]);
+                    return;
+                }
+                objects.put(key, body);
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                return;
+            }
+            byte[] object = objects.get(key);
+            if (object == null) {
+                respond(exchange, 404, new byte[0]);
+                return;
+            }
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range == null || ignoreRange) {
+                respond(exchange, 200, object);
+                return;
+            }
+            rangedGets.incrementAndGet();
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int from = Integer.parseInt(bounds[0]);
+            int to = Math.min(object.length - 1, Integer.parseInt(bounds[1]));
+            if (from > to) {
+                respond(exchange, 416, new byte[0]);
+                return;
+            }
+            byte[] part = new byte[shortRanges ? to - from : to - from + 1];
+            System.arraycopy(object, from, part, 0, part.length);
+            respond(exchange, 206, part);
+        }
+
+        private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        }
+
+        void holdPut(String key) {
+            held = new CountDownLatch(1);
+            release = new CountDownLatch(1);
+            heldKey = key;
+        }
+
+        void stop() {
+            server.stop(0);
+            executor.shutdown();
+        }
+    }
+}
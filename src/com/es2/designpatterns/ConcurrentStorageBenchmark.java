@@ -0,0 +1,182 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.Implementors.CloudStorageImplementor;
+import src.com.es2.designpatterns.Storage.Implementors.DatabaseStorageImplementor;
+import src.com.es2.designpatterns.Storage.StorageFactory;
+import src.com.es2.designpatterns.Storage.StorageImplementor;
+import src.com.es2.designpatterns.Storage.StorageType;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Checks that the in-memory storage implementors stay consistent under concurrent use and measures
+ * their throughput from 1 to 64 threads, then switches implementors and the default storage while
+ * threads are saving through the StorageFactory.
+ */
+public class ConcurrentStorageBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+    private static final int OPERATIONS = 400_000;
+    // One write for every READS_PER_WRITE reads
+    private static final int READS_PER_WRITE = 4;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("===== Benchmarking Concurrent Storage =====\n");
+
+        PrintStream stdout = System.out;
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        });
+
+        measure("Cloud (in memory)", () -> new CloudStorageImplementor(null), stdout, discard);
+        // No driver for this URL, so the implementor keeps credentials in memory
+        measure("Database (in memory)", () -> new DatabaseStorageImplementor("jdbc:sqlite:data/unavailable.db"), stdout, discard);
+
+        System.out.println("\n--- Switching implementors under load ---");
+        StorageFactory storageFactory = StorageFactory.getInstance(StorageType.CLOUD);
+        StorageImplementor first = new CloudStorageImplementor(null);
+        StorageImplementor second = new CloudStorageImplementor(null);
+        storageFactory.switchImplementor(StorageType.CLOUD, first);
+        storageFactory.setDefaultStorage(StorageType.CLOUD);
+
+        int threads = 16;
+        int perThread = 5_000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(threads);
+        System.setOut(discard);
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                new Thread(() -> {
+                    try {
+                        for (int i = 0; i < perThread; i++) {
+                            storageFactory.saveCredential(new Credential(thread + "-" + i, "API Key", "value-" + i));
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }).start();
+            }
+            int switches = 0;
+            while (done.getCount() > 0) {
+                storageFactory.switchImplementor(StorageType.CLOUD, switches % 2 == 0 ? second : first);
+                storageFactory.setDefaultStorage(switches % 3 == 0 ? StorageType.DATABASE : StorageType.CLOUD);
+                switches++;
+                Thread.sleep(1);
+            }
+            done.await();
+            storageFactory.setDefaultStorage(StorageType.CLOUD);
+        } finally {
+            System.setOut(stdout);
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("FAILED: save failed during switching", failure.get());
+        }
+        int saved = count(first) + count(second);
+        int inDatabase = 0;
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                String id = t + "-" + i;
+                if (first.retrieveCredential(id) == null && second.retrieveCredential(id) == null) {
+                    System.setOut(discard);
+                    Credential credential = storageFactory.retrieveCredential(StorageType.DATABASE, id);
+                    System.setOut(stdout);
+                    if (credential == null) {
+                        throw new IllegalStateException("FAILED: credential " + id + " was lost");
+                    }
+                    inDatabase++;
+                }
+            }
+        }
+        check(saved + inDatabase == threads * perThread, (threads * perThread) + " saves landed in the storage that was current ("
+                + count(first) + " + " + count(second) + " cloud, " + inDatabase + " database)");
+        System.out.println("\nAll concurrent storage checks passed.");
+    }
+
+    // Mixed reads and writes on a fresh implementor per thread count, then a full consistency check
+    private static void measure(String name, Supplier<StorageImplementor> factory, PrintStream stdout, PrintStream discard)
+            throws InterruptedException {
+        System.out.println("--- " + name + " ---");
+        for (int threads : THREADS) {
+            StorageImplementor storage = factory.get();
+            int perThread = OPERATIONS / threads;
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            AtomicInteger written = new AtomicInteger();
+            CountDownLatch ready = new CountDownLatch(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(threads);
+            System.setOut(discard);
+            long begin;
+            long elapsed;
+            try {
+                for (int t = 0; t < threads; t++) {
+                    final int thread = t;
+                    new Thread(() -> {
+                        ready.countDown();
+                        try {
+                            start.await();
+                            int writes = 0;
+                            for (int i = 0; i < perThread; i++) {
+                                if (i % (READS_PER_WRITE + 1) == 0) {
+                                    storage.storeCredential(new Credential(thread + "-" + writes, "API Key", "value-" + writes));
+                                    writes++;
+                                } else {
+                                    // A thread always sees its own writes
+                                    String id = thread + "-" + (i % writes);
+                                    Credential credential = storage.retrieveCredential(id);
+                                    if (credential == null || !credential.getId().equals(id)) {
+                                        throw new IllegalStateException("Lost write " + id);
+                                    }
+                                }
+                            }
+                            written.addAndGet(writes);
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            done.countDown();
+                        }
+                    }).start();
+                }
+                ready.await();
+                begin = System.nanoTime();
+                start.countDown();
+                done.await();
+                elapsed = System.nanoTime() - begin;
+            } finally {
+                System.setOut(stdout);
+            }
+            if (failure.get() != null) {
+                throw new IllegalStateException("FAILED: " + name + " with " + threads + " threads", failure.get());
+            }
+            int stored = count(storage);
+            if (stored != written.get()) {
+                throw new IllegalStateException("FAILED: " + name + " holds " + stored + " of " + written.get() + " credentials");
+            }
+            System.out.printf("%2d threads  %,10.0f ops/s  %,7d credentials consistent%n", threads,
+                    perThread * threads / (elapsed / 1e9), stored);
+        }
+        System.out.println();
+    }
+
+    private static int count(StorageImplementor storage) {
+        int[] count = new int[1];
+        storage.forEachCredential(credential -> count[0]++);
+        return count[0];
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("OK: " + message);
+    }
+}
@@ -9,6 +9,7 @@ import java.util.logging.Logger;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 //Singleton Pattern
 public class ConfigurationManager {
@@ -18,6 +19,9 @@ public class ConfigurationManager {
     // Configuration storage
     private Map<String, Object> configurations;
 
+    // Incremented on every change so caches derived from the configuration know when to rebuild
+    private final AtomicLong version = new AtomicLong();
+
     // Private constructor to prevent instantiation from outside
     private ConfigurationManager() {
         configurations = new HashMap<>();
@@ -45,11 +49,23 @@ public class ConfigurationManager {
         return (T) configurations.get(key);
     }
 
+    // Getter for optional configuration, falling back to the given default when the key is not set
+    public <T> T getConfiguration(String key, T defaultValue) {
+        T value = getConfiguration(key);
+        return value != null ? value : defaultValue;
+    }
+
     /*  Setter for configuration
 
      */
     public <T> void setConfiguration(String key, T value) {
         configurations.put(key, value);
+        version.incrementAndGet();
+    }
+
+    // Version of the configuration, changes whenever a setting is set or loaded; reading it takes no lock
+    public long getVersion() {
+        return version.get();
     }
 
     // Load configurations from a source (file, database, etc.)
@@ -88,6 +104,8 @@ public class ConfigurationManager {
                 }
             }
 
+            version.incrementAndGet();
+
             Logger.getLogger(ConfigurationManager.class.getName())
                     .log(Level.INFO, "Successfully loaded configurations from {0}", source);
 
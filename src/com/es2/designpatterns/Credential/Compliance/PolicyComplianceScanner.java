@@ -0,0 +1,245 @@
+package src.com.es2.designpatterns.Credential.Compliance;
+
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Credential.Generator.CompiledAlphabet;
+import src.com.es2.designpatterns.Credential.SecurityCriteria;
+
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Checks existing passwords against a SecurityCriteria in bulk, e.g. when importing a legacy vault.
+ * Each password gets a violation bitmask built from the constants below; 0 means compliant.
+ *
+ * Characters are classified four at a time: four chars are packed into the 16-bit lanes of a long,
+ * and the uppercase, lowercase and digit ranges are tested for all lanes with a few arithmetic
+ * operations (SWAR). Symbols and excluded characters are not contiguous ranges, so they are looked up
+ * in 128-bit ASCII masks, and only when the criteria need them. Batches are split into chunks that
+ * are scanned in parallel.
+ */
+public final class PolicyComplianceScanner {
+    public static final int COMPLIANT = 0;
+    public static final int TOO_SHORT = 1;
+    public static final int MISSING_UPPERCASE = 1 << 1;
+    public static final int MISSING_LOWERCASE = 1 << 2;
+    public static final int MISSING_NUMBER = 1 << 3;
+    public static final int MISSING_SYMBOL = 1 << 4;
+    public static final int EXCLUDED_CHAR = 1 << 5;
+
+    // Passwords per parallel task
+    private static final int CHUNK_SIZE = 4096;
+
+    // Lane constants for four 16-bit lanes
+    private static final long LANES = 0x0001000100010001L;
+    private static final long HIGH_BITS = 0x8000800080008000L;
+    private static final long NON_ASCII = 0xFF80FF80FF80FF80L;
+    private static final long UPPER_LOW = 'A' * LANES;
+    private static final long UPPER_HIGH = ('Z' * LANES) | HIGH_BITS;
+    private static final long LOWER_LOW = 'a' * LANES;
+    private static final long LOWER_HIGH = ('z' * LANES) | HIGH_BITS;
+    private static final long DIGIT_LOW = '0' * LANES;
+    private static final long DIGIT_HIGH = ('9' * LANES) | HIGH_BITS;
+
+    // Classes are tracked as MISSING_* bits so that the ones never seen can be reported directly
+    private static final int ALL_CLASSES_MISSING = MISSING_UPPERCASE | MISSING_LOWERCASE | MISSING_NUMBER | MISSING_SYMBOL;
+
+    private final int minLength;
+    // The MISSING_* bits of the classes the criteria require
+    private final int requiredClasses;
+    private final long symbolsLow;
+    private final long symbolsHigh;
+    private final long excludedLow;
+    private final long excludedHigh;
+    // Excluded characters outside ASCII, checked with indexOf
+    private final String excludedNonAscii;
+    private final boolean checkSymbols;
+    private final boolean checkExcluded;
+
+    /**
+     * @param criteria The policy to check against: its length is the minimum length, every included
+     *                 character class is required, and its excluded characters must not appear
+     */
+    public PolicyComplianceScanner(SecurityCriteria criteria) {
+        this.minLength = criteria.getLength();
+        int required = 0;
+        if (criteria.isIncludeUppercase()) required |= MISSING_UPPERCASE;
+        if (criteria.isIncludeLowercase()) required |= MISSING_LOWERCASE;
+        if (criteria.isIncludeNumbers()) required |= MISSING_NUMBER;
+        if (criteria.isIncludeSymbols()) required |= MISSING_SYMBOL;
+        this.requiredClasses = required;
+
+        long[] symbols = asciiMask(CompiledAlphabet.SYMBOL_CHARS);
+        this.symbolsLow = symbols[0];
+        this.symbolsHigh = symbols[1];
+        String excluded = criteria.getExcludedChars();
+        long[] excludedMask = asciiMask(excluded);
+        this.excludedLow = excludedMask[0];
+        this.excludedHigh = excludedMask[1];
+        StringBuilder nonAscii = new StringBuilder();
+        for (int i = 0; i < excluded.length(); i++) {
+            if (excluded.charAt(i) >= 128) {
+                nonAscii.append(excluded.charAt(i));
+            }
+        }
+        this.excludedNonAscii = nonAscii.toString();
+        this.checkSymbols = criteria.isIncludeSymbols();
+        this.checkExcluded = !excluded.isEmpty();
+    }
+
+    /**
+     * Scans a batch of credentials in parallel.
+     * @param credentials The credentials to check
+     * @return The violation bitmask of each credential, in batch order
+     */
+    public int[] scan(List<Credential> credentials) {
+        return scan(credentials.size(), i -> credentials.get(i).getValue());
+    }
+
+    /**
+     * Scans a batch of plain password values in parallel.
+     * @param passwords The passwords to check
+     * @return The violation bitmask of each password, in batch order
+     */
+    public int[] scanValues(List<String> passwords) {
+        return scan(passwords.size(), passwords::get);
+    }
+
+    // Checks a single password
+    public int check(String password) {
+        char[] buffer = new char[password == null ? 0 : password.length()];
+        return check(password, buffer);
+    }
+
+    // Lists the violations in a bitmask, e.g. "TOO_SHORT, MISSING_SYMBOL"
+    public static String describe(int violations) {
+        if (violations == COMPLIANT) {
+            return "COMPLIANT";
+        }
+        String[] names = {"TOO_SHORT", "MISSING_UPPERCASE", "MISSING_LOWERCASE", "MISSING_NUMBER",
+                "MISSING_SYMBOL", "EXCLUDED_CHAR"};
+        StringBuilder description = new StringBuilder();
+        for (int bit = 0; bit < names.length; bit++) {
+            if ((violations & (1 << bit)) != 0) {
+                if (description.length() > 0) {
+                    description.append(", ");
+                }
+                description.append(names[bit]);
+            }
+        }
+        return description.toString();
+    }
+
+    private int[] scan(int size, IntFunction<String> passwordAt) {
+        int[] violations = new int[size];
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            char[] buffer = new char[64];
+            int end = Math.min(size, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                String password = passwordAt.apply(i);
+                if (password != null && password.length() > buffer.length) {
+                    buffer = new char[Math.max(password.length(), buffer.length * 2)];
+                }
+                violations[i] = check(password, buffer);
+            }
+        });
+        return violations;
+    }
+
+    private int check(String password, char[] buffer) {
+        int length = password == null ? 0 : password.length();
+        if (length > 0) {
+            password.getChars(0, length, buffer, 0);
+        }
+        int violations = length < minLength ? TOO_SHORT : 0;
+
+        // Starts with every class missing and clears a bit when the class is seen
+        int missing = ALL_CLASSES_MISSING;
+        boolean excluded = false;
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            long word = buffer[i] | (long) buffer[i + 1] << 16 | (long) buffer[i + 2] << 32 | (long) buffer[i + 3] << 48;
+            if ((word & NON_ASCII) != 0) {
+                for (int k = i; k < i + 4; k++) {
+                    missing &= ~classify(buffer[k]);
+                    excluded |= isExcluded(buffer[k]);
+                }
+            } else {
+                if (inRange(word, UPPER_LOW, UPPER_HIGH) != 0) missing &= ~MISSING_UPPERCASE;
+                if (inRange(word, LOWER_LOW, LOWER_HIGH) != 0) missing &= ~MISSING_LOWERCASE;
+                if (inRange(word, DIGIT_LOW, DIGIT_HIGH) != 0) missing &= ~MISSING_NUMBER;
+                if (checkSymbols && (missing & MISSING_SYMBOL) != 0
+                        && (isSymbol(buffer[i]) || isSymbol(buffer[i + 1]) || isSymbol(buffer[i + 2]) || isSymbol(buffer[i + 3]))) {
+                    missing &= ~MISSING_SYMBOL;
+                }
+                if (checkExcluded) {
+                    excluded |= inAsciiMask(buffer[i], excludedLow, excludedHigh) | inAsciiMask(buffer[i + 1], excludedLow, excludedHigh)
+                            | inAsciiMask(buffer[i + 2], excludedLow, excludedHigh) | inAsciiMask(buffer[i + 3], excludedLow, excludedHigh);
+                }
+            }
+            if (isSettled(missing, excluded)) {
+                break; // Nothing left to find
+            }
+        }
+        if (!isSettled(missing, excluded)) {
+            for (; i < length; i++) {
+                missing &= ~classify(buffer[i]);
+                excluded |= isExcluded(buffer[i]);
+            }
+        }
+
+        violations |= missing & requiredClasses;
+        if (excluded) {
+            violations |= EXCLUDED_CHAR;
+        }
+        return violations;
+    }
+
+    // Whether the remaining characters can no longer change the result
+    private boolean isSettled(int missing, boolean excluded) {
+        return (missing & requiredClasses) == 0 && (excluded || !checkExcluded);
+    }
+
+    // High bit of each lane set where lo <= lane <= hi; lanes must be below 0x8000
+    private static long inRange(long word, long low, long highWithHighBits) {
+        return ((word | HIGH_BITS) - low) & (highWithHighBits - word) & HIGH_BITS;
+    }
+
+    // The MISSING_* bit of the class a character belongs to, or 0
+    private int classify(char c) {
+        if (c >= 'A' && c <= 'Z') return MISSING_UPPERCASE;
+        if (c >= 'a' && c <= 'z') return MISSING_LOWERCASE;
+        if (c >= '0' && c <= '9') return MISSING_NUMBER;
+        return isSymbol(c) ? MISSING_SYMBOL : 0;
+    }
+
+    private boolean isSymbol(char c) {
+        return inAsciiMask(c, symbolsLow, symbolsHigh);
+    }
+
+    private boolean isExcluded(char c) {
+        if (c < 128) {
+            return inAsciiMask(c, excludedLow, excludedHigh);
+        }
+        return checkExcluded && excludedNonAscii.indexOf(c) >= 0;
+    }
+
+    private static boolean inAsciiMask(char c, long low, long high) {
+        if (c < 64) {
+            return ((low >>> c) & 1) != 0;
+        }
+        return c < 128 && ((high >>> (c - 64)) & 1) != 0;
+    }
+
+    private static long[] asciiMask(String chars) {
+        long[] mask = new long[2];
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c < 128) {
+                mask[c >>> 6] |= 1L << c;
+            }
+        }
+        return mask;
+    }
+}
@@ -1,22 +1,52 @@
 package src.com.es2.designpatterns.Credential;
 
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.function.BiConsumer;
 
+/**
+ * A generated credential. The layout is kept compact because millions of credentials can be resident
+ * in the storage implementors: metadata is a lazily allocated key/value array, the timestamp is a
+ * primitive epoch-millis value and well-known type names share a single String instance.
+ */
 public class Credential {
-    private final HashMap<Object, Object> metadata;
-    private String id;
-    private String name;
-    private String value;
-    private Date timestamp;
-    // private Map<String, Object> metadata;
+    private final String id;
+    private final String name;
+    // Either a String or, for wipeable credentials, a char[] cleared by release()
+    private final Object value;
+    private final long timestamp;
+    // Alternating metadata keys and values, allocated on the first setMetadata call
+    private Object[] metadata;
 
     public Credential(String id, String name, String value) {
+        this(id, name, (Object) value);
+    }
+
+    /**
+     * Creates a credential whose value lives in a char array that can be wiped with release().
+     * The credential takes ownership of the array; callers must not modify it afterwards.
+     */
+    public Credential(String id, String name, char[] value) {
+        this(id, name, (Object) value);
+    }
+
+    /**
+     * Recreates a stored credential with its original creation time, e.g. when a storage backend
+     * reads it back from disk.
+     */
+    public Credential(String id, String name, String value, long timestamp) {
+        this(id, name, (Object) value, timestamp);
+    }
+
+    private Credential(String id, String name, Object value) {
+        this(id, name, value, System.currentTimeMillis());
+    }
+
+    private Credential(String id, String name, Object value, long timestamp) {
         this.id = id;
-        this.name = name;
+        this.name = CredentialType.canonicalName(name);
         this.value = value;
-        this.timestamp = new Date();
-        this.metadata = new HashMap<>();
+        this.timestamp = timestamp;
     }
 
     public String getId() {
@@ -28,28 +58,89 @@ public class Credential {
     }
 
     public String getValue() {
-        return value;
+        if (value instanceof char[]) {
+            return new String((char[]) value);
+        }
+        return (String) value;
     }
 
+    /**
+     * Gets the value as characters. For char-backed credentials this is the backing array itself,
+     * which must not be kept after release(); otherwise it is a fresh copy of the String value.
+     */
+    public char[] getValueChars() {
+        if (value instanceof char[]) {
+            return (char[]) value;
+        }
+        return value != null ? ((String) value).toCharArray() : null;
+    }
+
+    // Overwrites a char-backed value with NUL characters; String values are immutable and cannot be wiped
+    public void release() {
+        if (value instanceof char[]) {
+            Arrays.fill((char[]) value, '\0');
+        }
+    }
+
+    // Returns a copy, the credential only keeps the epoch-millis value
     public Date getTimestamp() {
+        return new Date(timestamp);
+    }
+
+    public long getTimestampMillis() {
         return timestamp;
     }
 
     public Object getMetadata(String key) {
-        return metadata.get(key);
+        if (metadata != null && key != null) {
+            for (int i = 0; i < metadata.length && metadata[i] != null; i += 2) {
+                if (metadata[i].equals(key)) {
+                    return metadata[i + 1];
+                }
+            }
+        }
+        return null;
     }
 
+    // Null keys are rejected: a null slot marks the end of the entries, and the codecs cannot store one
     public void setMetadata(String key, Object value) {
-        metadata.put(key, value);
+        if (key == null) {
+            throw new IllegalArgumentException("Metadata key must not be null");
+        }
+        if (metadata == null) {
+            metadata = new Object[2];
+        }
+        int i = 0;
+        while (i < metadata.length && metadata[i] != null) {
+            if (metadata[i].equals(key)) {
+                metadata[i + 1] = value;
+                return;
+            }
+            i += 2;
+        }
+        if (i == metadata.length) {
+            metadata = Arrays.copyOf(metadata, metadata.length * 2);
+        }
+        metadata[i] = key;
+        metadata[i + 1] = value;
+    }
+
+    // Visits every metadata entry in insertion order
+    public void forEachMetadata(BiConsumer<String, Object> action) {
+        if (metadata != null) {
+            for (int i = 0; i < metadata.length && metadata[i] != null; i += 2) {
+                action.accept((String) metadata[i], metadata[i + 1]);
+            }
+        }
     }
 
     @Override
     public String toString() {
         return "Credential{" +
                 "id='" + id + '\'' +
-                ", pass=" + value + '\'' +
+                ", pass=" + getValue() + '\'' +
                 ", name='" + name + '\'' +
-                ", timestamp=" + timestamp +
+                ", timestamp=" + getTimestamp() +
                 '}';
     }
-}
\ No newline at end of file
+}
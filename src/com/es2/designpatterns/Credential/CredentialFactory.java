@@ -1,21 +1,49 @@
 package src.com.es2.designpatterns.Credential;
 
 
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
 import src.com.es2.designpatterns.Credential.Generator.PasswordGenerator;
+import src.com.es2.designpatterns.Credential.Uniqueness.CredentialUniquenessGuard;
+import src.com.es2.designpatterns.Identity.IdGenerator;
 
-import java.util.UUID;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class CredentialFactory {
+    // Batches at or below this size are generated sequentially by a single fork-join task
+    private static final int BULK_SPLIT_THRESHOLD = 256;
+    // Regeneration attempts before a guarded credential type gives up on finding a unique value
+    private static final int MAX_UNIQUENESS_ATTEMPTS = 16;
+
     // The single instance
     private static CredentialFactory instance;
     private PasswordGenerator passwordGenerator;
     //Reference to SecurityCriteriaBuilder
     private SecurityCriteriaBuilderProvider builderProvider;
+    private final ConfigurationManager config;
+    // Interned criteria per credential type and the uniqueness guard, replaced when either changes
+    private volatile CriteriaSnapshot criteriaSnapshot;
+    // Optional pre-generation reservoir, null when disabled
+    private volatile CredentialReservoir reservoir;
+    // Optional guard against reissuing an API key or secret key value, null when disabled
+    private volatile CredentialUniquenessGuard uniquenessGuard;
 
     // Private constructor
     private CredentialFactory() {
         this.passwordGenerator = new PasswordGenerator();;
         this.builderProvider = new DefaultSecurityCriteriaBuilderProvider();
+        this.config = ConfigurationManager.getInstance();
+
+        if (config.getConfiguration("credentialReservoirEnabled", false)) {
+            enableReservoir();
+        }
     }
     // Global access point
     public static synchronized CredentialFactory getInstance() {
@@ -55,20 +83,179 @@ public class CredentialFactory {
     
 
     public Credential createCredential(CredentialType type) {
-        String id = UUID.randomUUID().toString();
-        SecurityCriteria criteria = builderProvider.getBuilderFor(type).build();
-        
+        CredentialReservoir currentReservoir = reservoir;
+        if (currentReservoir != null) {
+            // poll() checks the configuration version first and skips credentials from an older snapshot
+            Credential credential = currentReservoir.poll(type);
+            if (credential != null) {
+                return credential;
+            }
+        }
+        return createCredential(type, currentSnapshot());
+    }
+
+    /**
+     * Enables reservoir mode: credentials are pre-generated in the background and createCredential
+     * dequeues them, falling back to synchronous generation when a buffer is empty.
+     * Watermarks are read from "reservoirLowWatermark" and "reservoirHighWatermark". Buffered credentials
+     * are tagged with the criteria snapshot they were generated from and are only issued while it is current.
+     * @return The active reservoir
+     */
+    public synchronized CredentialReservoir enableReservoir() {
+        if (reservoir == null) {
+            int lowWatermark = config.getConfiguration("reservoirLowWatermark", 256);
+            int highWatermark = config.getConfiguration("reservoirHighWatermark", 1024);
+            // Credit cards carry no generated secret, so there is nothing worth pre-generating
+            reservoir = new CredentialReservoir(
+                    EnumSet.of(CredentialType.PASSWORD, CredentialType.API_KEY, CredentialType.SECRET_KEY, CredentialType.PIN),
+                    type -> createCredential(type, currentSnapshot()),
+                    this::currentSnapshot, lowWatermark, highWatermark);
+        }
+        return reservoir;
+    }
+
+    // Disables reservoir mode and stops its refill worker; the wait happens outside the lock, which the worker may need
+    public void disableReservoir() {
+        CredentialReservoir stopped;
+        synchronized (this) {
+            stopped = reservoir;
+            reservoir = null;
+        }
+        if (stopped != null) {
+            stopped.shutdown();
+        }
+    }
+
+    // Gets the active reservoir, for its hit and miss counters; null when reservoir mode is off
+    public CredentialReservoir getReservoir() {
+        return reservoir;
+    }
+
+    /**
+     * Sets the guard that API keys and secret keys are checked against; a value the guard reports as
+     * already issued is regenerated. Buffered reservoir credentials are discarded, since they were not checked.
+     * @param uniquenessGuard The guard, or null to stop checking
+     */
+    public synchronized void setUniquenessGuard(CredentialUniquenessGuard uniquenessGuard) {
+        this.uniquenessGuard = uniquenessGuard;
+        CriteriaSnapshot snapshot = criteriaSnapshot;
+        if (snapshot != null) {
+            // A new snapshot, so credentials generated under the old guard no longer match their tag
+            criteriaSnapshot = new CriteriaSnapshot(snapshot.configVersion, snapshot.criteria, uniquenessGuard);
+        }
+        CredentialReservoir currentReservoir = reservoir;
+        if (currentReservoir != null) {
+            currentReservoir.clear();
+        }
+    }
+
+    public CredentialUniquenessGuard getUniquenessGuard() {
+        return uniquenessGuard;
+    }
+
+    /**
+     * Creates a batch of credentials of the same type, splitting the work across the common ForkJoinPool.
+     * The security criteria are resolved once for the whole batch.
+     * @param type The type of credentials to create
+     * @param count The number of credentials to create
+     * @return The created credentials
+     */
+    public List<Credential> createCredentials(CredentialType type, int count) {
+        return createCredentials(type, count, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a batch of credentials of the same type on the given ForkJoinPool.
+     * @param type The type of credentials to create
+     * @param count The number of credentials to create
+     * @param pool The pool that runs the generation tasks
+     * @return The created credentials
+     */
+    public List<Credential> createCredentials(CredentialType type, int count, ForkJoinPool pool) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Credential count must not be negative: " + count);
+        }
+        CriteriaSnapshot snapshot = currentSnapshot();
+        Credential[] credentials = new Credential[count];
+        pool.invoke(new BulkCreationTask(type, snapshot, credentials, 0, count));
+        return Arrays.asList(credentials);
+    }
+
+    /**
+     * Lazily creates credentials of the same type as a parallel stream.
+     * The security criteria are resolved once when the stream is created.
+     * @param type The type of credentials to create
+     * @param count The number of credentials the stream produces
+     * @return A parallel stream of newly created credentials
+     */
+    public Stream<Credential> streamCredentials(CredentialType type, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Credential count must not be negative: " + count);
+        }
+        CriteriaSnapshot snapshot = currentSnapshot();
+        return IntStream.range(0, count).parallel().mapToObj(i -> createCredential(type, snapshot));
+    }
+
+    /**
+     * Gets the precomputed criteria for every credential type. The criteria are only rebuilt when the
+     * configuration version changes, so the common path is a volatile read and a version check.
+     */
+    private CriteriaSnapshot currentSnapshot() {
+        CriteriaSnapshot snapshot = criteriaSnapshot;
+        if (snapshot == null || snapshot.configVersion != config.getVersion()) {
+            snapshot = rebuildCriteria();
+        }
+        return snapshot;
+    }
+
+    private synchronized CriteriaSnapshot rebuildCriteria() {
+        long version = config.getVersion();
+        CriteriaSnapshot snapshot = criteriaSnapshot;
+        if (snapshot != null && snapshot.configVersion == version) {
+            return snapshot; // Already rebuilt by another thread
+        }
+
+        Map<CredentialType, SecurityCriteria> criteria = new EnumMap<>(CredentialType.class);
+        for (CredentialType type : CredentialType.values()) {
+            criteria.put(type, builderProvider.getBuilderFor(type).build().intern());
+        }
+        snapshot = new CriteriaSnapshot(version, criteria, uniquenessGuard);
+        criteriaSnapshot = snapshot;
+
+        // Buffered credentials were generated with the previous criteria
+        CredentialReservoir currentReservoir = reservoir;
+        if (currentReservoir != null) {
+            currentReservoir.clear();
+        }
+        return snapshot;
+    }
+
+    // Criteria for every credential type, built from one configuration version, and the guard in effect
+    private static final class CriteriaSnapshot {
+        private final long configVersion;
+        private final Map<CredentialType, SecurityCriteria> criteria;
+        private final CredentialUniquenessGuard guard;
+
+        CriteriaSnapshot(long configVersion, Map<CredentialType, SecurityCriteria> criteria, CredentialUniquenessGuard guard) {
+            this.configVersion = configVersion;
+            this.criteria = criteria;
+            this.guard = guard;
+        }
+    }
+
+    private Credential createCredential(CredentialType type, CriteriaSnapshot snapshot) {
+        String id = IdGenerator.nextIdString();
+        SecurityCriteria criteria = snapshot.criteria.get(type);
+
         switch (type) {
-            case PASSWORD:
-                return new Credential(id, "Password", passwordGenerator.generatePassword(criteria));
             case API_KEY:
-                return new Credential(id, "API Key", passwordGenerator.generatePassword(criteria));
             case SECRET_KEY:
-                return new Credential(id, "Secret Key", passwordGenerator.generatePassword(criteria));
+                return new Credential(id, type.getDisplayName(), generateUniqueValue(type, criteria, snapshot.guard));
+            case PASSWORD:
             case PIN:
-                return new Credential(id, "PIN", passwordGenerator.generatePassword(criteria));
+                return new Credential(id, type.getDisplayName(), passwordGenerator.generatePassword(criteria));
             case CREDIT_CARD:
-                Credential ccCredential = new Credential(id, "Credit Card", "");
+                Credential ccCredential = new Credential(id, type.getDisplayName(), "");
                 ccCredential.setMetadata("type", "cc");
                 return ccCredential;
             default:
@@ -76,6 +263,51 @@ public class CredentialFactory {
         }
     }
 
+    private String generateUniqueValue(CredentialType type, SecurityCriteria criteria, CredentialUniquenessGuard guard) {
+        if (guard == null || !CredentialUniquenessGuard.guards(type)) {
+            return passwordGenerator.generatePassword(criteria);
+        }
+        for (int attempt = 0; attempt < MAX_UNIQUENESS_ATTEMPTS; attempt++) {
+            String value = passwordGenerator.generatePassword(criteria);
+            if (guard.claim(value)) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("No unique " + type.getDisplayName() + " value after "
+                + MAX_UNIQUENESS_ATTEMPTS + " attempts; the criteria allow too few distinct values");
+    }
+
+    // Fork-join task that fills a slice of the result array, splitting it in halves above the threshold
+    private class BulkCreationTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final CredentialType type;
+        private final CriteriaSnapshot snapshot;
+        private final Credential[] credentials;
+        private final int from;
+        private final int to;
+
+        BulkCreationTask(CredentialType type, CriteriaSnapshot snapshot, Credential[] credentials, int from, int to) {
+            this.type = type;
+            this.snapshot = snapshot;
+            this.credentials = credentials;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BULK_SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    credentials[i] = createCredential(type, snapshot);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BulkCreationTask(type, snapshot, credentials, from, middle),
+                      new BulkCreationTask(type, snapshot, credentials, middle, to));
+        }
+    }
+
     // Method to register custom algorithms @DEPRECATED
     // public void registerAlgorithm(String name, GenerationAlgorithm algorithm) {
     //     passwordGenerator.registerAlgorithm(name, algorithm);
@@ -0,0 +1,192 @@
+package src.com.es2.designpatterns.Credential;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a bounded buffer of pre-generated credentials per credential type, so issuing a credential
+ * is a lock-free dequeue instead of a call into the password generator.
+ * A background worker refills a buffer to its high watermark as soon as it drops below its low watermark.
+ * Each buffered credential is tagged with the origin (criteria and checks) it was generated under, and
+ * poll() drops credentials whose origin is no longer current, so a refill that races clear() cannot leak.
+ */
+public class CredentialReservoir {
+    // How long the refill worker sleeps when it is not woken by a consumer
+    private static final long REFILL_CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Map<CredentialType, RingBuffer<Reserved>> buffers;
+    private final Function<CredentialType, Credential> generator;
+    private final Supplier<?> origin;
+    private final int lowWatermark;
+    private final int highWatermark;
+
+    // Hit and miss counters
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private final Thread refillWorker;
+    private volatile boolean running;
+
+    /**
+     * Creates a reservoir and starts its refill worker.
+     * @param types The credential types to pre-generate
+     * @param generator Synchronously creates one credential of the given type
+     * @param origin Gets the current origin; the generator must use it, and a new one is supplied whenever
+     *               credentials generated under the previous one may no longer be issued. Compared by identity
+     * @param lowWatermark The buffer size below which a refill starts
+     * @param highWatermark The buffer size a refill stops at
+     */
+    public CredentialReservoir(Set<CredentialType> types, Function<CredentialType, Credential> generator,
+                               Supplier<?> origin, int lowWatermark, int highWatermark) {
+        if (lowWatermark < 0 || highWatermark <= lowWatermark) {
+            throw new IllegalArgumentException("Watermarks must satisfy 0 <= low < high, got low="
+                    + lowWatermark + " high=" + highWatermark);
+        }
+        this.generator = generator;
+        this.origin = origin;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.buffers = new EnumMap<>(CredentialType.class);
+        for (CredentialType type : types) {
+            buffers.put(type, new RingBuffer<>(highWatermark));
+        }
+
+        this.running = true;
+        this.refillWorker = new Thread(this::refillLoop, "credential-reservoir-refill");
+        this.refillWorker.setDaemon(true);
+        this.refillWorker.start();
+    }
+
+    /**
+     * Takes a pre-generated credential.
+     * @param type The credential type
+     * @return A credential, or null if none is buffered and the caller must generate synchronously
+     */
+    public Credential poll(CredentialType type) {
+        RingBuffer<Reserved> buffer = buffers.get(type);
+        if (buffer == null) {
+            return null; // Type is not reserved, not counted as a miss
+        }
+
+        Object current = origin.get();
+        Reserved reserved;
+        do {
+            reserved = buffer.poll();
+        } while (reserved != null && reserved.origin != current); // Stale: generated under an older origin
+        Credential credential = reserved != null ? reserved.credential : null;
+        if (credential != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+
+        if (buffer.size() < lowWatermark) {
+            LockSupport.unpark(refillWorker);
+        }
+        return credential;
+    }
+
+    /**
+     * Discards every buffered credential, e.g. after the criteria they were generated with changed.
+     */
+    public void clear() {
+        for (RingBuffer<Reserved> buffer : buffers.values()) {
+            while (buffer.poll() != null) {
+                // Drain
+            }
+        }
+        LockSupport.unpark(refillWorker);
+    }
+
+    /**
+     * Stops the refill worker and waits for a credential it is generating, so nothing is generated
+     * (or claimed by a uniqueness guard) after this returns. Buffered credentials can still be polled.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(refillWorker);
+        boolean interrupted = false;
+        while (refillWorker.isAlive() && Thread.currentThread() != refillWorker) {
+            try {
+                refillWorker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void refillLoop() {
+        while (running) {
+            for (Map.Entry<CredentialType, RingBuffer<Reserved>> entry : buffers.entrySet()) {
+                RingBuffer<Reserved> buffer = entry.getValue();
+                if (buffer.size() < lowWatermark) {
+                    try {
+                        while (running && buffer.size() < highWatermark) {
+                            Object before = origin.get();
+                            Credential credential = generator.apply(entry.getKey());
+                            if (origin.get() != before) {
+                                break; // The origin changed while generating; the next pass refills under the new one
+                            }
+                            if (!buffer.offer(new Reserved(credential, before))) {
+                                break;
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        // Keep the worker alive; callers fall back to synchronous generation
+                        Logger.getLogger(CredentialReservoir.class.getName())
+                                .log(Level.WARNING, "Failed to pre-generate " + entry.getKey() + " credentials", e);
+                    }
+                }
+            }
+            LockSupport.parkNanos(this, REFILL_CHECK_INTERVAL_NANOS);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of credentials currently buffered for a type.
+     * @param type The credential type
+     * @return The number of buffered credentials, 0 if the type is not reserved
+     */
+    public int getAvailable(CredentialType type) {
+        RingBuffer<Reserved> buffer = buffers.get(type);
+        return buffer != null ? buffer.size() : 0;
+    }
+
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    // A buffered credential and the origin it was generated under
+    private static final class Reserved {
+        private final Credential credential;
+        private final Object origin;
+
+        Reserved(Credential credential, Object origin) {
+            this.credential = credential;
+            this.origin = origin;
+        }
+    }
+}
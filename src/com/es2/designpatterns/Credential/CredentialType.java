@@ -1,9 +1,38 @@
 package src.com.es2.designpatterns.Credential;
 
 public enum CredentialType {
-    PASSWORD,
-    API_KEY,
-    SECRET_KEY,
-    CREDIT_CARD,
-    PIN
-}
\ No newline at end of file
+    PASSWORD("Password"),
+    API_KEY("API Key"),
+    SECRET_KEY("Secret Key"),
+    CREDIT_CARD("Credit Card"),
+    PIN("PIN");
+
+    private static final CredentialType[] types = values();
+
+    private final String displayName;
+
+    CredentialType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Maps a credential name onto the shared display-name instance when it matches a known type,
+     * so credentials created or loaded anywhere do not each keep their own copy of "Password", "PIN", ...
+     * @param name The credential name
+     * @return The shared display name, or the given name if it is not a type name
+     */
+    public static String canonicalName(String name) {
+        if (name != null) {
+            for (CredentialType type : types) {
+                if (type.displayName.equals(name)) {
+                    return type.displayName;
+                }
+            }
+        }
+        return name;
+    }
+}
@@ -0,0 +1,71 @@
+package src.com.es2.designpatterns.Credential.Generator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns every registered algorithm name a small, stable integer handle.
+ * Handles are only assigned by register(), so names that are merely looked up (e.g. from user input)
+ * never grow the registry. SecurityCriteria look their algorithm name up once, on build(), and
+ * PasswordGenerator stores algorithms in an array indexed by handle, so dispatch is a single array load.
+ * The built-in algorithms always get the first handles, in the order below.
+ */
+public final class AlgorithmRegistry {
+    public static final int STANDARD = 0;
+    public static final int ENHANCED = 1;
+    public static final int PIN = 2;
+    public static final int PASSPHRASE = 3;
+    public static final int POLICY = 4;
+
+    // Handle of a criteria without an algorithm name, or with a name that was not registered
+    public static final int UNRESOLVED = -1;
+
+    private static final ConcurrentMap<String, Integer> handles = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextHandle = new AtomicInteger();
+
+    static {
+        register("standard");
+        register("enhanced");
+        register("pin");
+        register("passphrase");
+        register("policy");
+    }
+
+    private AlgorithmRegistry() {
+    }
+
+    /**
+     * Gets the handle of a registered algorithm name, without assigning one.
+     * @param name The algorithm name
+     * @return The handle, or UNRESOLVED for a null or unregistered name
+     */
+    public static int lookup(String name) {
+        if (name == null) {
+            return UNRESOLVED;
+        }
+        Integer handle = handles.get(name);
+        return handle != null ? handle : UNRESOLVED;
+    }
+
+    /**
+     * Gets the handle for an algorithm name, assigning the next free handle the first time the name is registered.
+     * @param name The algorithm name, must not be null
+     * @return The handle
+     */
+    public static int register(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Algorithm name must not be null");
+        }
+        Integer handle = handles.get(name);
+        if (handle == null) {
+            handle = handles.computeIfAbsent(name, key -> nextHandle.getAndIncrement());
+        }
+        return handle;
+    }
+
+    // Number of registered algorithm names
+    public static int size() {
+        return handles.size();
+    }
+}
@@ -0,0 +1,121 @@
+package src.com.es2.designpatterns.Credential.Generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable set of characters a password is drawn from.
+ * Alphabets are compiled once per combination of character classes and excluded characters
+ * and cached, so generating a password is a single loop over random indices.
+ */
+public final class CompiledAlphabet {
+    public static final String UPPERCASE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    public static final String LOWERCASE_CHARS = "abcdefghijklmnopqrstuvwxyz";
+    public static final String NUMBER_CHARS = "0123456789";
+    public static final String SYMBOL_CHARS = "!@#$%^&*()_+-=[]{}|;:,.<>?";
+
+    private static final int UPPERCASE = 1;
+    private static final int LOWERCASE = 1 << 1;
+    private static final int NUMBERS = 1 << 2;
+    private static final int SYMBOLS = 1 << 3;
+
+    // Upper bound on cached alphabets so arbitrary excluded-character strings cannot grow the cache forever
+    private static final int MAX_CACHED_ALPHABETS = 256;
+
+    // One map per combination of character classes, keyed by the excluded characters, so lookups allocate nothing
+    private static final List<ConcurrentMap<String, CompiledAlphabet>> cache = new ArrayList<>(SYMBOLS << 1);
+    private static final AtomicInteger cachedCount = new AtomicInteger();
+
+    static {
+        for (int i = 0; i < SYMBOLS << 1; i++) {
+            cache.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    private final char[] chars;
+
+    private CompiledAlphabet(char[] chars) {
+        this.chars = chars;
+    }
+
+    /**
+     * Gets the compiled alphabet for the given character classes, minus the excluded characters.
+     * @param includeUppercase Whether uppercase letters are included
+     * @param includeLowercase Whether lowercase letters are included
+     * @param includeNumbers Whether digits are included
+     * @param includeSymbols Whether symbols are included
+     * @param excludedChars Characters to remove from the alphabet, may be null
+     * @return The cached alphabet
+     */
+    public static CompiledAlphabet of(boolean includeUppercase, boolean includeLowercase,
+                                      boolean includeNumbers, boolean includeSymbols, String excludedChars) {
+        int classes = (includeUppercase ? UPPERCASE : 0)
+                | (includeLowercase ? LOWERCASE : 0)
+                | (includeNumbers ? NUMBERS : 0)
+                | (includeSymbols ? SYMBOLS : 0);
+        String excluded = excludedChars == null ? "" : excludedChars;
+
+        ConcurrentMap<String, CompiledAlphabet> byExcluded = cache.get(classes);
+        CompiledAlphabet alphabet = byExcluded.get(excluded);
+        if (alphabet == null) {
+            alphabet = compile(classes, excluded);
+            if (cachedCount.get() < MAX_CACHED_ALPHABETS) {
+                CompiledAlphabet existing = byExcluded.putIfAbsent(excluded, alphabet);
+                if (existing != null) {
+                    alphabet = existing;
+                } else {
+                    cachedCount.incrementAndGet();
+                }
+            }
+        }
+        return alphabet;
+    }
+
+    private static CompiledAlphabet compile(int classes, String excludedChars) {
+        StringBuilder validChars = new StringBuilder();
+        if ((classes & UPPERCASE) != 0) {
+            validChars.append(UPPERCASE_CHARS);
+        }
+        if ((classes & LOWERCASE) != 0) {
+            validChars.append(LOWERCASE_CHARS);
+        }
+        if ((classes & NUMBERS) != 0) {
+            validChars.append(NUMBER_CHARS);
+        }
+        if ((classes & SYMBOLS) != 0) {
+            validChars.append(SYMBOL_CHARS);
+        }
+
+        // Remove excluded characters
+        char[] chars = new char[validChars.length()];
+        int size = 0;
+        for (int i = 0; i < validChars.length(); i++) {
+            char c = validChars.charAt(i);
+            if (excludedChars.indexOf(c) < 0) {
+                chars[size++] = c;
+            }
+        }
+
+        if (size < chars.length) {
+            char[] trimmed = new char[size];
+            System.arraycopy(chars, 0, trimmed, 0, size);
+            chars = trimmed;
+        }
+        return new CompiledAlphabet(chars);
+    }
+
+    public int size() {
+        return chars.length;
+    }
+
+    public boolean isEmpty() {
+        return chars.length == 0;
+    }
+
+    public char charAt(int index) {
+        return chars[index];
+    }
+}
@@ -2,57 +2,41 @@ package src.com.es2.designpatterns.Credential.Generator;
 
 import src.com.es2.designpatterns.Credential.SecurityCriteria;
 
-import java.security.SecureRandom;
-import java.util.Random;
-
 public class EnhancedAlgorithm implements GenerationAlgorithm {
-    @Override
-    public String generate(SecurityCriteria criteria) {
-        StringBuilder password = new StringBuilder();
-        String uppercaseChars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-        String lowercaseChars = "abcdefghijklmnopqrstuvwxyz";
-        String numberChars = "0123456789";
-        String symbolChars = "!@#$%^&*()_+-=[]{}|;:,.<>?";
+    private final RandomSource randomSource;
 
-        StringBuilder validChars = new StringBuilder();
-
-        if (criteria.isIncludeUppercase()) {
-            validChars.append(uppercaseChars);
-        }
+    public EnhancedAlgorithm() {
+        this(StripedSecureRandomSource.getInstance());
+    }
 
-        if (criteria.isIncludeLowercase()) {
-            validChars.append(lowercaseChars);
-        }
+    public EnhancedAlgorithm(RandomSource randomSource) {
+        this.randomSource = randomSource;
+    }
 
-        if (criteria.isIncludeNumbers()) {
-            validChars.append(numberChars);
-        }
+    @Override
+    public String generate(SecurityCriteria criteria) {
+        char[] password = new char[criteria.getLength()];
+        generateInto(password, 0, criteria);
+        return new String(password);
+    }
 
-        if (criteria.isIncludeSymbols()) {
-            validChars.append(symbolChars);
-        }
+    @Override
+    public int generateInto(char[] dest, int offset, SecurityCriteria criteria) {
+        int length = criteria.getLength();
+        GenerationAlgorithm.checkCapacity(dest, offset, length);
 
-        // Remove excluded characters
-        String excluded = criteria.getExcludedChars();
-        for (int i = 0; i < excluded.length(); i++) {
-            char c = excluded.charAt(i);
-            int index;
-            while ((index = validChars.indexOf(String.valueOf(c))) != -1) {
-                validChars.deleteCharAt(index);
-            }
-        }
+        // The alphabet is compiled once per criteria and cached
+        CompiledAlphabet alphabet = CompiledAlphabet.of(
+                criteria.isIncludeUppercase(), criteria.isIncludeLowercase(),
+                criteria.isIncludeNumbers(), criteria.isIncludeSymbols(),
+                criteria.getExcludedChars());
 
-        if (validChars.length() == 0) {
+        if (alphabet.isEmpty()) {
             throw new IllegalArgumentException("No valid characters available for password generation");
         }
 
         // Generate the password
-        Random random = new SecureRandom();
-        for (int i = 0; i < criteria.getLength(); i++) {
-            int randomIndex = random.nextInt(validChars.length());
-            password.append(validChars.charAt(randomIndex));
-        }
-
-        return password.toString();
+        randomSource.fill(dest, offset, length, alphabet);
+        return length;
     }
-}
\ No newline at end of file
+}
@@ -4,4 +4,28 @@ import src.com.es2.designpatterns.Credential.SecurityCriteria;
 
 public interface GenerationAlgorithm {
     String generate(SecurityCriteria criteria);
-}
\ No newline at end of file
+
+    /**
+     * Generates a password straight into a caller-supplied buffer.
+     * Algorithms that support it write without allocating; the default goes through generate().
+     * @param dest The buffer to write to
+     * @param offset The first position to write
+     * @param criteria The criteria the password must satisfy
+     * @return The number of characters written
+     * @throws IndexOutOfBoundsException If the password does not fit in the buffer
+     */
+    default int generateInto(char[] dest, int offset, SecurityCriteria criteria) {
+        String password = generate(criteria);
+        checkCapacity(dest, offset, password.length());
+        password.getChars(0, password.length(), dest, offset);
+        return password.length();
+    }
+
+    // Fails fast when a password of the given length does not fit at the offset
+    static void checkCapacity(char[] dest, int offset, int length) {
+        if (offset < 0 || length > dest.length - offset) {
+            throw new IndexOutOfBoundsException("Buffer of size " + dest.length
+                    + " cannot hold a password of length " + length + " at offset " + offset);
+        }
+    }
+}
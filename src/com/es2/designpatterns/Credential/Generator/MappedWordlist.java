@@ -0,0 +1,227 @@
+package src.com.es2.designpatterns.Credential.Generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A read-only wordlist memory-mapped from disk, so large lists stay off the heap.
+ * A companion offset index ("&lt;wordlist&gt;.idx") stores the byte range of every word and is also
+ * memory-mapped, making word selection O(1). The index is built with one sequential scan the first
+ * time a wordlist is opened. Opening an indexed list does not read the whole list: the index is
+ * rebuilt when the wordlist's size, modification time or the CRC-32 of its first 4 KB differ from
+ * the recorded ones, when the index header fails its own CRC-32, or when any offset falls outside
+ * the wordlist, so a replaced list never yields words from outside itself.
+ *
+ * Each non-empty line holds one word; when a line has several whitespace-separated fields
+ * (as in diceware lists: "11111  abacus"), the last field is the word.
+ */
+final class MappedWordlist {
+    private static final int INDEX_MAGIC = 0x57494458; // "WIDX"
+    private static final int INDEX_VERSION = 3;
+    // magic, version, wordlist size, wordlist modification time, CRC-32 of the wordlist head, word count,
+    // ascii flag, CRC-32 of the preceding header fields
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4 + 4 + 8;
+    private static final int HEADER_CHECKSUM_OFFSET = HEADER_BYTES - 8;
+    // Bytes at the start of the wordlist covered by the recorded checksum
+    private static final int HEAD_BYTES = 4096;
+    // Start and end byte offset per word
+    private static final int ENTRY_BYTES = 8;
+
+    private final ByteBuffer words;
+    private final ByteBuffer index;
+    private final int count;
+    private final boolean ascii;
+
+    private MappedWordlist(ByteBuffer words, ByteBuffer index) {
+        this.words = words;
+        this.index = index;
+        this.count = index.getInt(32);
+        this.ascii = index.getInt(36) != 0;
+    }
+
+    /**
+     * Maps a wordlist and its offset index, building the index if it is missing or stale.
+     * @param path The wordlist file
+     * @return The mapped wordlist
+     * @throws IOException If the wordlist cannot be read
+     */
+    static MappedWordlist open(Path path) throws IOException {
+        ByteBuffer words;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            words = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        long size = words.limit();
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        CRC32 crc = new CRC32();
+        ByteBuffer head = words.duplicate();
+        head.limit(Math.min(head.limit(), HEAD_BYTES));
+        crc.update(head);
+        long checksum = crc.getValue();
+        Path indexPath = Paths.get(path.toString() + ".idx");
+
+        ByteBuffer index = mapIndex(indexPath, size, lastModified, checksum);
+        if (index == null) {
+            index = buildIndex(words, size, lastModified, checksum);
+            index = writeIndex(indexPath, index);
+        }
+
+        MappedWordlist wordlist = new MappedWordlist(words, index);
+        if (wordlist.count == 0) {
+            throw new IllegalStateException("Passphrase wordlist is empty: " + path);
+        }
+        return wordlist;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Appends a word to the builder.
+     * @param wordIndex The word number, in [0, size())
+     * @param target The builder to append to
+     */
+    void appendWord(int wordIndex, StringBuilder target) {
+        int entry = HEADER_BYTES + wordIndex * ENTRY_BYTES;
+        int start = index.getInt(entry);
+        int end = index.getInt(entry + 4);
+        if (ascii) {
+            for (int i = start; i < end; i++) {
+                target.append((char) words.get(i));
+            }
+        } else {
+            byte[] bytes = new byte[end - start];
+            for (int i = start; i < end; i++) {
+                bytes[i - start] = words.get(i);
+            }
+            target.append(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    // Maps an existing index if it matches the wordlist, otherwise returns null
+    private static ByteBuffer mapIndex(Path indexPath, long size, long lastModified, long checksum) {
+        if (!Files.isRegularFile(indexPath)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.BIG_ENDIAN);
+            boolean current = index.getInt(0) == INDEX_MAGIC
+                    && index.getInt(4) == INDEX_VERSION
+                    && index.getLong(8) == size
+                    && index.getLong(16) == lastModified
+                    && index.getLong(24) == checksum
+                    && index.getInt(32) >= 0
+                    && index.getLong(HEADER_CHECKSUM_OFFSET) == headerChecksum(index)
+                    && channel.size() == HEADER_BYTES + (long) index.getInt(32) * ENTRY_BYTES;
+            return current && offsetsInBounds(index, size) ? index : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Whether every word range is ordered and lies inside the wordlist
+    private static boolean offsetsInBounds(ByteBuffer index, long size) {
+        int count = index.getInt(32);
+        long previousEnd = 0;
+        for (int i = 0; i < count; i++) {
+            int entry = HEADER_BYTES + i * ENTRY_BYTES;
+            int start = index.getInt(entry);
+            int end = index.getInt(entry + 4);
+            if (start < previousEnd || end <= start || end > size) {
+                return false;
+            }
+            previousEnd = end;
+        }
+        return true;
+    }
+
+    // Scans the wordlist once and records the byte range of every word
+    private static ByteBuffer buildIndex(ByteBuffer words, long size, long lastModified, long checksum) {
+        int[] offsets = new int[1024];
+        int count = 0;
+        boolean ascii = true;
+
+        int limit = words.limit();
+        int lineStart = 0;
+        for (int position = 0; position <= limit; position++) {
+            if (position < limit && words.get(position) != '\n') {
+                if (words.get(position) < 0) {
+                    ascii = false;
+                }
+                continue;
+            }
+
+            // Trim the line and keep its last whitespace-separated field
+            int end = position;
+            while (end > lineStart && isWhitespace(words.get(end - 1))) {
+                end--;
+            }
+            int start = end;
+            while (start > lineStart && !isWhitespace(words.get(start - 1))) {
+                start--;
+            }
+            if (end > start) {
+                if (count * 2 + 2 > offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[count * 2] = start;
+                offsets[count * 2 + 1] = end;
+                count++;
+            }
+            lineStart = position + 1;
+        }
+
+        ByteBuffer index = ByteBuffer.allocateDirect(HEADER_BYTES + count * ENTRY_BYTES);
+        index.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(size).putLong(lastModified).putLong(checksum)
+             .putInt(count).putInt(ascii ? 1 : 0);
+        index.putLong(headerChecksum(index));
+        for (int i = 0; i < count * 2; i++) {
+            index.putInt(offsets[i]);
+        }
+        index.flip();
+        return index;
+    }
+
+    // Persists a freshly built index and maps it; keeps the off-heap copy if the directory is not writable
+    private static ByteBuffer writeIndex(Path indexPath, ByteBuffer index) {
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (index.hasRemaining()) {
+                channel.write(index);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            Logger.getLogger(MappedWordlist.class.getName())
+                    .log(Level.WARNING, "Could not write wordlist index {0}. Keeping it in memory.", indexPath);
+            index.rewind();
+            return index;
+        }
+    }
+
+    private static long headerChecksum(ByteBuffer index) {
+        ByteBuffer header = index.duplicate();
+        header.position(0).limit(HEADER_CHECKSUM_OFFSET);
+        CRC32 crc = new CRC32();
+        crc.update(header);
+        return crc.getValue();
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+}
@@ -0,0 +1,158 @@
+package src.com.es2.designpatterns.Credential.Generator;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.SecurityCriteria;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Diceware-style passphrase generation: picks criteria.getWordCount() words uniformly from a
+ * memory-mapped wordlist and joins them with criteria.getSeparator(). The criteria length is not used.
+ *
+ * The wordlist is opened on first use, from the given path or else from the "passphraseWordlist"
+ * configuration key. When neither is set, a built-in list of 7776 pronounceable words (as many as a
+ * diceware list, about 12.9 bits per word) is used; it is written once as "wordlist.txt" under the
+ * "dataDirectory" configuration key (default "data"), next to the other files the application keeps.
+ */
+public class PassphraseAlgorithm implements GenerationAlgorithm {
+    private static final Logger LOGGER = Logger.getLogger(PassphraseAlgorithm.class.getName());
+
+    // Built-in words are two consonant-vowel syllables and a final consonant: 36 * 36 * 6 = 7776 words
+    private static final String SYLLABLE_CONSONANTS = "bdfgkmprt";
+    private static final String SYLLABLE_VOWELS = "aeio";
+    private static final String FINAL_CONSONANTS = "lnrstx";
+    private static final int BUILT_IN_WORD_COUNT = 7776;
+    private static final String BUILT_IN_WORDLIST = "wordlist.txt";
+
+    private final Path wordlistPath;
+    private final RandomSource randomSource;
+    private volatile MappedWordlist wordlist;
+
+    public PassphraseAlgorithm() {
+        this(null, StripedSecureRandomSource.getInstance());
+    }
+
+    public PassphraseAlgorithm(RandomSource randomSource) {
+        this(null, randomSource);
+    }
+
+    /**
+     * @param wordlistPath The wordlist file, or null to read it from the configuration on first use
+     * @param randomSource The source used to pick words
+     */
+    public PassphraseAlgorithm(Path wordlistPath, RandomSource randomSource) {
+        this.wordlistPath = wordlistPath;
+        this.randomSource = randomSource;
+    }
+
+    @Override
+    public String generate(SecurityCriteria criteria) {
+        int wordCount = criteria.getWordCount();
+        if (wordCount <= 0) {
+            throw new IllegalArgumentException("Passphrase word count must be positive: " + wordCount);
+        }
+
+        MappedWordlist words = wordlist();
+        String separator = criteria.getSeparator();
+        StringBuilder passphrase = new StringBuilder(wordCount * (8 + separator.length()));
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                passphrase.append(separator);
+            }
+            words.appendWord(randomSource.nextIndex(words.size()), passphrase);
+        }
+        return passphrase.toString();
+    }
+
+    private MappedWordlist wordlist() {
+        MappedWordlist current = wordlist;
+        if (current == null) {
+            synchronized (this) {
+                current = wordlist;
+                if (current == null) {
+                    current = openWordlist();
+                    wordlist = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private MappedWordlist openWordlist() {
+        Path path = wordlistPath;
+        if (path == null) {
+            ConfigurationManager config = ConfigurationManager.getInstance();
+            String configured = config.getConfiguration("passphraseWordlist");
+            if (configured != null) {
+                path = Paths.get(configured);
+            } else {
+                path = Paths.get(config.getConfiguration("dataDirectory", "data"), BUILT_IN_WORDLIST);
+                if (!Files.exists(path)) {
+                    path = writeBuiltInWordlist(path);
+                }
+            }
+        }
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalStateException("Passphrase wordlist not found: " + path.toAbsolutePath());
+        }
+        try {
+            return MappedWordlist.open(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map passphrase wordlist " + path, e);
+        }
+    }
+
+    // Writes the built-in wordlist to the path, or to a temporary file when that location is not writable
+    private static Path writeBuiltInWordlist(Path path) {
+        StringBuilder words = new StringBuilder(BUILT_IN_WORD_COUNT * 6);
+        int syllables = SYLLABLE_CONSONANTS.length() * SYLLABLE_VOWELS.length();
+        for (int first = 0; first < syllables; first++) {
+            for (int second = 0; second < syllables; second++) {
+                for (int last = 0; last < FINAL_CONSONANTS.length(); last++) {
+                    appendSyllable(first, words);
+                    appendSyllable(second, words);
+                    words.append(FINAL_CONSONANTS.charAt(last)).append('\n');
+                }
+            }
+        }
+        byte[] bytes = words.toString().getBytes(StandardCharsets.US_ASCII);
+
+        try {
+            Path absolute = path.toAbsolutePath();
+            if (absolute.getParent() != null) {
+                Files.createDirectories(absolute.getParent());
+            }
+            // Write next to the target and move it in, so a concurrent reader never maps a partial list
+            Path temporary = Files.createTempFile(absolute.getParent(), "wordlist", ".tmp");
+            Files.write(temporary, bytes);
+            Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.log(Level.INFO, "No passphrase wordlist configured; wrote the built-in list of {1} words to {0}",
+                    new Object[]{absolute, BUILT_IN_WORD_COUNT});
+            return absolute;
+        } catch (IOException e) {
+            try {
+                Path temporary = Files.createTempFile("wordlist", ".txt");
+                temporary.toFile().deleteOnExit();
+                Files.write(temporary, bytes);
+                LOGGER.log(Level.WARNING, "Could not write passphrase wordlist {0}; using the built-in list from {1}",
+                        new Object[]{path, temporary});
+                return temporary;
+            } catch (IOException fallback) {
+                throw new UncheckedIOException("Could not write the built-in passphrase wordlist", fallback);
+            }
+        }
+    }
+
+    private static void appendSyllable(int syllable, StringBuilder target) {
+        target.append(SYLLABLE_CONSONANTS.charAt(syllable / SYLLABLE_VOWELS.length()))
+              .append(SYLLABLE_VOWELS.charAt(syllable % SYLLABLE_VOWELS.length()));
+    }
+}
@@ -3,32 +3,67 @@ package src.com.es2.designpatterns.Credential.Generator;
 
 import src.com.es2.designpatterns.Credential.SecurityCriteria;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
+/**
+ * Dispatches generation to the algorithm named by the criteria.
+ * Algorithms are kept in a copy-on-write array indexed by AlgorithmRegistry handle: lookups are a
+ * volatile read and an array load, and registerAlgorithm publishes a new array, so algorithms can be
+ * registered or replaced while other threads are generating.
+ */
 public class PasswordGenerator {
-    private Map<String, GenerationAlgorithm> algorithms;
+    private volatile GenerationAlgorithm[] algorithms = new GenerationAlgorithm[0];
 
     public PasswordGenerator() {
-        algorithms = new HashMap<>();
+        this(StripedSecureRandomSource.getInstance());
+    }
+
+    // Registers the default algorithms, all drawing from the given random source
+    public PasswordGenerator(RandomSource randomSource) {
         // Register default algorithms
-        algorithms.put("standard", new StandardAlgorithm());
-        algorithms.put("enhanced", new EnhancedAlgorithm());
-        algorithms.put("pin", new PinAlgorithm());
+        registerAlgorithm("standard", new StandardAlgorithm(randomSource));
+        registerAlgorithm("enhanced", new EnhancedAlgorithm(randomSource));
+        registerAlgorithm("pin", new PinAlgorithm(randomSource));
+        registerAlgorithm("passphrase", new PassphraseAlgorithm(randomSource));
+        registerAlgorithm("policy", new PolicyAlgorithm(randomSource));
     }
 
     public String generatePassword(SecurityCriteria criteria) {
-        String algorithmName = criteria.getAlgorithm();
-        GenerationAlgorithm algorithm = algorithms.get(algorithmName);
+        return resolveAlgorithm(criteria).generate(criteria);
+    }
+
+    /**
+     * Generates a password into a caller-supplied buffer, without allocating for the built-in algorithms.
+     * @param dest The buffer to write to
+     * @param offset The first position to write
+     * @param criteria The criteria the password must satisfy
+     * @return The number of characters written
+     */
+    public int generatePasswordInto(char[] dest, int offset, SecurityCriteria criteria) {
+        return resolveAlgorithm(criteria).generateInto(dest, offset, criteria);
+    }
+
+    private GenerationAlgorithm resolveAlgorithm(SecurityCriteria criteria) {
+        int handle = criteria.getAlgorithmHandle();
+        if (handle == AlgorithmRegistry.UNRESOLVED) {
+            // The name may have been registered after the criteria were built
+            handle = AlgorithmRegistry.lookup(criteria.getAlgorithm());
+        }
+        GenerationAlgorithm[] current = algorithms;
+        GenerationAlgorithm algorithm = handle >= 0 && handle < current.length ? current[handle] : null;
 
         if (algorithm == null) {
-            throw new IllegalArgumentException("Unknown algorithm: " + algorithmName);
+            throw new IllegalArgumentException("Unknown algorithm: " + criteria.getAlgorithm());
         }
 
-        return algorithm.generate(criteria);
+        return algorithm;
     }
 
-    public void registerAlgorithm(String name, GenerationAlgorithm algorithm) {
-        algorithms.put(name, algorithm);
+    // Registers or replaces an algorithm; safe to call while other threads are generating
+    public synchronized void registerAlgorithm(String name, GenerationAlgorithm algorithm) {
+        int handle = AlgorithmRegistry.register(name);
+        GenerationAlgorithm[] updated = Arrays.copyOf(algorithms, Math.max(algorithms.length, handle + 1));
+        updated[handle] = algorithm;
+        algorithms = updated;
     }
 }
\ No newline at end of file
@@ -2,17 +2,34 @@ package src.com.es2.designpatterns.Credential.Generator;
 
 import src.com.es2.designpatterns.Credential.SecurityCriteria;
 
-import java.security.SecureRandom;
-import java.util.Random;
-
 public class PinAlgorithm implements GenerationAlgorithm {
+    // Each PIN digit is drawn from 0 to PIN_DIGIT_RANGE - 1
+    private static final int PIN_DIGIT_RANGE = 6;
+
+    private final RandomSource randomSource;
+
+    public PinAlgorithm() {
+        this(StripedSecureRandomSource.getInstance());
+    }
+
+    public PinAlgorithm(RandomSource randomSource) {
+        this.randomSource = randomSource;
+    }
+
     @Override
     public String generate(SecurityCriteria criteria) {
-        StringBuilder pin = new StringBuilder();
-            Random random = new SecureRandom();
-            for (int i = 0; i < criteria.getLength(); i++) {
-                pin.append(random.nextInt(6));
-            }
-        return pin.toString();
+        char[] pin = new char[criteria.getLength()];
+        generateInto(pin, 0, criteria);
+        return new String(pin);
+    }
+
+    @Override
+    public int generateInto(char[] dest, int offset, SecurityCriteria criteria) {
+        int length = criteria.getLength();
+        GenerationAlgorithm.checkCapacity(dest, offset, length);
+        for (int i = offset; i < offset + length; i++) {
+            dest[i] = (char) ('0' + randomSource.nextIndex(PIN_DIGIT_RANGE));
+        }
+        return length;
     }
-}
\ No newline at end of file
+}
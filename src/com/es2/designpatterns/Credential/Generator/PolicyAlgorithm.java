@@ -0,0 +1,81 @@
+package src.com.es2.designpatterns.Credential.Generator;
+
+import src.com.es2.designpatterns.Credential.SecurityCriteria;
+
+/**
+ * Policy-aware generation that guarantees at least one character from every included class.
+ * One slot per required class is filled from that class, the remaining slots are filled from the
+ * union of all classes, and a Fisher-Yates shuffle spreads the required characters over the password.
+ * This is a single pass with a fixed number of random draws, so callers never need to generate,
+ * check and retry.
+ */
+public class PolicyAlgorithm implements GenerationAlgorithm {
+    private final RandomSource randomSource;
+
+    public PolicyAlgorithm() {
+        this(StripedSecureRandomSource.getInstance());
+    }
+
+    public PolicyAlgorithm(RandomSource randomSource) {
+        this.randomSource = randomSource;
+    }
+
+    @Override
+    public String generate(SecurityCriteria criteria) {
+        char[] password = new char[criteria.getLength()];
+        generateInto(password, 0, criteria);
+        return new String(password);
+    }
+
+    @Override
+    public int generateInto(char[] dest, int offset, SecurityCriteria criteria) {
+        int length = criteria.getLength();
+        GenerationAlgorithm.checkCapacity(dest, offset, length);
+
+        String excluded = criteria.getExcludedChars();
+        boolean upper = criteria.isIncludeUppercase();
+        boolean lower = criteria.isIncludeLowercase();
+        boolean numbers = criteria.isIncludeNumbers();
+        boolean symbols = criteria.isIncludeSymbols();
+
+        int requiredClasses = (upper ? 1 : 0) + (lower ? 1 : 0) + (numbers ? 1 : 0) + (symbols ? 1 : 0);
+        if (length < requiredClasses) {
+            throw new IllegalArgumentException("Password length " + length
+                    + " is too short to include " + requiredClasses + " required character classes");
+        }
+
+        CompiledAlphabet union = CompiledAlphabet.of(upper, lower, numbers, symbols, excluded);
+        if (union.isEmpty()) {
+            throw new IllegalArgumentException("No valid characters available for password generation");
+        }
+
+        // One slot per required class
+        int position = offset;
+        if (upper) {
+            dest[position++] = pick(CompiledAlphabet.of(true, false, false, false, excluded), "uppercase");
+        }
+        if (lower) {
+            dest[position++] = pick(CompiledAlphabet.of(false, true, false, false, excluded), "lowercase");
+        }
+        if (numbers) {
+            dest[position++] = pick(CompiledAlphabet.of(false, false, true, false, excluded), "number");
+        }
+        if (symbols) {
+            dest[position++] = pick(CompiledAlphabet.of(false, false, false, true, excluded), "symbol");
+        }
+
+        // Remaining slots from the union
+        randomSource.fill(dest, position, offset + length - position, union);
+
+        // Unbiased Fisher-Yates shuffle so the required characters can land anywhere
+        randomSource.shuffle(dest, offset, length);
+        return length;
+    }
+
+    private char pick(CompiledAlphabet alphabet, String className) {
+        if (alphabet.isEmpty()) {
+            throw new IllegalArgumentException("Every " + className + " character is excluded, but the class is required");
+        }
+        return alphabet.charAt(randomSource.nextIndex(alphabet.size()));
+    }
+}
@@ -0,0 +1,38 @@
+package src.com.es2.designpatterns.Credential.Generator;
+
+/**
+ * Source of uniformly distributed random indices used by the generation algorithms.
+ * Implementations must be thread-safe and free of modulo bias.
+ */
+public interface RandomSource {
+    /**
+     * Returns a uniformly distributed index in [0, bound).
+     * @param bound The exclusive upper bound, must be positive
+     * @return A random index
+     */
+    int nextIndex(int bound);
+
+    /**
+     * Fills part of a buffer with characters drawn uniformly from the alphabet.
+     * @param dest The buffer to write to
+     * @param offset The first position to write
+     * @param length The number of characters to write
+     * @param alphabet The alphabet to draw from, must not be empty
+     */
+    void fill(char[] dest, int offset, int length, CompiledAlphabet alphabet);
+
+    /**
+     * Shuffles part of a buffer in place with an unbiased Fisher-Yates pass.
+     * @param chars The buffer to shuffle
+     * @param offset The first position of the range
+     * @param length The number of characters in the range
+     */
+    default void shuffle(char[] chars, int offset, int length) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = nextIndex(i + 1);
+            char swap = chars[offset + i];
+            chars[offset + i] = chars[offset + j];
+            chars[offset + j] = swap;
+        }
+    }
+}
@@ -2,48 +2,40 @@ package src.com.es2.designpatterns.Credential.Generator;
 
 import src.com.es2.designpatterns.Credential.SecurityCriteria;
 
-import java.security.SecureRandom;
-import java.util.Random;
-
 public class StandardAlgorithm implements GenerationAlgorithm {
-    @Override
-    public String generate(SecurityCriteria criteria) {
-        StringBuilder password = new StringBuilder();
-        String uppercaseChars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-        String lowercaseChars = "abcdefghijklmnopqrstuvwxyz";
+    private final RandomSource randomSource;
 
+    public StandardAlgorithm() {
+        this(StripedSecureRandomSource.getInstance());
+    }
 
-        StringBuilder validChars = new StringBuilder();
+    public StandardAlgorithm(RandomSource randomSource) {
+        this.randomSource = randomSource;
+    }
 
-        if (criteria.isIncludeUppercase()) {
-            validChars.append(uppercaseChars);
-        }
+    @Override
+    public String generate(SecurityCriteria criteria) {
+        char[] password = new char[criteria.getLength()];
+        generateInto(password, 0, criteria);
+        return new String(password);
+    }
 
-        if (criteria.isIncludeLowercase()) {
-            validChars.append(lowercaseChars);
-        }
+    @Override
+    public int generateInto(char[] dest, int offset, SecurityCriteria criteria) {
+        int length = criteria.getLength();
+        GenerationAlgorithm.checkCapacity(dest, offset, length);
 
-        // Remove excluded characters
-        String excluded = criteria.getExcludedChars();
-        for (int i = 0; i < excluded.length(); i++) {
-            char c = excluded.charAt(i);
-            int index;
-            while ((index = validChars.indexOf(String.valueOf(c))) != -1) {
-                validChars.deleteCharAt(index);
-            }
-        }
+        // Letters only; the alphabet is compiled once per criteria and cached
+        CompiledAlphabet alphabet = CompiledAlphabet.of(
+                criteria.isIncludeUppercase(), criteria.isIncludeLowercase(), false, false,
+                criteria.getExcludedChars());
 
-        if (validChars.length() == 0) {
+        if (alphabet.isEmpty()) {
             throw new IllegalArgumentException("No valid characters available for password generation");
         }
 
         // Generate the password
-        Random random = new SecureRandom();
-        for (int i = 0; i < criteria.getLength(); i++) {
-            int randomIndex = random.nextInt(validChars.length());
-            password.append(validChars.charAt(randomIndex));
-        }
-
-        return password.toString();
+        randomSource.fill(dest, offset, length, alphabet);
+        return length;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,169 @@
+package src.com.es2.designpatterns.Credential.Generator;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Thread-safe random source backed by a fixed set of SecureRandom stripes.
+ * Each stripe keeps a buffer of random bytes that is refilled in bulk, and callers are spread
+ * across stripes by thread id so concurrent generators rarely contend on the same lock.
+ * Bytes are mapped onto indices with rejection sampling, so every index is equally likely.
+ *
+ * The SecureRandom algorithm and provider are read from the "randomAlgorithm" and
+ * "randomProvider" configuration keys; the platform default is used when they are not set.
+ */
+public class StripedSecureRandomSource implements RandomSource {
+    // Single shared instance
+    private static StripedSecureRandomSource instance;
+
+    // Random bytes fetched from a SecureRandom per refill
+    private static final int BUFFER_SIZE = 512;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    /**
+     * Creates a random source with two stripes per available processor, rounded up to a power of two.
+     * @param algorithm The SecureRandom algorithm (e.g. "DRBG", "NativePRNGNonBlocking"), or null for the default
+     * @param provider The security provider, or null for any provider
+     */
+    public StripedSecureRandomSource(String algorithm, String provider) {
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        this.stripes = new Stripe[stripeCount];
+        this.stripeMask = stripeCount - 1;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(createSecureRandom(algorithm, provider));
+        }
+    }
+
+    /**
+     * Gets the shared random source, configured from the ConfigurationManager on first use.
+     * @return The shared instance
+     */
+    public static synchronized StripedSecureRandomSource getInstance() {
+        if (instance == null) {
+            ConfigurationManager config = ConfigurationManager.getInstance();
+            instance = new StripedSecureRandomSource(
+                    config.getConfiguration("randomAlgorithm"),
+                    config.getConfiguration("randomProvider"));
+        }
+        return instance;
+    }
+
+    @Override
+    public int nextIndex(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive: " + bound);
+        }
+        Stripe stripe = currentStripe();
+        synchronized (stripe) {
+            return stripe.nextIndex(bound);
+        }
+    }
+
+    /**
+     * Returns 64 uniformly distributed random bits from the calling thread's stripe.
+     * @return A random long
+     */
+    public long nextLong() {
+        Stripe stripe = currentStripe();
+        synchronized (stripe) {
+            return (stripe.nextUnsignedInt() << 32) | stripe.nextUnsignedInt();
+        }
+    }
+
+    @Override
+    public void fill(char[] dest, int offset, int length, CompiledAlphabet alphabet) {
+        int bound = alphabet.size();
+        if (bound == 0) {
+            throw new IllegalArgumentException("No valid characters available for password generation");
+        }
+        Stripe stripe = currentStripe();
+        synchronized (stripe) {
+            for (int i = offset; i < offset + length; i++) {
+                dest[i] = alphabet.charAt(stripe.nextIndex(bound));
+            }
+        }
+    }
+
+    @Override
+    public void shuffle(char[] chars, int offset, int length) {
+        Stripe stripe = currentStripe();
+        synchronized (stripe) {
+            for (int i = length - 1; i > 0; i--) {
+                int j = stripe.nextIndex(i + 1);
+                char swap = chars[offset + i];
+                chars[offset + i] = chars[offset + j];
+                chars[offset + j] = swap;
+            }
+        }
+    }
+
+    private Stripe currentStripe() {
+        // Fibonacci hashing spreads sequential thread ids across the stripes
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (hash >>> 32) & stripeMask];
+    }
+
+    private static SecureRandom createSecureRandom(String algorithm, String provider) {
+        if (algorithm == null || algorithm.isEmpty()) {
+            return new SecureRandom();
+        }
+        try {
+            return provider == null || provider.isEmpty()
+                    ? SecureRandom.getInstance(algorithm)
+                    : SecureRandom.getInstance(algorithm, provider);
+        } catch (GeneralSecurityException e) {
+            Logger.getLogger(StripedSecureRandomSource.class.getName())
+                    .log(Level.WARNING, "SecureRandom algorithm {0} is not available. Using the platform default.", algorithm);
+            return new SecureRandom();
+        }
+    }
+
+    // One SecureRandom with its byte buffer; all access is guarded by the stripe's monitor
+    private static final class Stripe {
+        private final SecureRandom random;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position = BUFFER_SIZE;
+
+        Stripe(SecureRandom random) {
+            this.random = random;
+        }
+
+        int nextIndex(int bound) {
+            if (bound <= 256) {
+                // Rejection sampling on single bytes: discard the top values that would bias the modulo
+                int limit = 256 - (256 % bound);
+                int value;
+                do {
+                    value = nextByte();
+                } while (value >= limit);
+                return value % bound;
+            }
+
+            // Multiply-shift with rejection for larger bounds
+            long threshold = (0x100000000L - bound) % bound;
+            long product;
+            do {
+                product = nextUnsignedInt() * bound;
+            } while ((product & 0xFFFFFFFFL) < threshold);
+            return (int) (product >>> 32);
+        }
+
+        private int nextByte() {
+            if (position == BUFFER_SIZE) {
+                random.nextBytes(buffer);
+                position = 0;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        long nextUnsignedInt() {
+            return ((long) nextByte() << 24) | (nextByte() << 16) | (nextByte() << 8) | nextByte();
+        }
+    }
+}
@@ -1,85 +1,137 @@
 package src.com.es2.designpatterns.Credential;
 
 import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Generator.AlgorithmRegistry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  *  Implements Builder pattern to ease up construction of the security criteria for password creation to be used for the factory pattern
  *
- *
+ *  Criteria are immutable values: equal settings produce equal criteria, and intern() returns a shared canonical instance.
  */
 
-public class SecurityCriteria {
-    public SecurityCriteria Builder;
-    private int length;
-    private boolean includeUppercase;
-    private boolean includeLowercase;
-    private boolean includeNumbers;
-    private boolean includeSymbols;
-    private String excludedChars;
-    private String algorithm;
+public final class SecurityCriteria {
+    // Canonical instances returned by intern()
+    private static final ConcurrentMap<SecurityCriteria, SecurityCriteria> interned = new ConcurrentHashMap<>();
+
+    private final int length;
+    private final boolean includeUppercase;
+    private final boolean includeLowercase;
+    private final boolean includeNumbers;
+    private final boolean includeSymbols;
+    private final String excludedChars;
+    private final String algorithm;
+    // Looked up once on build() so the generator can dispatch without a map lookup; UNRESOLVED if not registered yet
+    private final int algorithmHandle;
+    // Passphrase options, only used by the "passphrase" algorithm
+    private final int wordCount;
+    private final String separator;
+    private final int hash;
 
 
 
     public static class Builder { //https://refactoring.guru/design-patterns/builder/java/example
-        private SecurityCriteria criteria;
+        private int length;
+        private boolean includeUppercase;
+        private boolean includeLowercase;
+        private boolean includeNumbers;
+        private boolean includeSymbols;
+        private String excludedChars;
+        private String algorithm;
+        private int wordCount;
+        private String separator;
 
         public Builder() {
             ConfigurationManager config = ConfigurationManager.getInstance();
-            criteria = new SecurityCriteria();
             // Set defaults
-            criteria.length = config.getConfiguration("maxPasswordLength");
-            criteria.includeUppercase = true;
-            criteria.includeLowercase = true;
-            criteria.includeNumbers = true;
-            criteria.includeSymbols = true;
-            criteria.excludedChars = "";
-            criteria.algorithm = "standard" ;
+            length = config.getConfiguration("maxPasswordLength");
+            includeUppercase = true;
+            includeLowercase = true;
+            includeNumbers = true;
+            includeSymbols = true;
+            excludedChars = "";
+            algorithm = "standard" ;
+            wordCount = 6;
+            separator = "-";
         }
 
         public Builder length(int length) {
-            criteria.length = length;
+            this.length = length;
             return this;
         }
 
         public Builder includeUppercase(boolean includeUppercase) {
-            criteria.includeUppercase = includeUppercase;
+            this.includeUppercase = includeUppercase;
             return this;
         }
 
         public Builder includeLowercase(boolean includeLowercase) {
-            criteria.includeLowercase = includeLowercase;
+            this.includeLowercase = includeLowercase;
             return this;
         }
 
         public Builder includeNumbers(boolean includeNumbers) {
-            criteria.includeNumbers = includeNumbers;
+            this.includeNumbers = includeNumbers;
             return this;
         }
 
         public Builder includeSymbols(boolean includeSymbols) {
-            criteria.includeSymbols = includeSymbols;
+            this.includeSymbols = includeSymbols;
             return this;
         }
 
         public Builder excludedChars(String excludedChars) {
-            criteria.excludedChars = excludedChars;
+            this.excludedChars = excludedChars != null ? excludedChars : "";
             return this;
         }
 
         public Builder algorithm(String algorithm) {
-            criteria.algorithm = algorithm;
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        public Builder wordCount(int wordCount) {
+            this.wordCount = wordCount;
+            return this;
+        }
+
+        public Builder separator(String separator) {
+            this.separator = separator != null ? separator : "";
             return this;
         }
 
         public SecurityCriteria build() {
-            return criteria;
+            return new SecurityCriteria(this);
         }
 
     }
 
 
     // Private constructor - use builder instead
-    public SecurityCriteria() {}
+    private SecurityCriteria(Builder builder) {
+        this.length = builder.length;
+        this.includeUppercase = builder.includeUppercase;
+        this.includeLowercase = builder.includeLowercase;
+        this.includeNumbers = builder.includeNumbers;
+        this.includeSymbols = builder.includeSymbols;
+        this.excludedChars = builder.excludedChars;
+        this.algorithm = builder.algorithm;
+        this.algorithmHandle = AlgorithmRegistry.lookup(builder.algorithm);
+        this.wordCount = builder.wordCount;
+        this.separator = builder.separator;
+        this.hash = computeHash();
+    }
+
+    /**
+     * Gets the canonical instance for these settings, so repeated criteria share a single object.
+     * @return The interned criteria
+     */
+    public SecurityCriteria intern() {
+        SecurityCriteria existing = interned.putIfAbsent(this, this);
+        return existing != null ? existing : this;
+    }
 
     public int getLength() {
         return length;
@@ -108,4 +160,70 @@ public class SecurityCriteria {
     public String getAlgorithm() {
         return algorithm;
     }
-}
\ No newline at end of file
+
+    public int getAlgorithmHandle() {
+        return algorithmHandle;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    public String getSeparator() {
+        return separator;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SecurityCriteria)) {
+            return false;
+        }
+        SecurityCriteria other = (SecurityCriteria) o;
+        return hash == other.hash
+                && length == other.length
+                && includeUppercase == other.includeUppercase
+                && includeLowercase == other.includeLowercase
+                && includeNumbers == other.includeNumbers
+                && includeSymbols == other.includeSymbols
+                && wordCount == other.wordCount
+                && excludedChars.equals(other.excludedChars)
+                && separator.equals(other.separator)
+                && (algorithm == null ? other.algorithm == null : algorithm.equals(other.algorithm));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private int computeHash() {
+        int result = length;
+        result = 31 * result + (includeUppercase ? 1 : 0);
+        result = 31 * result + (includeLowercase ? 1 : 0);
+        result = 31 * result + (includeNumbers ? 1 : 0);
+        result = 31 * result + (includeSymbols ? 1 : 0);
+        result = 31 * result + excludedChars.hashCode();
+        result = 31 * result + (algorithm != null ? algorithm.hashCode() : 0);
+        result = 31 * result + wordCount;
+        result = 31 * result + separator.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SecurityCriteria{" +
+                "length=" + length +
+                ", uppercase=" + includeUppercase +
+                ", lowercase=" + includeLowercase +
+                ", numbers=" + includeNumbers +
+                ", symbols=" + includeSymbols +
+                ", excludedChars='" + excludedChars + '\'' +
+                ", algorithm='" + algorithm + '\'' +
+                ", wordCount=" + wordCount +
+                ", separator='" + separator + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,313 @@
+package src.com.es2.designpatterns.Credential.Uniqueness;
+
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Credential.CredentialType;
+import src.com.es2.designpatterns.Storage.StorageImplementor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Guarantees that a generated credential value has not been issued before.
+ * Issued values are tracked as the first 128 bits of their SHA-256 digests in an exact, striped digest
+ * set. Storage is only read when the guard is first built, never while claiming. A claim is decided by
+ * an atomic insert into the set, so two threads never both claim one value, and a value claimed but not
+ * yet stored is still rejected.
+ *
+ * The whole set is kept in memory: 32 to 64 bytes per issued value depending on how full the tables
+ * are, so about 320 to 640 MB for ten million API keys and secret keys. A Bloom filter in front of it
+ * would not save anything, since every claimed digest must still be inserted into the exact set.
+ *
+ * The set is persisted as a snapshot plus an append-only journal of digests claimed since the snapshot,
+ * so values issued before a restart are still known. Claims queue their digests, and whichever thread
+ * gets the journal lock writes the whole queue in one batch, so claiming threads do not wait on I/O.
+ */
+public class CredentialUniquenessGuard implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(CredentialUniquenessGuard.class.getName());
+    private static final int SNAPSHOT_MAGIC = 0x43554733; // "CUG3"
+    // Older snapshots that hold a Bloom filter; they are rebuilt from storage and their journal
+    private static final int BLOOM_ONLY_SNAPSHOT_MAGIC = 0x43554746; // "CUGF"
+    private static final int BLOOM_SNAPSHOT_MAGIC = 0x43554732; // "CUG2"
+    // The credential types the factory checks against the guard
+    private static final Set<CredentialType> GUARDED_TYPES = EnumSet.of(CredentialType.API_KEY, CredentialType.SECRET_KEY);
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final DigestSet issued;
+    private final Path snapshotFile;
+    private final Path journalFile;
+
+    // Claims share the read lock; save() takes the write lock so no claim falls between snapshot and journal
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final Queue<long[]> pendingJournal = new ConcurrentLinkedQueue<>();
+    // Guards the journal stream
+    private final ReentrantLock journalLock = new ReentrantLock();
+    private DataOutputStream journal;
+
+    // Counters
+    private final LongAdder claims = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    private CredentialUniquenessGuard(DigestSet issued, Path snapshotFile) {
+        this.issued = issued;
+        this.snapshotFile = snapshotFile;
+        this.journalFile = snapshotFile == null ? null : Paths.get(snapshotFile + ".journal");
+    }
+
+    /**
+     * Opens the guard, loading the persisted digests when there are any and otherwise building them from
+     * the API keys and secret keys the implementors already hold.
+     * @param snapshotFile Where the digests are persisted, or null to keep them in memory only
+     * @param implementors The storage implementors the guard is built from when there is no persisted snapshot
+     * @return The opened guard
+     * @throws IOException If the persisted digests cannot be read or the journal cannot be opened
+     */
+    public static CredentialUniquenessGuard open(Path snapshotFile, Collection<? extends StorageImplementor> implementors)
+            throws IOException {
+        List<StorageImplementor> sources = new ArrayList<>(implementors);
+
+        CredentialUniquenessGuard guard = snapshotFile == null ? null : readSnapshot(snapshotFile);
+        if (guard == null) {
+            guard = new CredentialUniquenessGuard(new DigestSet(), snapshotFile);
+            guard.loadFrom(sources);
+        }
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            // Also replayed over a rebuilt older snapshot: it holds values claimed but never stored
+            guard.replayJournal();
+        }
+        if (snapshotFile != null) {
+            // Fold the journal into a fresh snapshot so it starts empty
+            guard.save();
+        }
+        return guard;
+    }
+
+    // Whether credentials of this type are checked against the guard
+    public static boolean guards(CredentialType type) {
+        return GUARDED_TYPES.contains(type);
+    }
+
+    /**
+     * Records a newly generated value if it has never been issued.
+     * @param value The generated credential value
+     * @return True if the value is unique and is now recorded, false if it was already issued
+     */
+    public boolean claim(String value) {
+        claims.increment();
+        long[] digest = digest(value);
+        snapshotLock.readLock().lock();
+        try {
+            if (!issued.add(digest[0], digest[1])) {
+                duplicates.increment();
+                return false;
+            }
+            if (journalFile != null) {
+                pendingJournal.add(digest);
+            }
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        writePendingJournal();
+        return true;
+    }
+
+    /**
+     * Writes the digests to the snapshot file and empties the journal.
+     * The snapshot is written to a temporary file first, so a crash never leaves a partial snapshot.
+     * @throws IOException If the snapshot cannot be written
+     */
+    public void save() throws IOException {
+        if (snapshotFile == null) {
+            return;
+        }
+        snapshotLock.writeLock().lock();
+        journalLock.lock();
+        try {
+            // Queued digests are already in the set, so the snapshot covers them
+            pendingJournal.clear();
+            writeSnapshot();
+        } finally {
+            journalLock.unlock();
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        Path parent = snapshotFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporary = Paths.get(snapshotFile + ".tmp");
+        try (OutputStream file = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            issued.writeTo(out);
+        }
+        Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (journal != null) {
+            journal.close();
+        }
+        journal = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)));
+    }
+
+    // Saves the digests and closes the journal
+    @Override
+    public void close() throws IOException {
+        save();
+        journalLock.lock();
+        try {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    // Gets the number of values checked
+    public long getClaims() {
+        return claims.sum();
+    }
+
+    // Gets the number of values rejected as already issued
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    public long getTrackedValues() {
+        return issued.size();
+    }
+
+    // Gets the memory held by the digest tables
+    public long getTableBytes() {
+        return issued.getTableBytes();
+    }
+
+    private void loadFrom(List<StorageImplementor> sources) {
+        for (StorageImplementor implementor : sources) {
+            try {
+                implementor.forEachCredential(credential -> {
+                    if (isGuarded(credential)) {
+                        long[] digest = digest(credential.getValue());
+                        issued.add(digest[0], digest[1]);
+                    }
+                });
+            } catch (UnsupportedOperationException e) {
+                LOGGER.log(Level.WARNING, "Skipping initial load: {0}", e.getMessage());
+            }
+        }
+    }
+
+    private void replayJournal() throws IOException {
+        try (InputStream file = Files.newInputStream(journalFile);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                issued.add(in.readLong(), in.readLong());
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing was claimed since the snapshot
+        } catch (EOFException e) {
+            // End of journal; a torn final record is dropped
+        }
+    }
+
+    /*
+     * Writes every queued digest with one flush. A thread that finds the lock taken leaves its digest
+     * to the holder, which checks the queue again after unlocking, so no digest is stranded.
+     */
+    private void writePendingJournal() {
+        while (!pendingJournal.isEmpty() && journalLock.tryLock()) {
+            try {
+                long[] digest;
+                while ((digest = pendingJournal.poll()) != null) {
+                    if (journal != null) {
+                        journal.writeLong(digest[0]);
+                        journal.writeLong(digest[1]);
+                    }
+                }
+                if (journal != null) {
+                    journal.flush();
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to journal claimed credential digests", e);
+            } finally {
+                journalLock.unlock();
+            }
+        }
+    }
+
+    private static CredentialUniquenessGuard readSnapshot(Path snapshotFile) throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
+        try (InputStream file = Files.newInputStream(snapshotFile);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            int magic = in.readInt();
+            if (magic == BLOOM_ONLY_SNAPSHOT_MAGIC || magic == BLOOM_SNAPSHOT_MAGIC) {
+                LOGGER.log(Level.INFO, "Snapshot {0} is in the Bloom filter format; rebuilding it from storage", snapshotFile);
+                return null;
+            }
+            if (magic != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a credential uniqueness snapshot: " + snapshotFile);
+            }
+            return new CredentialUniquenessGuard(DigestSet.readFrom(in), snapshotFile);
+        }
+    }
+
+    private static boolean isGuarded(Credential credential) {
+        for (CredentialType type : GUARDED_TYPES) {
+            if (type.getDisplayName().equals(credential.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The two halves of the first 128 bits of the SHA-256 digest
+    private static long[] digest(String value) {
+        byte[] hash = SHA256.get().digest(value.getBytes(StandardCharsets.UTF_8));
+        long first = 0;
+        long second = 0;
+        for (int i = 0; i < 8; i++) {
+            first = (first << 8) | (hash[i] & 0xFF);
+            second = (second << 8) | (hash[i + 8] & 0xFF);
+        }
+        return new long[] {first, second};
+    }
+}
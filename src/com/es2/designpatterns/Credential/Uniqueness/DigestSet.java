@@ -0,0 +1,155 @@
+package src.com.es2.designpatterns.Credential.Uniqueness;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Exact set of 128-bit digests, split into independently locked stripes so concurrent adds of
+ * different digests rarely wait for each other. Each stripe is an open-addressing table of long
+ * pairs, about 32 bytes per digest at the maximum load factor of one half.
+ */
+final class DigestSet {
+    private static final int STRIPE_BITS = 6;
+    private static final int INITIAL_SLOTS = 64;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    DigestSet() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Adds a digest unless it is already present.
+     * @return True if the digest was added, false if it was already in the set
+     */
+    boolean add(long first, long second) {
+        Stripe stripe = stripeOf(first);
+        synchronized (stripe) {
+            return stripe.add(first, second);
+        }
+    }
+
+    boolean contains(long first, long second) {
+        Stripe stripe = stripeOf(first);
+        synchronized (stripe) {
+            return stripe.contains(first, second);
+        }
+    }
+
+    long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    // Gets the bytes held by the stripe tables
+    long getTableBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                bytes += (long) stripe.table.length * Long.BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    // Writes the digest count and then every digest; callers keep concurrent adds out while this runs
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(size());
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                if (stripe.containsZero) {
+                    out.writeLong(0);
+                    out.writeLong(0);
+                }
+                for (int slot = 0; slot < stripe.table.length; slot += 2) {
+                    if (stripe.table[slot] != 0 || stripe.table[slot + 1] != 0) {
+                        out.writeLong(stripe.table[slot]);
+                        out.writeLong(stripe.table[slot + 1]);
+                    }
+                }
+            }
+        }
+    }
+
+    static DigestSet readFrom(DataInputStream in) throws IOException {
+        DigestSet set = new DigestSet();
+        long count = in.readLong();
+        for (long i = 0; i < count; i++) {
+            set.add(in.readLong(), in.readLong());
+        }
+        return set;
+    }
+
+    // SHA-256 digests are uniform, so the top bits pick the stripe and the low bits the slot
+    private Stripe stripeOf(long first) {
+        return stripes[(int) (first >>> (Long.SIZE - STRIPE_BITS))];
+    }
+
+    private static final class Stripe {
+        // Pairs of longs; (0, 0) marks an empty slot, and the all-zero digest is tracked by a flag
+        private long[] table = new long[INITIAL_SLOTS * 2];
+        private int size;
+        private boolean containsZero;
+
+        boolean add(long first, long second) {
+            if (first == 0 && second == 0) {
+                boolean added = !containsZero;
+                containsZero = true;
+                size += added ? 1 : 0;
+                return added;
+            }
+            int slot = find(table, first, second);
+            if (table[slot] != 0 || table[slot + 1] != 0) {
+                return false;
+            }
+            table[slot] = first;
+            table[slot + 1] = second;
+            if (++size * 4 > table.length) {
+                grow();
+            }
+            return true;
+        }
+
+        boolean contains(long first, long second) {
+            if (first == 0 && second == 0) {
+                return containsZero;
+            }
+            int slot = find(table, first, second);
+            return table[slot] != 0 || table[slot + 1] != 0;
+        }
+
+        // The slot holding the digest, or the empty slot where it belongs
+        private static int find(long[] table, long first, long second) {
+            int mask = (table.length >>> 1) - 1;
+            int index = (int) first & mask;
+            while (true) {
+                int slot = index << 1;
+                if ((table[slot] == first && table[slot + 1] == second) || (table[slot] == 0 && table[slot + 1] == 0)) {
+                    return slot;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private void grow() {
+            long[] old = table;
+            long[] grown = new long[old.length * 2];
+            for (int slot = 0; slot < old.length; slot += 2) {
+                if (old[slot] != 0 || old[slot + 1] != 0) {
+                    int target = find(grown, old[slot], old[slot + 1]);
+                    grown[target] = old[slot];
+                    grown[target + 1] = old[slot + 1];
+                }
+            }
+            table = grown;
+        }
+    }
+}
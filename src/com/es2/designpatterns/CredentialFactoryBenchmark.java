@@ -0,0 +1,54 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Credential.CredentialFactory;
+import src.com.es2.designpatterns.Credential.CredentialType;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class CredentialFactoryBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+    private static final int BATCH_SIZE = 50_000;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        System.out.println("===== Benchmarking Bulk Credential Generation =====\n");
+
+        CredentialFactory factory = CredentialFactory.getInstance();
+
+        benchmarkType(factory, CredentialType.API_KEY);
+        benchmarkType(factory, CredentialType.PIN);
+        benchmarkType(factory, CredentialType.PASSWORD);
+    }
+
+    /**
+     * Measures credentials per second for one credential type at each configured thread count.
+     */
+    protected static void benchmarkType(CredentialFactory factory, CredentialType type) {
+        System.out.println("\n--- " + type + " (batch of " + BATCH_SIZE + ") ---");
+
+        for (int threads : THREAD_COUNTS) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                    factory.createCredentials(type, BATCH_SIZE, pool);
+                }
+
+                long start = System.nanoTime();
+                int created = 0;
+                for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                    List<Credential> credentials = factory.createCredentials(type, BATCH_SIZE, pool);
+                    created += credentials.size();
+                }
+                long elapsed = System.nanoTime() - start;
+
+                double perSecond = created / (elapsed / 1_000_000_000.0);
+                System.out.printf("%2d thread(s): %,.0f credentials/sec%n", threads, perSecond);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
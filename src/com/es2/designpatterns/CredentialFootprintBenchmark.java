@@ -0,0 +1,77 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Credential.CredentialType;
+import src.com.es2.designpatterns.Identity.IdGenerator;
+
+import java.util.Date;
+import java.util.HashMap;
+
+public class CredentialFootprintBenchmark {
+    private static final int CREDENTIAL_COUNT = 500_000;
+
+    public static void main(String[] args) {
+        System.out.println("===== Benchmarking Credential Heap Footprint =====\n");
+
+        // Ids and values are shared by both layouts so only the per-credential overhead is compared
+        String[] ids = new String[CREDENTIAL_COUNT];
+        String[] values = new String[CREDENTIAL_COUNT];
+        for (int i = 0; i < CREDENTIAL_COUNT; i++) {
+            ids[i] = IdGenerator.nextIdString();
+            values[i] = "value-" + i;
+        }
+
+        long before = usedHeap();
+        Object[] legacy = new Object[CREDENTIAL_COUNT];
+        for (int i = 0; i < CREDENTIAL_COUNT; i++) {
+            legacy[i] = new LegacyCredential(ids[i], new String(CredentialType.PASSWORD.getDisplayName()), values[i]);
+        }
+        long legacyBytes = usedHeap() - before;
+        legacy = null;
+
+        before = usedHeap();
+        Object[] compact = new Object[CREDENTIAL_COUNT];
+        for (int i = 0; i < CREDENTIAL_COUNT; i++) {
+            compact[i] = new Credential(ids[i], new String(CredentialType.PASSWORD.getDisplayName()), values[i]);
+        }
+        long compactBytes = usedHeap() - before;
+
+        System.out.printf("Previous layout: %,d bytes per credential%n", legacyBytes / CREDENTIAL_COUNT);
+        System.out.printf("Compact layout:  %,d bytes per credential%n", compactBytes / CREDENTIAL_COUNT);
+        System.out.println("(" + compact.length + " credentials held, names loaded as separate String copies)");
+    }
+
+    /**
+     * Measures the heap in use after asking the JVM to collect garbage a few times.
+     */
+    protected static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // The Credential layout before the compact representation: eager HashMap, Date and separate name copies
+    @SuppressWarnings("unused")
+    private static class LegacyCredential {
+        private final HashMap<Object, Object> metadata;
+        private String id;
+        private String name;
+        private String value;
+        private Date timestamp;
+
+        LegacyCredential(String id, String name, String value) {
+            this.id = id;
+            this.name = name;
+            this.value = value;
+            this.timestamp = new Date();
+            this.metadata = new HashMap<>();
+        }
+    }
+}
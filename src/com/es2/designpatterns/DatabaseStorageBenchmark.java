@@ -0,0 +1,87 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Credential.CredentialFactory;
+import src.com.es2.designpatterns.Credential.CredentialType;
+import src.com.es2.designpatterns.Storage.Implementors.DatabaseStorageImplementor;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-item versus bulk throughput of DatabaseStorageImplementor.
+ * Usage: DatabaseStorageBenchmark [jdbcUrl], e.g. jdbc:h2:./data/benchmark-db or jdbc:sqlite:data/benchmark.db,
+ * with the matching driver on the classpath.
+ */
+public class DatabaseStorageBenchmark {
+    private static final int SINGLE_ITEMS = 2_000;
+    private static final int BULK_ITEMS = 20_000;
+    private static final int BULK_BATCH = 1_000;
+
+    public static void main(String[] args) {
+        System.out.println("===== Benchmarking Database Storage =====\n");
+
+        DatabaseStorageImplementor storage = args.length > 0 ? new DatabaseStorageImplementor(args[0]) : new DatabaseStorageImplementor();
+        System.out.println("URL: " + storage.getUrl() + (storage.isInMemory() ? " (no driver found, in-memory fallback)" : ""));
+
+        List<Credential> credentials = CredentialFactory.getInstance().createCredentials(CredentialType.API_KEY, SINGLE_ITEMS + BULK_ITEMS);
+        List<Credential> single = credentials.subList(0, SINGLE_ITEMS);
+        List<Credential> bulk = credentials.subList(SINGLE_ITEMS, credentials.size());
+
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        long start = System.nanoTime();
+        for (Credential credential : single) {
+            storage.storeCredential(credential);
+        }
+        long singleStore = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int from = 0; from < bulk.size(); from += BULK_BATCH) {
+            storage.storeCredentials(bulk.subList(from, Math.min(bulk.size(), from + BULK_BATCH)));
+        }
+        long bulkStore = System.nanoTime() - start;
+        System.setOut(stdout);
+
+        start = System.nanoTime();
+        for (Credential credential : single) {
+            if (storage.retrieveCredential(credential.getId()) == null) {
+                throw new IllegalStateException("Missing credential " + credential.getId());
+            }
+        }
+        long singleRead = System.nanoTime() - start;
+
+        List<String> ids = new ArrayList<>();
+        for (Credential credential : bulk) {
+            ids.add(credential.getId());
+        }
+        start = System.nanoTime();
+        int found = 0;
+        for (int from = 0; from < ids.size(); from += BULK_BATCH) {
+            Map<String, Credential> batch = storage.retrieveCredentials(ids.subList(from, Math.min(ids.size(), from + BULK_BATCH)));
+            found += batch.size();
+        }
+        long bulkRead = System.nanoTime() - start;
+        if (found != BULK_ITEMS) {
+            throw new IllegalStateException("Bulk read found " + found + " of " + BULK_ITEMS + " credentials");
+        }
+
+        report("storeCredential", SINGLE_ITEMS, singleStore);
+        report("storeCredentials (batches of " + BULK_BATCH + ")", BULK_ITEMS, bulkStore);
+        report("retrieveCredential", SINGLE_ITEMS, singleRead);
+        report("retrieveCredentials (IN query)", BULK_ITEMS, bulkRead);
+        storage.close();
+    }
+
+    private static void report(String name, int items, long elapsedNanos) {
+        System.out.printf("%-40s %,8d items in %,6d ms  %,12.0f items/s%n", name, items, elapsedNanos / 1_000_000,
+                items / (elapsedNanos / 1e9));
+    }
+}
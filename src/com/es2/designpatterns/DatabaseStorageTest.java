@@ -0,0 +1,369 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.Implementors.DatabaseStorageImplementor;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Exercises the JDBC path of DatabaseStorageImplementor against a stub driver that keeps one table
+ * in memory and honours transactions, so the test runs without a database on the classpath.
+ */
+public class DatabaseStorageTest {
+    private static final String URL = "jdbc:h2:stub:credentials";
+    private static final int BATCH_SIZE = 2;
+
+    public static void main(String[] args) throws SQLException {
+        System.out.println("===== Testing Database Storage over JDBC =====\n");
+
+        StubDriver driver = new StubDriver();
+        DriverManager.registerDriver(driver);
+        // A real H2 driver on the classpath would otherwise take the URL
+        for (Enumeration<Driver> drivers = DriverManager.getDrivers(); drivers.hasMoreElements(); ) {
+            Driver other = drivers.nextElement();
+            if (other != driver && other.acceptsURL(URL)) {
+                DriverManager.deregisterDriver(other);
+            }
+        }
+
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        config.setConfiguration("databaseStorageBatchSize", BATCH_SIZE);
+        config.setConfiguration("databaseStoragePoolSize", 1);
+        DatabaseStorageImplementor storage = new DatabaseStorageImplementor(URL);
+        PrintStream stdout = System.out;
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        });
+
+        System.out.println("--- Single and batch writes ---");
+        check(!storage.isInMemory(), "The stub driver serves " + URL);
+        System.setOut(discard);
+        storage.storeCredential(new Credential("single", "Password", "secret"));
+        List<Credential> batch = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            batch.add(new Credential("batch-" + i, "API Key", "value-" + i));
+        }
+        storage.storeCredentials(batch);
+        System.setOut(stdout);
+        Credential single = storage.retrieveCredential("single");
+        check(single != null && "secret".equals(single.getValue()), "A single write is read back");
+        Map<String, Credential> found = storage.retrieveCredentials(Arrays.asList("batch-6", "missing", "batch-0", "batch-6"));
+        check(found.keySet().equals(new LinkedHashSet<>(Arrays.asList("batch-6", "batch-0"))),
+                "A batch read returns the stored ids in request order: " + found.keySet());
+        AtomicInteger scanned = new AtomicInteger();
+        storage.forEachCredential(credential -> scanned.incrementAndGet());
+        check(scanned.get() == 8, "A scan visits all " + scanned.get() + " credentials");
+        check(driver.commits.get() == 1, "The batch was committed as one transaction");
+
+        System.out.println("\n--- Failed batch ---");
+        // The last credential cannot be encoded, after earlier chunks were already sent
+        List<Credential> failing = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            failing.add(new Credential("partial-" + i, "API Key", "value-" + i));
+        }
+        char[] oversized = new char[70_000];
+        Arrays.fill(oversized, 'x');
+        failing.add(new Credential("oversized", "API Key", new String(oversized)));
+        boolean failed = false;
+        System.setOut(discard);
+        try {
+            storage.storeCredentials(failing);
+        } catch (RuntimeException e) {
+            failed = true;
+        }
+        System.setOut(stdout);
+        check(failed, "An unencodable credential fails the batch");
+        check(driver.rollbacks.get() == 1, "The transaction was rolled back");
+        check(storage.retrieveCredentials(Arrays.asList("partial-0", "partial-4")).isEmpty(),
+                "No credential of the failed batch was committed");
+        System.setOut(discard);
+        storage.storeCredential(new Credential("after", "Password", "secret"));
+        System.setOut(stdout);
+        check(storage.retrieveCredential("after") != null && driver.commits.get() == 1,
+                "The connection is back in autocommit mode");
+
+        System.out.println("\n--- Removal ---");
+        check(storage.removeCredential("single") && storage.retrieveCredential("single") == null, "A stored credential is removed");
+        check(!storage.removeCredential("single"), "Removing it again reports nothing removed");
+
+        storage.close();
+        DriverManager.deregisterDriver(driver);
+        config.setConfiguration("databaseStorageBatchSize", 500);
+        config.setConfiguration("databaseStoragePoolSize", 4);
+        System.out.println("\nAll database storage checks passed.");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, StubHandler handler) {
+        return (T) Proxy.newProxyInstance(DatabaseStorageTest.class.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, arguments) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.getName().equals("equals") ? proxy == arguments[0]
+                                : method.getName().equals("hashCode") ? System.identityHashCode(proxy) : type.getSimpleName() + " stub";
+                    }
+                    Object result = handler.invoke(method.getName(), arguments == null ? new Object[0] : arguments);
+                    if (result == UNSUPPORTED) {
+                        throw new SQLFeatureNotSupportedException(type.getSimpleName() + "." + method.getName());
+                    }
+                    return result;
+                });
+    }
+
+    private static final Object UNSUPPORTED = new Object();
+
+    @FunctionalInterface
+    private interface StubHandler {
+        Object invoke(String method, Object[] arguments) throws SQLException;
+    }
+
+    // One credentials table; rows are id -> {id, payload}
+    private static final class StubDriver implements Driver {
+        private final Map<String, Object[]> table = new LinkedHashMap<>();
+        private final AtomicInteger commits = new AtomicInteger();
+        private final AtomicInteger rollbacks = new AtomicInteger();
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            return acceptsURL(url) ? new StubConnection().connection : null;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return URL.equals(url);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        // Uncommitted changes stay on the connection; a null row is a pending delete
+        private final class StubConnection {
+            private final Map<String, Object[]> pending = new LinkedHashMap<>();
+            private boolean autoCommit = true;
+            private final Connection connection = stub(Connection.class, this::invoke);
+
+            private Object invoke(String method, Object[] arguments) {
+                switch (method) {
+                    case "setAutoCommit":
+                        // As in JDBC, switching autocommit back on commits the open transaction
+                        if ((Boolean) arguments[0] && !autoCommit) {
+                            commit();
+                        }
+                        autoCommit = (Boolean) arguments[0];
+                        return null;
+                    case "getAutoCommit":
+                        return autoCommit;
+                    case "commit":
+                        commit();
+                        return null;
+                    case "rollback":
+                        rollbacks.incrementAndGet();
+                        pending.clear();
+                        return null;
+                    case "prepareStatement":
+                        return prepare((String) arguments[0]);
+                    case "createStatement":
+                        return stub(Statement.class, this::statement);
+                    case "close":
+                        return null;
+                    case "isClosed":
+                        return false;
+                    case "isValid":
+                        return true;
+                    default:
+                        return UNSUPPORTED;
+                }
+            }
+
+            private void commit() {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                commits.incrementAndGet();
+                synchronized (table) {
+                    for (Map.Entry<String, Object[]> row : pending.entrySet()) {
+                        if (row.getValue() == null) {
+                            table.remove(row.getKey());
+                        } else {
+                            table.put(row.getKey(), row.getValue());
+                        }
+                    }
+                }
+                pending.clear();
+            }
+
+            private void write(String id, Object[] row) {
+                if (autoCommit) {
+                    synchronized (table) {
+                        if (row == null) {
+                            table.remove(id);
+                        } else {
+                            table.put(id, row);
+                        }
+                    }
+                } else {
+                    pending.put(id, row);
+                }
+            }
+
+            private Object[] read(String id) {
+                if (pending.containsKey(id)) {
+                    return pending.get(id);
+                }
+                synchronized (table) {
+                    return table.get(id);
+                }
+            }
+
+            private Object statement(String method, Object[] arguments) {
+                switch (method) {
+                    case "execute":
+                        return false;
+                    case "setFetchSize":
+                    case "close":
+                        return null;
+                    case "executeQuery":
+                        List<Object[]> rows;
+                        synchronized (table) {
+                            rows = new ArrayList<>(table.values());
+                        }
+                        List<Object[]> payloads = new ArrayList<>();
+                        for (Object[] row : rows) {
+                            payloads.add(new Object[] {row[1]});
+                        }
+                        return resultSet(payloads);
+                    default:
+                        return UNSUPPORTED;
+                }
+            }
+
+            private PreparedStatement prepare(String sql) {
+                Map<Integer, Object> parameters = new HashMap<>();
+                List<Object[]> batch = new ArrayList<>();
+                return stub(PreparedStatement.class, (method, arguments) -> {
+                    switch (method) {
+                        case "setString":
+                        case "setLong":
+                        case "setBytes":
+                            parameters.put((Integer) arguments[0], arguments[1]);
+                            return null;
+                        case "addBatch":
+                            batch.add(new Object[] {parameters.get(1), parameters.get(4)});
+                            return null;
+                        case "executeBatch":
+                            int[] counts = new int[batch.size()];
+                            for (Object[] row : batch) {
+                                write((String) row[0], row);
+                            }
+                            Arrays.fill(counts, 1);
+                            batch.clear();
+                            return counts;
+                        case "executeUpdate":
+                            String id = (String) parameters.get(1);
+                            if (sql.startsWith("DELETE")) {
+                                boolean present = read(id) != null;
+                                write(id, null);
+                                return present ? 1 : 0;
+                            }
+                            write(id, new Object[] {id, parameters.get(4)});
+                            return 1;
+                        case "executeQuery":
+                            return select(sql, parameters);
+                        case "close":
+                            return null;
+                        default:
+                            return UNSUPPORTED;
+                    }
+                });
+            }
+
+            private ResultSet select(String sql, Map<Integer, Object> parameters) {
+                List<Object[]> rows = new ArrayList<>();
+                if (sql.contains(" IN (")) {
+                    for (Object id : new LinkedHashSet<>(parameters.values())) {
+                        Object[] row = read((String) id);
+                        if (row != null) {
+                            rows.add(row);
+                        }
+                    }
+                } else {
+                    Object[] row = read((String) parameters.get(1));
+                    if (row != null) {
+                        rows.add(new Object[] {row[1]});
+                    }
+                }
+                return resultSet(rows);
+            }
+        }
+    }
+
+    private static ResultSet resultSet(List<Object[]> rows) {
+        int[] cursor = {-1};
+        return stub(ResultSet.class, (method, arguments) -> {
+            switch (method) {
+                case "next":
+                    return ++cursor[0] < rows.size();
+                case "getString":
+                case "getBytes":
+                    return rows.get(cursor[0])[(Integer) arguments[0] - 1];
+                case "close":
+                    return null;
+                default:
+                    return UNSUPPORTED;
+            }
+        });
+    }
+}
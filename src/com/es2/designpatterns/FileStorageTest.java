@@ -0,0 +1,262 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.Implementors.FileStorageImplementor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class FileStorageTest {
+    private static final int CREDENTIALS = 2000;
+    private static final int OVERWRITES = 3;
+    private static final int KEPT = 3000;
+    private static final int WRITER_THREADS = 16;
+    private static final int WRITES_PER_THREAD = 200;
+    private static final int READER_THREADS = 4;
+    private static final int READS_PER_THREAD = 2000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.out.println("===== Testing Log-Structured File Storage =====\n");
+
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        config.setConfiguration("fileStorageSegmentBytes", 64 * 1024);
+        config.setConfiguration("fileStorageFlushIntervalMs", 2);
+        Path directory = Files.createTempDirectory("file-storage");
+
+        System.out.println("--- Writing and overwriting ---");
+        FileStorageImplementor storage = new FileStorageImplementor(directory);
+        for (int round = 0; round <= OVERWRITES; round++) {
+            storage.storeCredentials(batch(round));
+        }
+        System.out.printf("%d segments, %,d bytes on disk%n", storage.getSegmentCount(), storage.getDiskBytes());
+        storage.close();
+
+        System.out.println("\n--- Restart after a torn write ---");
+        Path lastSegment;
+        try (Stream<Path> files = Files.list(directory)) {
+            lastSegment = files.filter(path -> path.toString().endsWith(".log")).max(Comparator.naturalOrder()).get();
+        }
+        try (OutputStream out = Files.newOutputStream(lastSegment, StandardOpenOption.APPEND)) {
+            out.write(new byte[] {0, 0, 1, 0, 42, 42}); // Header of a record that never finished
+        }
+        storage = new FileStorageImplementor(directory);
+        checkLatest(storage, OVERWRITES);
+
+        System.out.println("\n--- Compaction ---");
+        long before = storage.getDiskBytes();
+        int compacted = storage.compact();
+        long after = storage.getDiskBytes();
+        check(compacted > 0 && after < before, "Compacted " + compacted + " segments: " + before + " -> " + after + " bytes");
+        checkLatest(storage, OVERWRITES);
+        storage.close();
+        storage = new FileStorageImplementor(directory);
+        checkLatest(storage, OVERWRITES);
+
+        System.out.println("\n--- Removal ---");
+        // The record sits among live credentials, so only the newer segment with its tombstone is compacted
+        Path removalDirectory = Files.createTempDirectory("file-storage-removal");
+        FileStorageImplementor removals = new FileStorageImplementor(removalDirectory);
+        List<Credential> kept = new ArrayList<>();
+        for (int i = 0; i < KEPT; i++) {
+            kept.add(new Credential(i == KEPT / 2 ? "removable" : "kept-" + i, "Password", "secret"));
+        }
+        removals.storeCredentials(kept);
+        removals.storeCredentials(churn(0));
+        check(removals.removeCredential("removable") && removals.retrieveCredential("removable") == null, "A credential is removed");
+        check(!removals.removeCredential("removable"), "Removing it again reports nothing removed");
+        removals.storeCredentials(churn(1));
+        removals.storeCredentials(churn(2));
+        removals.close();
+        removals = new FileStorageImplementor(removalDirectory);
+        check(removals.retrieveCredential("removable") == null, "The removal survives a restart");
+        check(removals.compact() > 0, "Compacted the overwritten segments, including the tombstone's");
+        removals.close();
+        removals = new FileStorageImplementor(removalDirectory);
+        check(removals.retrieveCredential("removable") == null && removals.getIndexedCredentials() == KEPT - 1 + CREDENTIALS,
+                "The removal survives compaction");
+        removals.storeCredential(new Credential("removable", "Password", "secret"));
+        check(removals.retrieveCredential("removable") != null, "A removed id can be stored again");
+        removals.close();
+
+        System.out.println("\n--- Group commit with " + WRITER_THREADS + " writers ---");
+        FileStorageImplementor shared = storage;
+        PrintStream stdout = System.out;
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        });
+        System.setOut(discard);
+        long start = System.nanoTime();
+        Thread[] writers = new Thread[WRITER_THREADS];
+        for (int t = 0; t < WRITER_THREADS; t++) {
+            final int thread = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                    shared.storeCredential(new Credential("writer-" + thread + "-" + i, "Password", "secret"));
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.setOut(stdout);
+        int writes = WRITER_THREADS * WRITES_PER_THREAD;
+        System.out.printf("%,d durable single writes in %d ms (%,.0f writes/s)%n", writes, elapsed / 1_000_000,
+                writes / (elapsed / 1e9));
+        check(storage.getIndexedCredentials() == CREDENTIALS + writes, "All concurrent writes indexed");
+
+        System.out.println("\n--- Interrupted callers ---");
+        // Channel I/O on an interrupted thread closes the channel; the first reader interrupts itself on every read
+        AtomicInteger failedReads = new AtomicInteger();
+        AtomicInteger keptInterrupts = new AtomicInteger();
+        Thread[] readers = new Thread[READER_THREADS];
+        for (int t = 0; t < READER_THREADS; t++) {
+            final boolean interrupting = t == 0;
+            readers[t] = new Thread(() -> {
+                for (int i = 0; i < READS_PER_THREAD; i++) {
+                    if (interrupting) {
+                        Thread.currentThread().interrupt();
+                    }
+                    try {
+                        if (shared.retrieveCredential("id-" + (i % CREDENTIALS)) == null) {
+                            failedReads.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        failedReads.incrementAndGet();
+                    }
+                    if (interrupting && Thread.interrupted()) {
+                        keptInterrupts.incrementAndGet();
+                    }
+                }
+            });
+            readers[t].start();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        check(failedReads.get() == 0, "No read failed while one reader kept interrupting itself");
+        check(keptInterrupts.get() == READS_PER_THREAD, "The interrupted reader kept its interrupt status");
+        System.setOut(discard);
+        Thread.currentThread().interrupt();
+        try {
+            shared.storeCredential(new Credential("interrupted-writer", "Password", "secret"));
+        } finally {
+            System.setOut(stdout);
+        }
+        check(Thread.interrupted() && shared.retrieveCredential("interrupted-writer") != null,
+                "An interrupted writer stores its credential and keeps its interrupt status");
+        checkLatest(storage, OVERWRITES, CREDENTIALS + writes + 1);
+        storage.close();
+
+        System.out.println("\n--- Close while the compactor runs ---");
+        // A busy background compactor must stop cleanly and leave the directory unlocked
+        config.setConfiguration("fileStorageCompactionIntervalMs", 1);
+        System.setOut(discard);
+        for (int attempt = 0; attempt < 5; attempt++) {
+            storage = new FileStorageImplementor(directory);
+            for (int round = 0; round < 2; round++) {
+                storage.storeCredentials(batch(OVERWRITES));
+            }
+            storage.close();
+        }
+        System.setOut(stdout);
+        config.setConfiguration("fileStorageCompactionIntervalMs", 30_000);
+        storage = new FileStorageImplementor(directory);
+        checkLatest(storage, OVERWRITES, CREDENTIALS + writes + 1);
+        storage.close();
+
+        System.out.println("\n--- Encrypted values ---");
+        Path encryptedDirectory = Files.createTempDirectory("file-storage-encrypted");
+        FileStorageImplementor encrypted = new FileStorageImplementor(encryptedDirectory);
+        encrypted.storeCredential(new Credential("plain", "Password", "plain-secret-value"));
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        config.setConfiguration("storageEncryptionKey", Base64.getEncoder().encodeToString(key));
+        encrypted.storeCredential(new Credential("sealed", "Password", "sealed-secret-value"));
+        encrypted.close();
+        StringBuilder onDisk = new StringBuilder();
+        try (Stream<Path> files = Files.list(encryptedDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                onDisk.append(new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1));
+            }
+        }
+        check(!onDisk.toString().contains("sealed-secret-value") && onDisk.toString().contains("sealed"),
+                "A value stored with a key configured is encrypted on disk, its id is not");
+        encrypted = new FileStorageImplementor(encryptedDirectory);
+        check("sealed-secret-value".equals(encrypted.retrieveCredential("sealed").getValue())
+                && "plain-secret-value".equals(encrypted.retrieveCredential("plain").getValue()),
+                "Encrypted and older plaintext values are read back");
+        config.setConfiguration("storageEncryptionKey", null);
+        boolean rejected = false;
+        try {
+            encrypted.retrieveCredential("sealed");
+        } catch (IllegalStateException e) {
+            rejected = true;
+        }
+        check(rejected, "An encrypted value cannot be read without the key");
+        encrypted.close();
+
+        for (Path root : new Path[] {directory, removalDirectory, encryptedDirectory}) {
+            try (Stream<Path> files = Files.walk(root)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        System.out.println("\nAll file storage checks passed.");
+    }
+
+    private static List<Credential> churn(int round) {
+        List<Credential> churn = new ArrayList<>(CREDENTIALS);
+        for (int i = 0; i < CREDENTIALS; i++) {
+            churn.add(new Credential("churn-" + i, "Password", "secret-" + round));
+        }
+        return churn;
+    }
+
+    private static List<Credential> batch(int round) {
+        List<Credential> batch = new ArrayList<>(CREDENTIALS);
+        for (int i = 0; i < CREDENTIALS; i++) {
+            Credential credential = new Credential("id-" + i, "API Key", "value-" + i + "-" + round);
+            credential.setMetadata("round", round);
+            batch.add(credential);
+        }
+        return batch;
+    }
+
+    private static void checkLatest(FileStorageImplementor storage, int round) {
+        checkLatest(storage, round, CREDENTIALS);
+    }
+
+    private static void checkLatest(FileStorageImplementor storage, int round, int indexed) {
+        for (int i = 0; i < CREDENTIALS; i++) {
+            Credential credential = storage.retrieveCredential("id-" + i);
+            if (credential == null || !credential.getValue().equals("value-" + i + "-" + round)
+                    || !Integer.valueOf(round).equals(credential.getMetadata("round"))) {
+                throw new IllegalStateException("FAILED: stale or missing credential id-" + i + ": " + credential);
+            }
+        }
+        check(storage.getIndexedCredentials() == indexed, "All " + CREDENTIALS + " credentials have their latest value");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("OK: " + message);
+    }
+}
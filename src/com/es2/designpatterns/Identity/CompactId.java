@@ -0,0 +1,106 @@
+package src.com.es2.designpatterns.Identity;
+
+/**
+ * A 128-bit, time-ordered identifier (ULID layout) stored as two longs.
+ * The high 48 bits are the creation time in epoch milliseconds and the remaining 80 bits are random,
+ * so identifiers sort by creation time. The 26-character Crockford base32 string form is only built
+ * when toString() is called.
+ */
+public final class CompactId implements Comparable<CompactId> {
+    // Crockford base32 alphabet: no I, L, O or U
+    private static final char[] ENCODING = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 26;
+    private static final byte[] DECODING = new byte[128];
+
+    static {
+        java.util.Arrays.fill(DECODING, (byte) -1);
+        for (int i = 0; i < ENCODING.length; i++) {
+            DECODING[ENCODING[i]] = (byte) i;
+            DECODING[Character.toLowerCase(ENCODING[i])] = (byte) i;
+        }
+    }
+
+    private final long mostSignificantBits;
+    private final long leastSignificantBits;
+
+    public CompactId(long mostSignificantBits, long leastSignificantBits) {
+        this.mostSignificantBits = mostSignificantBits;
+        this.leastSignificantBits = leastSignificantBits;
+    }
+
+    /**
+     * Parses the 26-character string form.
+     * @param value The encoded identifier
+     * @return The identifier
+     * @throws IllegalArgumentException If the value is not a valid encoded identifier
+     */
+    public static CompactId parse(String value) {
+        if (value == null || value.length() != ENCODED_LENGTH) {
+            throw new IllegalArgumentException("Invalid compact id: " + value);
+        }
+        // 26 base32 digits hold 130 bits; the first digit only carries the top 3 bits
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < ENCODED_LENGTH; i++) {
+            char c = value.charAt(i);
+            int digit = c < 128 ? DECODING[c] : -1;
+            if (digit < 0 || (i == 0 && digit > 7)) {
+                throw new IllegalArgumentException("Invalid compact id: " + value);
+            }
+            high = (high << 5) | (low >>> 59);
+            low = (low << 5) | digit;
+        }
+        return new CompactId(high, low);
+    }
+
+    public long getMostSignificantBits() {
+        return mostSignificantBits;
+    }
+
+    public long getLeastSignificantBits() {
+        return leastSignificantBits;
+    }
+
+    // Creation time in epoch milliseconds
+    public long getTimestamp() {
+        return mostSignificantBits >>> 16;
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[ENCODED_LENGTH];
+        long high = mostSignificantBits;
+        long low = leastSignificantBits;
+        // Emit 5 bits at a time from the least significant end
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ENCODING[(int) low & 31];
+            low = (low >>> 5) | (high << 59);
+            high >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public int compareTo(CompactId other) {
+        int result = Long.compareUnsigned(mostSignificantBits, other.mostSignificantBits);
+        return result != 0 ? result : Long.compareUnsigned(leastSignificantBits, other.leastSignificantBits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactId)) {
+            return false;
+        }
+        CompactId other = (CompactId) o;
+        return mostSignificantBits == other.mostSignificantBits && leastSignificantBits == other.leastSignificantBits;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = mostSignificantBits ^ leastSignificantBits;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
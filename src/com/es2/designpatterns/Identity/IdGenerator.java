@@ -0,0 +1,62 @@
+package src.com.es2.designpatterns.Identity;
+
+import src.com.es2.designpatterns.Credential.Generator.StripedSecureRandomSource;
+
+/**
+ * Generates monotonic, time-ordered CompactIds from per-thread state.
+ * Each thread keeps its last timestamp and 80-bit random part; within the same millisecond the
+ * random part is incremented instead of redrawn, so a thread's identifiers are strictly increasing.
+ * Each millisecond's random part is drawn from the shared StripedSecureRandomSource, so seeing earlier
+ * identifiers does not make later ones predictable; the increments within a millisecond take no lock.
+ */
+public final class IdGenerator {
+    private static final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    private static final long RANDOM_HIGH_MASK = 0xFFFFL;
+
+    private IdGenerator() {
+    }
+
+    /**
+     * Generates the next identifier for the calling thread.
+     * @return A new identifier, greater than any previously generated by this thread
+     */
+    public static CompactId nextId() {
+        return state.get().next(System.currentTimeMillis());
+    }
+
+    /**
+     * Generates the next identifier in its 26-character string form, for use as a map key or external id.
+     * @return The encoded identifier
+     */
+    public static String nextIdString() {
+        return nextId().toString();
+    }
+
+    // Per-thread generator state
+    private static final class State {
+        private final StripedSecureRandomSource random = StripedSecureRandomSource.getInstance();
+        private long lastTimestamp = -1;
+        // 80-bit random part: 16 high bits and 64 low bits
+        private long randomHigh;
+        private long randomLow;
+
+        CompactId next(long now) {
+            if (now > lastTimestamp) {
+                lastTimestamp = now;
+                randomHigh = random.nextLong() & RANDOM_HIGH_MASK;
+                randomLow = random.nextLong();
+            } else {
+                // Same (or earlier, if the clock went back) millisecond: increment the random part
+                randomLow++;
+                if (randomLow == 0) {
+                    randomHigh = (randomHigh + 1) & RANDOM_HIGH_MASK;
+                    if (randomHigh == 0) {
+                        lastTimestamp++; // Random part overflowed: borrow the next millisecond
+                    }
+                }
+            }
+            return new CompactId((lastTimestamp << 16) | randomHigh, randomLow);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.Implementors.FileStorageImplementor;
+import src.com.es2.designpatterns.Storage.Implementors.MappedStorageImplementor;
+import src.com.es2.designpatterns.Storage.StorageFactory;
+import src.com.es2.designpatterns.Storage.StorageType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class MappedStorageTest {
+    private static final int CREDENTIALS = 50_000;
+    private static final int READS = 1_000_000;
+    private static final int READER_THREADS = 4;
+    private static final int READS_PER_THREAD = 2_000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.out.println("===== Testing Memory-Mapped Storage =====\n");
+
+        // Small initial files so the test exercises index and slot growth
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        config.setConfiguration("mappedStorageInitialSlots", 1024);
+        Path directory = Files.createTempDirectory("mapped-storage");
+
+        System.out.println("--- Writing, overwriting and overflowing ---");
+        MappedStorageImplementor storage = new MappedStorageImplementor(directory);
+        storage.storeCredentials(batch(0));
+        storage.storeCredentials(batch(1));
+        // Values larger than a slot go to the overflow file
+        char[] large = new char[4096];
+        Arrays.fill(large, 'x');
+        storage.storeCredential(new Credential("large", "Secret Key", new String(large)));
+        check(storage.getCredentialCount() == CREDENTIALS + 1, "Index holds " + storage.getCredentialCount() + " credentials");
+        checkLatest(storage, 1);
+        check(storage.retrieveCredential("large").getValue().length() == large.length, "Overflow value round-trips");
+        storage.close();
+
+        System.out.println("\n--- Reopening ---");
+        long start = System.nanoTime();
+        storage = new MappedStorageImplementor(directory);
+        Credential first = storage.retrieveCredential("id-0");
+        long openMicros = (System.nanoTime() - start) / 1000;
+        check(first != null, "Reopened and served the first read in " + openMicros + " us");
+        checkLatest(storage, 1);
+
+        start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            storage.retrieveCredential("id-" + (i % CREDENTIALS));
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%,d random reads in %d ms (%,.0f ns/read)%n", READS, elapsed / 1_000_000, (double) elapsed / READS);
+
+        System.out.println("\n--- Interrupted callers ---");
+        // Overflow reads use channel I/O, which closes the channel on an interrupted thread; the first reader interrupts itself on every read
+        MappedStorageImplementor shared = storage;
+        AtomicInteger failedReads = new AtomicInteger();
+        AtomicInteger keptInterrupts = new AtomicInteger();
+        Thread[] readers = new Thread[READER_THREADS];
+        for (int t = 0; t < READER_THREADS; t++) {
+            final boolean interrupting = t == 0;
+            readers[t] = new Thread(() -> {
+                for (int i = 0; i < READS_PER_THREAD; i++) {
+                    if (interrupting) {
+                        Thread.currentThread().interrupt();
+                    }
+                    try {
+                        if (shared.retrieveCredential("large").getValue().length() != large.length) {
+                            failedReads.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        failedReads.incrementAndGet();
+                    }
+                    if (interrupting && Thread.interrupted()) {
+                        keptInterrupts.incrementAndGet();
+                    }
+                }
+            });
+            readers[t].start();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        check(failedReads.get() == 0, "No overflow read failed while one reader kept interrupting itself");
+        check(keptInterrupts.get() == READS_PER_THREAD, "The interrupted reader kept its interrupt status");
+        Thread.currentThread().interrupt();
+        storage.storeCredential(new Credential("large-interrupted", "Secret Key", new String(large)));
+        check(Thread.interrupted() && storage.retrieveCredential("large-interrupted") != null,
+                "An interrupted writer stores an overflow value and keeps its interrupt status");
+        check(storage.removeCredential("large-interrupted"), "The interrupted writer's credential is removed again");
+        storage.close();
+
+        System.out.println("\n--- Removal ---");
+        // Removing every third id shifts many probe runs back; the rest must stay reachable
+        storage = new MappedStorageImplementor(directory);
+        int removed = 0;
+        for (int i = 0; i < CREDENTIALS; i += 3) {
+            removed += storage.removeCredential("id-" + i) ? 1 : 0;
+        }
+        check(removed == (CREDENTIALS + 2) / 3 && !storage.removeCredential("id-0"), "Removed " + removed + " credentials once each");
+        storage.close();
+        storage = new MappedStorageImplementor(directory);
+        check(storage.getCredentialCount() == CREDENTIALS + 1 - removed, "Index holds " + storage.getCredentialCount() + " credentials after reopening");
+        for (int i = 0; i < CREDENTIALS; i++) {
+            Credential credential = storage.retrieveCredential("id-" + i);
+            if ((credential == null) != (i % 3 == 0)) {
+                throw new IllegalStateException("FAILED: credential id-" + i + " is " + credential);
+            }
+        }
+        check(true, "Removed ids are gone and every other id is found");
+        storage.storeCredential(new Credential("id-0", "API Key", "value-0-1"));
+        check(storage.retrieveCredential("id-0") != null, "A removed id can be stored again");
+        storage.close();
+
+        System.out.println("\n--- Drop-in replacement through the storage factory ---");
+        StorageFactory storageFactory = StorageFactory.getInstance(StorageType.FILE);
+        MappedStorageImplementor replacement = new MappedStorageImplementor(directory);
+        storageFactory.switchImplementor(StorageType.FILE, replacement);
+        storageFactory.saveCredentials(StorageType.FILE, batch(2));
+        Credential viaFactory = storageFactory.retrieveCredential(StorageType.FILE, "id-42");
+        check(viaFactory != null && viaFactory.getValue().equals("value-42-2"), "Factory reads the mapped store");
+        // The factory's file implementor was closed when it was replaced, so its directory is free again
+        FileStorageImplementor released = new FileStorageImplementor();
+        released.allocateStorage();
+        check(true, "The replaced file implementor released " + released.getDirectory());
+        released.close();
+        replacement.close();
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        System.out.println("\nAll mapped storage checks passed.");
+    }
+
+    private static List<Credential> batch(int round) {
+        List<Credential> batch = new ArrayList<>(CREDENTIALS);
+        for (int i = 0; i < CREDENTIALS; i++) {
+            batch.add(new Credential("id-" + i, "API Key", "value-" + i + "-" + round));
+        }
+        return batch;
+    }
+
+    private static void checkLatest(MappedStorageImplementor storage, int round) {
+        for (int i = 0; i < CREDENTIALS; i++) {
+            Credential credential = storage.retrieveCredential("id-" + i);
+            if (credential == null || !credential.getValue().equals("value-" + i + "-" + round)) {
+                throw new IllegalStateException("FAILED: stale or missing credential id-" + i + ": " + credential);
+            }
+        }
+        System.out.println("OK: All " + CREDENTIALS + " credentials have their latest value");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("OK: " + message);
+    }
+}
@@ -0,0 +1,113 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Generator.PassphraseAlgorithm;
+import src.com.es2.designpatterns.Credential.Generator.StripedSecureRandomSource;
+import src.com.es2.designpatterns.Credential.SecurityCriteria;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class PassphraseTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== Testing Passphrase Generation =====\n");
+
+        Path directory = Files.createTempDirectory("passphrase");
+        SecurityCriteria criteria = new SecurityCriteria.Builder().algorithm("passphrase").wordCount(6).separator("-").build();
+
+        System.out.println("--- Built-in wordlist ---");
+        Path dataDirectory = directory.resolve("data");
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        Object previousWordlist = config.getConfiguration("passphraseWordlist");
+        Object previousDirectory = config.getConfiguration("dataDirectory");
+        config.setConfiguration("passphraseWordlist", null);
+        config.setConfiguration("dataDirectory", dataDirectory.toString());
+        String passphrase;
+        try {
+            passphrase = new PassphraseAlgorithm(StripedSecureRandomSource.getInstance()).generate(criteria);
+        } finally {
+            config.setConfiguration("dataDirectory", previousDirectory);
+        }
+        Path written = dataDirectory.resolve("wordlist.txt");
+        check(Files.isRegularFile(written), "Without a configured wordlist the built-in one is written to the data directory");
+        List<String> builtIn = Files.readAllLines(written, StandardCharsets.US_ASCII);
+        check(builtIn.size() == 7776 && new HashSet<>(builtIn).size() == 7776, "The built-in list has 7776 distinct words");
+        Set<String> known = new HashSet<>(builtIn);
+        String[] words = passphrase.split("-");
+        check(words.length == 6 && known.containsAll(Arrays.asList(words)), "Generated \"" + passphrase + "\" from the list");
+
+        System.out.println("\n--- Word selection ---");
+        Path diceware = directory.resolve("diceware.txt");
+        Files.write(diceware, "11111  alpha\n11112\tbravo\r\n\n11113 charlie  \n11114 d\u00e9lta\n".getBytes(StandardCharsets.UTF_8));
+        PassphraseAlgorithm algorithm = new PassphraseAlgorithm(diceware, StripedSecureRandomSource.getInstance());
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            seen.addAll(Arrays.asList(algorithm.generate(criteria).split("-")));
+        }
+        check(seen.equals(new HashSet<>(Arrays.asList("alpha", "bravo", "charlie", "d\u00e9lta"))),
+                "Diceware lines yield their last field, including non-ASCII words: " + seen);
+        check(Files.isRegularFile(directory.resolve("diceware.txt.idx")), "The offset index was written next to the list");
+
+        System.out.println("\n--- Replaced wordlist ---");
+        // Same size and modification time as before, so only the checksum of the list's head tells them apart
+        FileTime modified = Files.getLastModifiedTime(diceware);
+        Files.write(diceware, "11111  omega\n11112\tsigma\r\n\n11113 lambda   \n11114 kappa!\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(diceware, modified);
+        seen.clear();
+        algorithm = new PassphraseAlgorithm(diceware, StripedSecureRandomSource.getInstance());
+        for (int i = 0; i < 1_000; i++) {
+            seen.addAll(Arrays.asList(algorithm.generate(criteria).split("-")));
+        }
+        check(seen.equals(new HashSet<>(Arrays.asList("omega", "sigma", "lambda", "kappa!"))),
+                "A list replaced with the same size and time is reindexed: " + seen);
+
+        Files.write(diceware, "one\ntwo\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(diceware, modified);
+        algorithm = new PassphraseAlgorithm(diceware, StripedSecureRandomSource.getInstance());
+        seen.clear();
+        for (int i = 0; i < 100; i++) {
+            seen.addAll(Arrays.asList(algorithm.generate(criteria).split("-")));
+        }
+        check(seen.equals(new HashSet<>(Arrays.asList("one", "two"))), "A shorter list never reads past its end");
+
+        System.out.println("\n--- Errors ---");
+        boolean rejected = false;
+        try {
+            new PassphraseAlgorithm(directory.resolve("absent.txt"), StripedSecureRandomSource.getInstance()).generate(criteria);
+        } catch (IllegalStateException e) {
+            rejected = true;
+        }
+        check(rejected, "An explicit wordlist path that does not exist is reported");
+        config.setConfiguration("passphraseWordlist", directory.resolve("absent.txt").toString());
+        rejected = false;
+        try {
+            new PassphraseAlgorithm(StripedSecureRandomSource.getInstance()).generate(criteria);
+        } catch (IllegalStateException e) {
+            rejected = true;
+        } finally {
+            config.setConfiguration("passphraseWordlist", previousWordlist);
+        }
+        check(rejected && !Files.exists(directory.resolve("absent.txt")), "A configured wordlist that does not exist is reported, not created");
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        System.out.println("\nAll passphrase checks passed.");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("OK: " + message);
+    }
+}
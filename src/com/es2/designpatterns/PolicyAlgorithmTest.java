@@ -0,0 +1,163 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Credential.Generator.CompiledAlphabet;
+import src.com.es2.designpatterns.Credential.Generator.PolicyAlgorithm;
+import src.com.es2.designpatterns.Credential.Generator.RandomSource;
+import src.com.es2.designpatterns.Credential.SecurityCriteria;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class PolicyAlgorithmTest {
+    private static final int SEEDS = 2_000;
+    private static final String[] CLASSES = {
+        CompiledAlphabet.UPPERCASE_CHARS, CompiledAlphabet.LOWERCASE_CHARS, CompiledAlphabet.NUMBER_CHARS, CompiledAlphabet.SYMBOL_CHARS
+    };
+
+    public static void main(String[] args) {
+        System.out.println("===== Testing Policy Algorithm =====\n");
+
+        System.out.println("--- Required classes and excluded characters ---");
+        long passwords = 0;
+        for (int seed = 0; seed < SEEDS; seed++) {
+            SplittableRandom random = new SplittableRandom(seed);
+            PolicyAlgorithm algorithm = new PolicyAlgorithm(new SeededRandomSource(seed));
+            // Every non-empty combination of classes, each with its own excluded characters
+            for (int classes = 1; classes < 16; classes++) {
+                String excluded = excludedChars(random, classes);
+                int required = Integer.bitCount(classes);
+                // Lengths at the class-count boundary, then a few longer ones
+                for (int length : new int[] {required, required + 1, required + 2, 8 + random.nextInt(25)}) {
+                    SecurityCriteria criteria = criteria(classes, length, excluded);
+                    verify(algorithm.generate(criteria), criteria, classes, seed);
+                    passwords++;
+                }
+            }
+        }
+        check(true, String.format("%,d passwords across %,d seeds include every required class and no excluded character",
+                passwords, SEEDS));
+
+        System.out.println("\n--- Shuffle at the boundary ---");
+        // With length equal to the class count, each class must land in every position
+        int[][] positions = new int[4][4];
+        for (int seed = 0; seed < SEEDS; seed++) {
+            String password = new PolicyAlgorithm(new SeededRandomSource(seed)).generate(criteria(15, 4, ""));
+            for (int position = 0; position < 4; position++) {
+                positions[classOf(password.charAt(position))][position]++;
+            }
+        }
+        boolean spread = true;
+        for (int[] byPosition : positions) {
+            for (int count : byPosition) {
+                spread &= count > SEEDS / 8;
+            }
+        }
+        check(spread, "Every class appears in every position: " + Arrays.deepToString(positions));
+
+        System.out.println("\n--- Generating into a buffer ---");
+        char[] buffer = new char[20];
+        Arrays.fill(buffer, '~');
+        SecurityCriteria criteria = criteria(15, 4, "0O1lI|");
+        int written = new PolicyAlgorithm(new SeededRandomSource(7)).generateInto(buffer, 8, criteria);
+        verify(new String(buffer, 8, written), criteria, 15, 7);
+        boolean untouched = true;
+        for (int i = 0; i < buffer.length; i++) {
+            untouched &= (i >= 8 && i < 8 + written) || buffer[i] == '~';
+        }
+        check(written == 4 && untouched, "generateInto writes only its range");
+
+        System.out.println("\n--- Impossible policies ---");
+        PolicyAlgorithm algorithm = new PolicyAlgorithm(new SeededRandomSource(1));
+        check(rejects(algorithm, criteria(15, 3, "")), "A length below the class count is rejected");
+        check(rejects(algorithm, criteria(5, 12, CompiledAlphabet.UPPERCASE_CHARS)), "A fully excluded required class is rejected");
+
+        System.out.println("\nAll policy algorithm checks passed.");
+    }
+
+    private static SecurityCriteria criteria(int classes, int length, String excluded) {
+        return new SecurityCriteria.Builder().length(length)
+                .includeUppercase((classes & 1) != 0).includeLowercase((classes & 2) != 0)
+                .includeNumbers((classes & 4) != 0).includeSymbols((classes & 8) != 0)
+                .excludedChars(excluded).algorithm("policy").build();
+    }
+
+    // Up to half of each included class, always leaving at least one character in it
+    private static String excludedChars(SplittableRandom random, int classes) {
+        StringBuilder excluded = new StringBuilder();
+        for (int c = 0; c < CLASSES.length; c++) {
+            String chars = CLASSES[c];
+            int count = random.nextInt(chars.length() / 2 + 1);
+            if ((classes & (1 << c)) == 0) {
+                count = random.nextInt(chars.length() + 1);
+            }
+            for (int i = 0; i < count; i++) {
+                excluded.append(chars.charAt(random.nextInt(chars.length())));
+            }
+        }
+        return excluded.toString();
+    }
+
+    private static void verify(String password, SecurityCriteria criteria, int classes, int seed) {
+        if (password.length() != criteria.getLength()) {
+            throw new IllegalStateException("FAILED: seed " + seed + " gave length " + password.length() + " for " + criteria);
+        }
+        int present = 0;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            int charClass = classOf(c);
+            if (charClass < 0 || (classes & (1 << charClass)) == 0 || criteria.getExcludedChars().indexOf(c) >= 0) {
+                throw new IllegalStateException("FAILED: seed " + seed + " put '" + c + "' in \"" + password + "\" for " + criteria);
+            }
+            present |= 1 << charClass;
+        }
+        if (present != classes) {
+            throw new IllegalStateException("FAILED: seed " + seed + " left a required class out of \"" + password + "\" for " + criteria);
+        }
+    }
+
+    private static int classOf(char c) {
+        for (int i = 0; i < CLASSES.length; i++) {
+            if (CLASSES[i].indexOf(c) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean rejects(PolicyAlgorithm algorithm, SecurityCriteria criteria) {
+        try {
+            algorithm.generate(criteria);
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    // Reproducible random source, so a failing seed can be replayed
+    private static final class SeededRandomSource implements RandomSource {
+        private final SplittableRandom random;
+
+        SeededRandomSource(long seed) {
+            this.random = new SplittableRandom(seed);
+        }
+
+        @Override
+        public int nextIndex(int bound) {
+            return random.nextInt(bound);
+        }
+
+        @Override
+        public void fill(char[] dest, int offset, int length, CompiledAlphabet alphabet) {
+            for (int i = offset; i < offset + length; i++) {
+                dest[i] = alphabet.charAt(random.nextInt(alphabet.size()));
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Credential.Compliance.PolicyComplianceScanner;
+import src.com.es2.designpatterns.Credential.Generator.CompiledAlphabet;
+import src.com.es2.designpatterns.Credential.Generator.PasswordGenerator;
+import src.com.es2.designpatterns.Credential.SecurityCriteria;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+public class PolicyComplianceBenchmark {
+    private static final int TOTAL_PASSWORDS = 10_000_000;
+    private static final int POOL_SIZE = 1_000_000;
+    private static final int BATCH_SIZE = 100_000;
+    // Legacy passwords draw from every class, ambiguous characters and a few non-ASCII letters
+    private static final String LEGACY_CHARS = CompiledAlphabet.UPPERCASE_CHARS + CompiledAlphabet.LOWERCASE_CHARS
+            + CompiledAlphabet.NUMBER_CHARS + CompiledAlphabet.SYMBOL_CHARS + "~'\"/\\ éçñ";
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        System.out.println("===== Benchmarking Bulk Password Policy Compliance =====\n");
+
+        SecurityCriteria policy = new SecurityCriteria.Builder().length(12).excludedChars("0O1lI|").build();
+        PolicyComplianceScanner scanner = new PolicyComplianceScanner(policy);
+        List<String> pool = buildPool(policy);
+
+        // The scanner must agree with a straightforward per-character check
+        int[] expected = new int[pool.size()];
+        for (int i = 0; i < pool.size(); i++) {
+            expected[i] = referenceCheck(policy, pool.get(i));
+        }
+        int[] actual = scanner.scanValues(pool);
+        int compliant = 0;
+        for (int i = 0; i < pool.size(); i++) {
+            if (actual[i] != expected[i]) {
+                throw new IllegalStateException("Mismatch for \"" + pool.get(i) + "\": "
+                        + PolicyComplianceScanner.describe(actual[i]) + " vs " + PolicyComplianceScanner.describe(expected[i]));
+            }
+            if (actual[i] == PolicyComplianceScanner.COMPLIANT) {
+                compliant++;
+            }
+        }
+        System.out.printf("Scanner matches the reference check on %,d passwords (%,d compliant)%n%n", pool.size(), compliant);
+
+        // Warm up both paths before measuring
+        for (int i = 0; i < 3; i++) {
+            runReference(policy, pool, POOL_SIZE);
+            scanner.scanValues(pool);
+        }
+
+        long start = System.nanoTime();
+        long checksum = runReference(policy, pool, TOTAL_PASSWORDS);
+        report("Per-character reference, 1 thread", System.nanoTime() - start, checksum);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads : cores > 1 ? new int[] {1, cores} : new int[] {1}) {
+            ForkJoinPool workers = new ForkJoinPool(threads);
+            try {
+                start = System.nanoTime();
+                checksum = workers.submit(() -> runScanner(scanner, pool)).get();
+                report("SWAR scanner, " + threads + " thread(s)", System.nanoTime() - start, checksum);
+            } finally {
+                workers.shutdown();
+            }
+        }
+    }
+
+    // Half compliant generated passwords, half random legacy passwords of length 4 to 20
+    private static List<String> buildPool(SecurityCriteria policy) {
+        PasswordGenerator generator = new PasswordGenerator();
+        SecurityCriteria compliantCriteria = new SecurityCriteria.Builder().length(16)
+                .excludedChars(policy.getExcludedChars()).algorithm("policy").build();
+        SplittableRandom random = new SplittableRandom(42);
+        List<String> pool = new ArrayList<>(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            if (i % 2 == 0) {
+                pool.add(generator.generatePassword(compliantCriteria));
+            } else {
+                char[] chars = new char[4 + random.nextInt(17)];
+                for (int c = 0; c < chars.length; c++) {
+                    chars[c] = LEGACY_CHARS.charAt(random.nextInt(LEGACY_CHARS.length()));
+                }
+                pool.add(new String(chars));
+            }
+        }
+        return pool;
+    }
+
+    // Scans TOTAL_PASSWORDS passwords in batches, cycling through the pool
+    private static long runScanner(PolicyComplianceScanner scanner, List<String> pool) {
+        long checksum = 0;
+        for (int done = 0; done < TOTAL_PASSWORDS; done += BATCH_SIZE) {
+            int from = done % POOL_SIZE;
+            for (int violations : scanner.scanValues(pool.subList(from, from + BATCH_SIZE))) {
+                checksum += violations;
+            }
+        }
+        return checksum;
+    }
+
+    private static long runReference(SecurityCriteria policy, List<String> pool, int total) {
+        long checksum = 0;
+        for (int done = 0; done < total; done++) {
+            checksum += referenceCheck(policy, pool.get(done % POOL_SIZE));
+        }
+        return checksum;
+    }
+
+    private static int referenceCheck(SecurityCriteria policy, String password) {
+        boolean upper = false, lower = false, number = false, symbol = false, excluded = false;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            upper |= CompiledAlphabet.UPPERCASE_CHARS.indexOf(c) >= 0;
+            lower |= CompiledAlphabet.LOWERCASE_CHARS.indexOf(c) >= 0;
+            number |= CompiledAlphabet.NUMBER_CHARS.indexOf(c) >= 0;
+            symbol |= CompiledAlphabet.SYMBOL_CHARS.indexOf(c) >= 0;
+            excluded |= policy.getExcludedChars().indexOf(c) >= 0;
+        }
+        int violations = password.length() < policy.getLength() ? PolicyComplianceScanner.TOO_SHORT : 0;
+        if (policy.isIncludeUppercase() && !upper) violations |= PolicyComplianceScanner.MISSING_UPPERCASE;
+        if (policy.isIncludeLowercase() && !lower) violations |= PolicyComplianceScanner.MISSING_LOWERCASE;
+        if (policy.isIncludeNumbers() && !number) violations |= PolicyComplianceScanner.MISSING_NUMBER;
+        if (policy.isIncludeSymbols() && !symbol) violations |= PolicyComplianceScanner.MISSING_SYMBOL;
+        if (excluded) violations |= PolicyComplianceScanner.EXCLUDED_CHAR;
+        return violations;
+    }
+
+    private static void report(String name, long elapsedNanos, long checksum) {
+        System.out.printf("%-36s %,8d ms  %,12.0f passwords/s  (checksum %d)%n", name, elapsedNanos / 1_000_000,
+                TOTAL_PASSWORDS / (elapsedNanos / 1e9), checksum);
+    }
+}
@@ -0,0 +1,83 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Credential.Generator.PasswordGenerator;
+import src.com.es2.designpatterns.Credential.SecurityCriteria;
+
+public class PolicyGenerationBenchmark {
+    private static final int[] LENGTHS = {4, 6, 8, 12, 16, 32, 64};
+    private static final int PASSWORDS_PER_LENGTH = 200_000;
+
+    public static void main(String[] args) {
+        System.out.println("===== Benchmarking Policy-Compliant Generation =====\n");
+
+        PasswordGenerator generator = new PasswordGenerator();
+
+        System.out.println("length | retry loop (enhanced)      | single pass (policy)");
+        for (int length : LENGTHS) {
+            SecurityCriteria enhanced = new SecurityCriteria.Builder().length(length).algorithm("enhanced").build();
+            SecurityCriteria policy = new SecurityCriteria.Builder().length(length).algorithm("policy").build();
+
+            // Warm up both paths
+            runRetryLoop(generator, enhanced, PASSWORDS_PER_LENGTH / 10);
+            runSinglePass(generator, policy, PASSWORDS_PER_LENGTH / 10);
+
+            long start = System.nanoTime();
+            long attempts = runRetryLoop(generator, enhanced, PASSWORDS_PER_LENGTH);
+            long retryNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long passes = runSinglePass(generator, policy, PASSWORDS_PER_LENGTH);
+            long policyNanos = System.nanoTime() - start;
+
+            System.out.printf("%6d | %6.0f ns, %5.2f attempts | %6.0f ns, %5.2f attempts%n", length,
+                    (double) retryNanos / PASSWORDS_PER_LENGTH, (double) attempts / PASSWORDS_PER_LENGTH,
+                    (double) policyNanos / PASSWORDS_PER_LENGTH, (double) passes / PASSWORDS_PER_LENGTH);
+        }
+    }
+
+    /**
+     * Generates compliant passwords the way callers did before: generate, check, regenerate.
+     * @return The total number of generation attempts
+     */
+    protected static long runRetryLoop(PasswordGenerator generator, SecurityCriteria criteria, int count) {
+        long attempts = 0;
+        for (int i = 0; i < count; i++) {
+            String password;
+            do {
+                password = generator.generatePassword(criteria);
+                attempts++;
+            } while (!coversAllClasses(password));
+        }
+        return attempts;
+    }
+
+    /**
+     * Generates compliant passwords with the policy algorithm, verifying every one of them.
+     * @return The total number of generation attempts
+     */
+    protected static long runSinglePass(PasswordGenerator generator, SecurityCriteria criteria, int count) {
+        for (int i = 0; i < count; i++) {
+            if (!coversAllClasses(generator.generatePassword(criteria))) {
+                throw new IllegalStateException("Policy algorithm produced a non-compliant password");
+            }
+        }
+        return count;
+    }
+
+    private static boolean coversAllClasses(String password) {
+        boolean upper = false, lower = false, digit = false, symbol = false;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            if (Character.isUpperCase(c)) {
+                upper = true;
+            } else if (Character.isLowerCase(c)) {
+                lower = true;
+            } else if (Character.isDigit(c)) {
+                digit = true;
+            } else {
+                symbol = true;
+            }
+        }
+        return upper && lower && digit && symbol;
+    }
+}
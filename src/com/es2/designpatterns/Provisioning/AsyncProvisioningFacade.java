@@ -0,0 +1,138 @@
+package src.com.es2.designpatterns.Provisioning;
+
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Credential.CredentialFactory;
+import src.com.es2.designpatterns.Credential.CredentialType;
+import src.com.es2.designpatterns.Storage.StorageFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous facade over CredentialFactory and StorageFactory.
+ * Every request runs as its own task on a virtual-thread-per-task executor when the runtime provides
+ * one (Java 21+), so thousands of concurrent provisioning requests do not need thousands of platform
+ * threads. On older runtimes it falls back to a bounded pool of platform threads.
+ */
+public class AsyncProvisioningFacade {
+    private final CredentialFactory credentialFactory;
+    private final StorageFactory storageFactory;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    /**
+     * @param credentialFactory The factory that generates credentials
+     * @param storageFactory The storage used by the persisting variants, may be null if they are not used
+     */
+    public AsyncProvisioningFacade(CredentialFactory credentialFactory, StorageFactory storageFactory) {
+        this.credentialFactory = credentialFactory;
+        this.storageFactory = storageFactory;
+
+        ExecutorService virtualExecutor = newVirtualThreadExecutor();
+        this.virtualThreads = virtualExecutor != null;
+        this.executor = virtualThreads ? virtualExecutor : newPlatformThreadExecutor();
+    }
+
+    /**
+     * Creates a credential without blocking the caller.
+     * @param type The type of credential to create
+     * @return A future completed with the new credential
+     */
+    public CompletableFuture<Credential> createCredentialAsync(CredentialType type) {
+        return CompletableFuture.supplyAsync(() -> credentialFactory.createCredential(type), executor);
+    }
+
+    /**
+     * Creates a credential and saves it to the default storage without blocking the caller.
+     * @param type The type of credential to create
+     * @return A future completed with the credential once it has been stored
+     */
+    public CompletableFuture<Credential> createAndStoreCredentialAsync(CredentialType type) {
+        if (storageFactory == null) {
+            throw new IllegalStateException("No StorageFactory configured for persisting credentials");
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            Credential credential = credentialFactory.createCredential(type);
+            storageFactory.saveCredential(credential);
+            return credential;
+        }, executor);
+    }
+
+    /**
+     * Creates a batch of credentials concurrently.
+     * @param type The type of credentials to create
+     * @param count The number of credentials
+     * @return A future completed with the credentials in submission order
+     */
+    public CompletableFuture<List<Credential>> createCredentialsAsync(CredentialType type, int count) {
+        List<CompletableFuture<Credential>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            futures.add(createCredentialAsync(type));
+        }
+        return inSubmissionOrder(futures);
+    }
+
+    /**
+     * Creates and stores a batch of credentials concurrently.
+     * @param type The type of credentials to create
+     * @param count The number of credentials
+     * @return A future completed with the stored credentials in submission order
+     */
+    public CompletableFuture<List<Credential>> createAndStoreCredentialsAsync(CredentialType type, int count) {
+        List<CompletableFuture<Credential>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            futures.add(createAndStoreCredentialAsync(type));
+        }
+        return inSubmissionOrder(futures);
+    }
+
+    // Whether requests run on virtual threads rather than the platform thread fallback
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    // Stops accepting new requests; requests already submitted still complete
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // Completes once every future has, keeping results in the order the futures were submitted
+    private static CompletableFuture<List<Credential>> inSubmissionOrder(List<CompletableFuture<Credential>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    List<Credential> credentials = new ArrayList<>(futures.size());
+                    for (CompletableFuture<Credential> future : futures) {
+                        credentials.add(future.join());
+                    }
+                    return credentials;
+                });
+    }
+
+    // Looked up reflectively so the code still compiles and runs on Java 8
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            Logger.getLogger(AsyncProvisioningFacade.class.getName())
+                    .log(Level.INFO, "Virtual threads are not available. Using a platform thread pool.");
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 4, task -> {
+            Thread thread = new Thread(task, "async-provisioning-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,331 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.Replication.ReplicatedStorageImplementor;
+import src.com.es2.designpatterns.Storage.StorageFactory;
+import src.com.es2.designpatterns.Storage.StorageImplementor;
+import src.com.es2.designpatterns.Storage.StorageType;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+public class ReplicationTest {
+    private static final int WRITES = 200;
+    private static final int MAX_BACKLOG = 8;
+    private static final int BACKLOG_IDS = 50;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("===== Testing Replicated Storage =====\n");
+
+        // CLOUD writes fast, DATABASE is in the middle, FILE writes slowly but reads fastest
+        StubStorage cloud = new StubStorage(2_000_000, 1_000_000);
+        StubStorage database = new StubStorage(5_000_000, 2_000_000);
+        StubStorage file = new StubStorage(20_000_000, 100_000);
+
+        PrintStream stdout = System.out;
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        });
+        ConfigurationManager.getInstance().setConfiguration("storageReplicationRetryMs", 50);
+        StorageFactory storageFactory;
+        ReplicatedStorageImplementor replication;
+        long elapsed;
+        System.setOut(discard);
+        try {
+            storageFactory = StorageFactory.getInstance(StorageType.CLOUD);
+            storageFactory.switchImplementor(StorageType.CLOUD, cloud);
+            storageFactory.switchImplementor(StorageType.DATABASE, database);
+            storageFactory.switchImplementor(StorageType.FILE, file);
+            storageFactory.enableReplication(2, StorageType.CLOUD, StorageType.DATABASE, StorageType.FILE);
+            replication = storageFactory.getReplication();
+
+            long start = System.nanoTime();
+            for (int i = 0; i < WRITES; i++) {
+                storageFactory.saveCredential(new Credential("id-" + i, "API Key", "value-" + i));
+            }
+            elapsed = System.nanoTime() - start;
+        } finally {
+            System.setOut(stdout);
+        }
+
+        System.out.println("--- Write latency ---");
+        double perWrite = elapsed / 1e6 / WRITES;
+        System.out.printf("%.2f ms per quorum write; replicas take 2, 5 and 20 ms, 27 ms one after another%n", perWrite);
+        check(perWrite < 10, String.format("A 2 of 3 quorum write takes %.1f ms, about the second fastest replica", perWrite));
+        check(replication.awaitReplication(5, TimeUnit.SECONDS), "Lagging replica caught up in the background");
+        check(cloud.credentials.size() == WRITES && database.credentials.size() == WRITES && file.credentials.size() == WRITES,
+                "Every replica holds all " + WRITES + " credentials");
+
+        System.out.println("\n--- Reads ---");
+        System.setOut(discard);
+        try {
+            for (int i = 0; i < 100; i++) {
+                storageFactory.retrieveCredential("id-" + i);
+            }
+        } finally {
+            System.setOut(stdout);
+        }
+        System.out.println(replication);
+        check(file.reads.get() > 80, "Fastest replica served " + file.reads.get() + " of 100 reads");
+
+        System.out.println("\n--- Read your writes ---");
+        int stale = 0;
+        System.setOut(discard);
+        try {
+            for (int round = 0; round < 20; round++) {
+                storageFactory.saveCredential(new Credential("hot", "API Key", "value-" + round));
+                // FILE is still storing the write, so the read must skip it
+                if (!storageFactory.retrieveCredential("hot").getValue().equals("value-" + round)) {
+                    stale++;
+                }
+            }
+        } finally {
+            System.setOut(stdout);
+        }
+        check(stale == 0, "Every read after a quorum write returned the new value");
+        check(replication.awaitReplication(5, TimeUnit.SECONDS) && file.credentials.get("hot").getValue().equals("value-19"),
+                "The slow replica ends with the latest value");
+
+        System.out.println("\n--- Replica failure and repair ---");
+        // Keep failing until the checks below have run
+        database.failures.set(Integer.MAX_VALUE);
+        System.setOut(discard);
+        try {
+            for (int i = 0; i < 20; i++) {
+                storageFactory.saveCredential(new Credential("repair-" + i, "API Key", "value-" + i));
+            }
+        } finally {
+            System.setOut(stdout);
+        }
+        check(!replication.isHealthy(StorageType.DATABASE), "Failing replica was marked unhealthy");
+        check(replication.getFailedWriteCount() == 0, "Writes kept their quorum without it");
+        database.failures.set(0);
+        check(replication.awaitReplication(5, TimeUnit.SECONDS), "Repairs caught up after the replica recovered");
+        int repaired = 0;
+        for (int i = 0; i < 20; i++) {
+            Credential credential = database.credentials.get("repair-" + i);
+            if (credential != null && credential.getValue().equals("value-" + i)) {
+                repaired++;
+            }
+        }
+        check(repaired == 20 && replication.isHealthy(StorageType.DATABASE),
+                "Recovered replica holds all 20 writes, " + replication.getRepairCount() + " repair calls");
+
+        System.out.println("\n--- Quorum not reached ---");
+        cloud.failures.set(1);
+        database.failures.set(1);
+        boolean rejected = false;
+        System.setOut(discard);
+        try {
+            storageFactory.saveCredential(new Credential("lost-quorum", "API Key", "value"));
+        } catch (IllegalStateException e) {
+            rejected = true;
+        } finally {
+            System.setOut(stdout);
+        }
+        check(rejected && replication.getFailedWriteCount() == 1, "A write two replicas failed is reported");
+        check(replication.awaitReplication(5, TimeUnit.SECONDS) && database.credentials.containsKey("lost-quorum"),
+                "Failed replicas are still repaired");
+
+        System.out.println("\n--- Batches ---");
+        List<Credential> batch = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new Credential("batch-" + i, "API Key", "value-" + i));
+            ids.add("batch-" + i);
+        }
+        Map<String, Credential> read;
+        System.setOut(discard);
+        try {
+            storageFactory.saveCredentials(batch);
+            read = storageFactory.retrieveCredentials(ids);
+        } finally {
+            System.setOut(stdout);
+        }
+        check(read.size() == 100, "A batch read right after a batch write finds all 100 credentials");
+        check(replication.awaitReplication(5, TimeUnit.SECONDS) && file.credentials.containsKey("batch-99"),
+                "The batch reached every replica");
+
+        System.out.println("\n--- Backlog limit ---");
+        // A stalled replica: its lanes fill up while the other two keep the quorum
+        ConfigurationManager.getInstance().setConfiguration("storageReplicationRetryMs", 1000);
+        ConfigurationManager.getInstance().setConfiguration("storageReplicationMaxBacklog", MAX_BACKLOG);
+        file.stall = new CountDownLatch(1);
+        System.setOut(discard);
+        try {
+            storageFactory.enableReplication(2, StorageType.CLOUD, StorageType.DATABASE, StorageType.FILE);
+            replication = storageFactory.getReplication();
+            for (int i = 0; i < BACKLOG_IDS; i++) {
+                storageFactory.saveCredential(new Credential("backlog-" + i, "API Key", "value-" + i));
+            }
+            for (int i = 0; i < BACKLOG_IDS; i++) {
+                storageFactory.saveCredential(new Credential("backlog-0", "API Key", "rewrite-" + i));
+            }
+        } finally {
+            System.setOut(stdout);
+        }
+        check(replication.getQueuedWriteCount(StorageType.FILE) <= MAX_BACKLOG && !replication.isHealthy(StorageType.FILE),
+                "The stalled replica queued " + replication.getQueuedWriteCount(StorageType.FILE) + " writes and was marked unhealthy");
+        check(replication.getBehindCount() == BACKLOG_IDS, "Its backlog holds the latest write of each of the "
+                + BACKLOG_IDS + " ids once: " + replication.getBehindCount());
+        file.stall.countDown();
+        check(replication.awaitReplication(10, TimeUnit.SECONDS) && file.credentials.get("backlog-49").getValue().equals("value-49")
+                        && file.credentials.get("backlog-0").getValue().equals("rewrite-" + (BACKLOG_IDS - 1)),
+                "Once released it was repaired to the latest values");
+        ConfigurationManager.getInstance().setConfiguration("storageReplicationRetryMs", 50);
+        ConfigurationManager.getInstance().setConfiguration("storageReplicationMaxBacklog", null);
+
+        System.out.println("\n--- Closing ---");
+        ReplicatedStorageImplementor abandoned;
+        System.setOut(discard);
+        try {
+            storageFactory.enableReplication(2, StorageType.CLOUD, StorageType.DATABASE, StorageType.FILE);
+            abandoned = storageFactory.getReplication();
+            file.failures.set(Integer.MAX_VALUE);
+            storageFactory.saveCredential(new Credential("abandoned", "API Key", "value"));
+        } finally {
+            System.setOut(stdout);
+        }
+        check(!abandoned.close(200, TimeUnit.MILLISECONDS) && abandoned.getBehindCount() == 1,
+                "Close reports the repair it could not finish");
+        file.failures.set(0);
+
+        // Writes still queued on a stalled replica's lanes are dropped at close, not run afterwards
+        file.stall = new CountDownLatch(1);
+        System.setOut(discard);
+        try {
+            storageFactory.enableReplication(2, StorageType.CLOUD, StorageType.DATABASE, StorageType.FILE);
+            abandoned = storageFactory.getReplication();
+            for (int i = 0; i < 16; i++) {
+                storageFactory.saveCredential(new Credential("queued-" + i, "API Key", "value"));
+            }
+        } finally {
+            System.setOut(stdout);
+        }
+        check(!abandoned.close(200, TimeUnit.MILLISECONDS), "Close gives up on the stalled replica");
+        file.stall.countDown();
+        TimeUnit.MILLISECONDS.sleep(100);
+        int stored = 0;
+        for (int i = 0; i < 16; i++) {
+            if (file.credentials.containsKey("queued-" + i)) {
+                stored++;
+            }
+        }
+        check(stored <= 4 && abandoned.getQueuedWriteCount(StorageType.FILE) == 0,
+                "Only the " + stored + " writes already running when it closed reached the replica");
+
+        System.out.println("\n--- Disabling ---");
+        System.setOut(discard);
+        try {
+            storageFactory.enableReplication(2, StorageType.CLOUD, StorageType.DATABASE, StorageType.FILE);
+            replication = storageFactory.getReplication();
+            file.failures.set(1);
+            storageFactory.saveCredential(new Credential("drained", "API Key", "value"));
+            storageFactory.disableReplication();
+        } finally {
+            System.setOut(stdout);
+        }
+        check(storageFactory.getReplication() == null, "Default storage is a single type again");
+        check(file.credentials.containsKey("drained") && replication.getBehindCount() == 0,
+                "Pending repairs were drained before replication ended");
+
+        System.out.println("\nAll replication checks passed.");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    // In-memory implementor with fixed write and read latencies and injectable write failures
+    private static final class StubStorage implements StorageImplementor {
+        private final Map<String, Credential> credentials = new ConcurrentHashMap<>();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicLong reads = new AtomicLong();
+        // Writes wait here while it is set and not counted down
+        private volatile CountDownLatch stall;
+        private final long writeNanos;
+        private final long readNanos;
+
+        StubStorage(long writeNanos, long readNanos) {
+            this.writeNanos = writeNanos;
+            this.readNanos = readNanos;
+        }
+
+        @Override
+        public void storeCredential(Credential credential) {
+            write();
+            credentials.put(credential.getId(), credential);
+        }
+
+        @Override
+        public Credential retrieveCredential(String id) {
+            reads.incrementAndGet();
+            LockSupport.parkNanos(readNanos);
+            return credentials.get(id);
+        }
+
+        @Override
+        public void storeCredentials(Collection<Credential> batch) {
+            write();
+            for (Credential credential : batch) {
+                credentials.put(credential.getId(), credential);
+            }
+        }
+
+        @Override
+        public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+            reads.incrementAndGet();
+            LockSupport.parkNanos(readNanos);
+            Map<String, Credential> found = new LinkedHashMap<>();
+            for (String id : ids) {
+                Credential credential = credentials.get(id);
+                if (credential != null) {
+                    found.put(id, credential);
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public void allocateStorage() {
+        }
+
+        @Override
+        public void forEachCredential(Consumer<Credential> action) {
+            credentials.values().forEach(action);
+        }
+
+        private void write() {
+            if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+                throw new IllegalStateException("Simulated replica failure");
+            }
+            CountDownLatch latch = stall;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            LockSupport.parkNanos(writeNanos);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package src.com.es2.designpatterns.ResourcePool;
+
+import java.sql.SQLException;
+
+/**
+ * A small pool of JDBC connections, each with its own prepared-statement cache.
+ * This class is a specialized wrapper around the generic ObjectPool for PooledJdbcConnections.
+ */
+public class JdbcConnectionPool {
+    // The underlying object pool
+    private final ObjectPool<PooledJdbcConnection> pool;
+
+    // JDBC URL the connections are opened against
+    private final String url;
+
+    /**
+     * Creates a new JDBC connection pool. No connection is opened until one is requested.
+     *
+     * @param maxConnections The maximum number of connections in the pool
+     * @param url The JDBC URL
+     * @param user The database user, or null
+     * @param password The database password, or null
+     * @param maxStatements The number of prepared statements cached per connection
+     */
+    public JdbcConnectionPool(int maxConnections, String url, String user, String password, int maxStatements) {
+        this.url = url;
+        this.pool = new ObjectPool<>(maxConnections,
+            () -> new PooledJdbcConnection(url, user, password, maxStatements));
+    }
+
+    /**
+     * Gets a connection from the pool, opening it if needed.
+     *
+     * @return An open pooled connection
+     * @throws InterruptedException If the thread is interrupted while waiting
+     * @throws SQLException If the connection cannot be opened; the slot is returned to the pool
+     */
+    public PooledJdbcConnection getConnection() throws InterruptedException, SQLException {
+        PooledJdbcConnection connection = pool.acquire();
+
+        // Ensure the connection is open
+        if (!connection.isOpen()) {
+            try {
+                connection.open();
+            } catch (SQLException e) {
+                pool.release(connection);
+                throw e;
+            }
+        }
+
+        return connection;
+    }
+
+    /**
+     * Releases a connection back to the pool.
+     *
+     * @param connection The connection to release
+     */
+    public void releaseConnection(PooledJdbcConnection connection) {
+        pool.release(connection);
+    }
+
+    /**
+     * Closes all idle connections in the pool.
+     */
+    public void closeAll() {
+        pool.close(PooledJdbcConnection::invalidate);
+    }
+
+    /**
+     * Gets the number of connections currently in use.
+     *
+     * @return The number of connections in use
+     */
+    public int getInUseCount() {
+        return pool.getInUseCount();
+    }
+
+    /**
+     * Gets the JDBC URL of this pool.
+     *
+     * @return The JDBC URL
+     */
+    public String getUrl() {
+        return url;
+    }
+}
@@ -0,0 +1,104 @@
+package src.com.es2.designpatterns.ResourcePool;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A JDBC connection managed by a JdbcConnectionPool, together with a cache of its prepared statements.
+ * The connection is opened lazily, so creating the pooled object never fails; a connection that hit an
+ * error is invalidated and reopened the next time it is handed out.
+ */
+public class PooledJdbcConnection {
+    private static final Logger LOGGER = Logger.getLogger(PooledJdbcConnection.class.getName());
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Map<String, PreparedStatement> statements;
+    private Connection connection;
+
+    /**
+     * @param url The JDBC URL
+     * @param user The database user, or null
+     * @param password The database password, or null
+     * @param maxStatements The number of prepared statements kept open, least recently used evicted first
+     */
+    public PooledJdbcConnection(String url, String user, String password, int maxStatements) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > maxStatements) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Opens the underlying connection.
+     * @throws SQLException If the connection cannot be opened, e.g. because no driver accepts the URL
+     */
+    public void open() throws SQLException {
+        connection = user != null ? DriverManager.getConnection(url, user, password) : DriverManager.getConnection(url);
+    }
+
+    public boolean isOpen() {
+        return connection != null;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Gets a prepared statement for the SQL, preparing it on first use.
+     * @param sql The statement text, which is also the cache key
+     * @return The cached statement
+     * @throws SQLException If the statement cannot be prepared
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    // Closes the statements and the connection; the next open() starts afresh
+    public void invalidate() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Error closing JDBC connection", e);
+            }
+            connection = null;
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Error closing prepared statement", e);
+        }
+    }
+}
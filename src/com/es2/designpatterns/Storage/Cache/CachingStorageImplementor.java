@@ -0,0 +1,162 @@
+package src.com.es2.designpatterns.Storage.Cache;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.StorageImplementor;
+import src.com.es2.designpatterns.Storage.StorageType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Decorator that puts a read-through WTinyLfuCache in front of any StorageImplementor.
+ * Reads are served from the cache when possible and fill it on a miss. Writes go to the wrapped
+ * implementor first and then invalidate the cached entries, so the next read loads the stored value.
+ * The wrapped implementor is not changed.
+ *
+ * StorageFactory wraps the implementor of a StorageType when "<type>StorageCacheEnabled" is true,
+ * e.g. "cloudStorageCacheEnabled", sized by "<type>StorageCacheMaximumSize" and "<type>StorageCacheTtlMs".
+ */
+public class CachingStorageImplementor implements StorageImplementor {
+    private final StorageImplementor delegate;
+    private final WTinyLfuCache<String, Credential> cache;
+
+    /**
+     * @param delegate The implementor that stores the credentials
+     * @param maximumSize The maximum number of cached credentials
+     * @param ttlMillis How long a cached credential is served, or 0 to keep it until it is evicted or rewritten
+     */
+    public CachingStorageImplementor(StorageImplementor delegate, int maximumSize, long ttlMillis) {
+        this.delegate = delegate;
+        this.cache = new WTinyLfuCache<>(maximumSize, ttlMillis);
+    }
+
+    // Wraps the implementor if caching is enabled for the storage type in the ConfigurationManager
+    public static StorageImplementor wrapIfEnabled(StorageType type, StorageImplementor implementor) {
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        String prefix = type.name().toLowerCase() + "StorageCache";
+        if (implementor instanceof CachingStorageImplementor || !config.getConfiguration(prefix + "Enabled", false)) {
+            return implementor;
+        }
+        int maximumSize = config.getConfiguration(prefix + "MaximumSize", 10_000);
+        int ttlMillis = config.getConfiguration(prefix + "TtlMs", 300_000);
+        return new CachingStorageImplementor(implementor, maximumSize, ttlMillis);
+    }
+
+    @Override
+    public void storeCredential(Credential credential) {
+        delegate.storeCredential(credential);
+        cache.invalidate(credential.getId());
+    }
+
+    @Override
+    public Credential retrieveCredential(String id) {
+        Credential credential = cache.get(id);
+        if (credential != null) {
+            return credential;
+        }
+        long stamp = cache.stamp();
+        credential = delegate.retrieveCredential(id);
+        if (credential != null) {
+            cache.putIfNotInvalidated(id, credential, stamp);
+        }
+        return credential;
+    }
+
+    @Override
+    public void storeCredentials(Collection<Credential> credentials) {
+        delegate.storeCredentials(credentials);
+        for (Credential credential : credentials) {
+            cache.invalidate(credential.getId());
+        }
+    }
+
+    @Override
+    public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+        Map<String, Credential> cached = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            Credential credential = cache.get(id);
+            if (credential != null) {
+                cached.put(id, credential);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return cached;
+        }
+
+        long stamp = cache.stamp();
+        Map<String, Credential> loaded = delegate.retrieveCredentials(missing);
+        for (Map.Entry<String, Credential> entry : loaded.entrySet()) {
+            cache.putIfNotInvalidated(entry.getKey(), entry.getValue(), stamp);
+        }
+        // Keep the request order
+        Map<String, Credential> found = new LinkedHashMap<>();
+        for (String id : ids) {
+            Credential credential = cached.containsKey(id) ? cached.get(id) : loaded.get(id);
+            if (credential != null) {
+                found.put(id, credential);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void allocateStorage() {
+        delegate.allocateStorage();
+    }
+
+    @Override
+    public void forEachCredential(Consumer<Credential> action) {
+        delegate.forEachCredential(action);
+    }
+
+    @Override
+    public boolean removeCredential(String id) {
+        boolean removed = delegate.removeCredential(id);
+        cache.invalidate(id);
+        return removed;
+    }
+
+    public StorageImplementor getDelegate() {
+        return delegate;
+    }
+
+    // Drops every cached credential, e.g. after the backing store was changed outside this decorator
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public double getHitRate() {
+        return cache.getHitRate();
+    }
+
+    public int getCachedCount() {
+        return cache.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Cache over %s: %d/%d cached, %d hits, %d misses, %d evictions (%.1f%% hit rate)",
+                delegate.getClass().getSimpleName(), cache.size(), cache.getMaximumSize(), getHitCount(), getMissCount(),
+                getEvictionCount(), getHitRate() * 100);
+    }
+}
@@ -0,0 +1,339 @@
+package src.com.es2.designpatterns.Storage.Cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache using W-TinyLFU eviction.
+ * New entries go to a small LRU window, about 1% of the capacity. An entry that leaves the window
+ * competes with the oldest entry of the main segmented LRU. The one a FrequencySketch has seen more
+ * often stays; the other is evicted. So a burst of one-off keys cannot push out the popular ones.
+ * The main area has a probation segment and a protected segment, 80% of the main area. A hit on a
+ * probation entry promotes it to protected.
+ *
+ * Lookups read a ConcurrentHashMap without locking. Hits are recorded only if the policy lock is
+ * free at that moment, so contended reads never wait; losing some hits only makes frequencies
+ * slightly less exact. Writes, invalidations and evictions take the lock.
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+public class WTinyLfuCache<K, V> {
+    private static final int WINDOW = 1;
+    private static final int PROBATION = 2;
+    private static final int PROTECTED = 3;
+    private static final int REMOVED = 0;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessOrder<K, V> window = new AccessOrder<>();
+    private final AccessOrder<K, V> probation = new AccessOrder<>();
+    private final AccessOrder<K, V> protectedSegment = new AccessOrder<>();
+
+    private final int maximumSize;
+    private final int maximumWindow;
+    private final int maximumMain;
+    private final int maximumProtected;
+    private final long ttlNanos;
+
+    private int windowSize;
+    private int mainSize;
+    private int protectedSize;
+    // Bumped on every invalidation, so a value loaded before it is not cached afterwards
+    private volatile long invalidations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize The maximum number of entries
+     * @param ttlMillis How long an entry stays valid after it was written, or 0 to never expire
+     */
+    public WTinyLfuCache(int maximumSize, long ttlMillis) {
+        if (maximumSize <= 0 || ttlMillis < 0) {
+            throw new IllegalArgumentException("Invalid cache settings: maximum size " + maximumSize + ", TTL " + ttlMillis + " ms");
+        }
+        this.maximumSize = maximumSize;
+        this.maximumWindow = Math.max(1, maximumSize / 100);
+        this.maximumMain = maximumSize - maximumWindow;
+        this.maximumProtected = (int) (maximumMain * 0.8);
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Gets a cached value and records the hit or miss.
+     * @return The value, or null if the key is not cached or has expired
+     */
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (ttlNanos > 0 && System.nanoTime() - node.expiresAt > 0) {
+            misses.increment();
+            lock.lock();
+            try {
+                if (data.remove(key, node)) {
+                    unlink(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+            return null;
+        }
+        hits.increment();
+        if (lock.tryLock()) {
+            try {
+                if (node.queue != REMOVED) {
+                    sketch.increment(key.hashCode());
+                    onAccess(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    // Stamp to pass to putIfNotInvalidated by a caller about to load a value from the backing store
+    public long stamp() {
+        return invalidations;
+    }
+
+    /**
+     * Caches a loaded value unless any invalidation happened since the stamp was taken, so a slow
+     * load can never put back a value that a concurrent write has replaced.
+     * @return Whether the value was cached
+     */
+    public boolean putIfNotInvalidated(K key, V value, long stamp) {
+        lock.lock();
+        try {
+            if (stamp != invalidations) {
+                return false;
+            }
+            putLocked(key, value);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            putLocked(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            invalidations++;
+            Node<K, V> node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            invalidations++;
+            for (Node<K, V> node : data.values()) {
+                unlink(node);
+            }
+            data.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        return requests == 0 ? 0 : (double) hitCount / requests;
+    }
+
+    private void putLocked(K key, V value) {
+        sketch.increment(key.hashCode());
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            node.value = value;
+            node.expiresAt = System.nanoTime() + ttlNanos;
+            onAccess(node);
+            return;
+        }
+        node = new Node<>(key, value, System.nanoTime() + ttlNanos);
+        node.queue = WINDOW;
+        window.addLast(node);
+        windowSize++;
+        data.put(key, node);
+        evict();
+    }
+
+    private void onAccess(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedSegment.addLast(node);
+                protectedSize++;
+                if (protectedSize > maximumProtected) {
+                    // The least recent protected entry goes back to probation
+                    Node<K, V> demoted = protectedSegment.first();
+                    protectedSegment.remove(demoted);
+                    protectedSize--;
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            case PROTECTED:
+                protectedSegment.moveToLast(node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Moves window overflow into probation, then evicts the less frequent of it and the main area's oldest entry
+    private void evict() {
+        while (windowSize > maximumWindow) {
+            Node<K, V> candidate = window.first();
+            window.remove(candidate);
+            windowSize--;
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+            mainSize++;
+            if (mainSize <= maximumMain) {
+                continue;
+            }
+            Node<K, V> victim = probation.first() != candidate ? probation.first() : protectedSegment.first();
+            if (victim == null) {
+                evictNode(candidate);
+            } else if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+                evictNode(victim);
+            } else {
+                evictNode(candidate);
+            }
+        }
+    }
+
+    private void evictNode(Node<K, V> node) {
+        data.remove(node.key, node);
+        unlink(node);
+        evictions.increment();
+    }
+
+    private void unlink(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                windowSize--;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                mainSize--;
+                break;
+            case PROTECTED:
+                protectedSegment.remove(node);
+                protectedSize--;
+                mainSize--;
+                break;
+            default:
+                break;
+        }
+        node.queue = REMOVED;
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private volatile V value;
+        private volatile long expiresAt;
+        // Segment the node is linked into; changed only under the lock
+        private int queue;
+        private Node<K, V> previous;
+        private Node<K, V> next;
+
+        Node(K key, V value, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // Doubly linked list through the nodes, least recently used first
+    private static final class AccessOrder<K, V> {
+        private Node<K, V> head;
+        private Node<K, V> tail;
+
+        Node<K, V> first() {
+            return head;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.previous = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.previous == null) {
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+}
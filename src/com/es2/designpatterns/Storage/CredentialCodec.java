@@ -0,0 +1,184 @@
+package src.com.es2.designpatterns.Storage;
+
+import src.com.es2.designpatterns.Credential.Credential;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Binary serialization of credentials for the storage implementors that persist them.
+ *
+ * Layout: format version, id, name, value, creation timestamp, then the metadata entries as a count
+ * followed by key/tagged-value pairs. The id comes first so an index can be rebuilt by reading only
+ * the start of each record. Metadata values that are not a String, Integer, Long, Boolean or Double
+ * are stored as their toString().
+ *
+ * The value is encrypted with CredentialValueCipher when a "storageEncryptionKey" is configured, and
+ * stored in plaintext otherwise. The id, name and metadata are never encrypted, since the backends
+ * index and scan by them. Records written either way can be read back while the key is configured.
+ */
+public final class CredentialCodec {
+    private static final byte FORMAT_VERSION = 1;
+
+    // Metadata value tags
+    private static final byte TAG_STRING = 0;
+    private static final byte TAG_INTEGER = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_BOOLEAN = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_NULL = 5;
+
+    // Value kinds; the first two match the boolean the first format version wrote
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_PLAIN = 1;
+    private static final byte VALUE_ENCRYPTED = 2;
+
+    private CredentialCodec() {
+    }
+
+    public static byte[] encode(Credential credential) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeUTF(credential.getId());
+            out.writeUTF(credential.getName());
+            String value = credential.getValue();
+            CredentialValueCipher cipher = CredentialValueCipher.current();
+            if (value == null) {
+                out.writeByte(VALUE_NULL);
+            } else if (cipher.isEnabled()) {
+                byte[] sealed = cipher.encrypt(credential.getId(), value);
+                if (sealed.length > 0xFFFF) {
+                    throw new IOException("Encrypted value is longer than 65535 bytes");
+                }
+                out.writeByte(VALUE_ENCRYPTED);
+                out.writeShort(sealed.length);
+                out.write(sealed);
+            } else {
+                out.writeByte(VALUE_PLAIN);
+                out.writeUTF(value);
+            }
+            out.writeLong(credential.getTimestampMillis());
+
+            int[] count = new int[1];
+            credential.forEachMetadata((key, metadataValue) -> count[0]++);
+            out.writeShort(count[0]);
+            IOException[] failure = new IOException[1];
+            credential.forEachMetadata((key, metadataValue) -> {
+                try {
+                    out.writeUTF(key);
+                    writeTagged(out, metadataValue);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        } catch (IOException e) {
+            // Only reachable for values too long for the format, e.g. a string over 64 KB
+            throw new UncheckedIOException("Cannot encode credential " + credential.getId(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Credential decode(byte[] data, int offset, int length) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, length))) {
+            checkVersion(in);
+            String id = in.readUTF();
+            String name = in.readUTF();
+            String value = readValue(in, id);
+            long timestamp = in.readLong();
+            Credential credential = new Credential(id, name, value, timestamp);
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                credential.setMetadata(in.readUTF(), readTagged(in));
+            }
+            return credential;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt credential record", e);
+        }
+    }
+
+    public static Credential decode(byte[] data) {
+        return decode(data, 0, data.length);
+    }
+
+    // Reads only the id, for index rebuilds
+    public static String decodeId(byte[] data, int offset, int length) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, length))) {
+            checkVersion(in);
+            return in.readUTF();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt credential record", e);
+        }
+    }
+
+    private static String readValue(DataInputStream in, String id) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_PLAIN:
+                return in.readUTF();
+            case VALUE_ENCRYPTED:
+                byte[] sealed = new byte[in.readUnsignedShort()];
+                in.readFully(sealed);
+                return CredentialValueCipher.current().decrypt(id, sealed);
+            default:
+                throw new IOException("Unknown value kind: " + kind);
+        }
+    }
+
+    private static void checkVersion(DataInputStream in) throws IOException {
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported credential format version: " + version);
+        }
+    }
+
+    private static void writeTagged(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        } else {
+            out.writeByte(TAG_STRING);
+            out.writeUTF(value.toString());
+        }
+    }
+
+    private static Object readTagged(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_INTEGER:
+                return in.readInt();
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_BOOLEAN:
+                return in.readBoolean();
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_STRING:
+                return in.readUTF();
+            default:
+                throw new IOException("Unknown metadata tag: " + tag);
+        }
+    }
+}
@@ -2,6 +2,9 @@ package src.com.es2.designpatterns.Storage;
 
 import src.com.es2.designpatterns.Credential.Credential;
 
+import java.util.Collection;
+import java.util.Map;
+
 public class CredentialStorage extends Storage {
     private StorageType storageType;
     
@@ -34,6 +37,22 @@ public class CredentialStorage extends Storage {
         return credential;
     }
     
+    @Override
+    public void saveCredentials(Collection<Credential> credentials) {
+        // One line per batch rather than per credential
+        System.out.println("Preparing to store " + credentials.size() + " credentials");
+        
+        // Delegate the whole batch to the implementor
+        implementor.storeCredentials(credentials);
+    }
+    
+    @Override
+    public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+        Map<String, Credential> credentials = implementor.retrieveCredentials(ids);
+        System.out.println("Retrieved " + credentials.size() + " of " + ids.size() + " credentials");
+        return credentials;
+    }
+    
     @Override
     public StorageType getStorageType() {
         return storageType;
@@ -0,0 +1,115 @@
+package src.com.es2.designpatterns.Storage;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Generator.StripedSecureRandomSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encrypts credential values for CredentialCodec with AES-GCM.
+ *
+ * The key is the Base64 "storageEncryptionKey" configuration entry, e.g. one made by
+ * EncryptionEngine.generateKey(), and must have the size named by "encryptionAlgorithm" ("AES-256").
+ * EncryptionEngine itself is not used: it simulates a slow pooled resource and encrypts in ECB mode.
+ * Each value gets a random 96-bit IV, and the credential id is authenticated along with it, so a
+ * value copied into another record fails to decrypt.
+ */
+final class CredentialValueCipher {
+    private static final int IV_BYTES = 12;
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int TAG_BITS = 128;
+
+    private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(TRANSFORMATION + " is not available", e);
+        }
+    });
+
+    // The cipher for the current configuration, rebuilt when the configuration version changes
+    private static volatile CredentialValueCipher current;
+
+    private final long configVersion;
+    // Null when no key is configured and values are stored in plaintext
+    private final SecretKeySpec key;
+
+    private CredentialValueCipher(long configVersion, SecretKeySpec key) {
+        this.configVersion = configVersion;
+        this.key = key;
+    }
+
+    static CredentialValueCipher current() {
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        long version = config.getVersion();
+        CredentialValueCipher cipher = current;
+        if (cipher == null || cipher.configVersion != version) {
+            cipher = new CredentialValueCipher(version, keyFrom(config));
+            current = cipher;
+        }
+        return cipher;
+    }
+
+    boolean isEnabled() {
+        return key != null;
+    }
+
+    // Returns the IV followed by the ciphertext and tag
+    byte[] encrypt(String id, String value) {
+        byte[] iv = new byte[IV_BYTES];
+        StripedSecureRandomSource random = StripedSecureRandomSource.getInstance();
+        ByteBuffer.wrap(iv).putLong(random.nextLong()).putInt((int) random.nextLong());
+        try {
+            Cipher cipher = CIPHERS.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(id.getBytes(StandardCharsets.UTF_8));
+            byte[] plaintext = value.getBytes(StandardCharsets.UTF_8);
+            byte[] sealed = new byte[IV_BYTES + cipher.getOutputSize(plaintext.length)];
+            System.arraycopy(iv, 0, sealed, 0, IV_BYTES);
+            cipher.doFinal(plaintext, 0, plaintext.length, sealed, IV_BYTES);
+            return sealed;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot encrypt the value of credential " + id, e);
+        }
+    }
+
+    String decrypt(String id, byte[] sealed) {
+        if (key == null) {
+            throw new IllegalStateException("Credential " + id + " has an encrypted value, but no storageEncryptionKey is configured");
+        }
+        try {
+            Cipher cipher = CIPHERS.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, sealed, 0, IV_BYTES));
+            cipher.updateAAD(id.getBytes(StandardCharsets.UTF_8));
+            return new String(cipher.doFinal(sealed, IV_BYTES, sealed.length - IV_BYTES), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot decrypt the value of credential " + id
+                    + ": the storageEncryptionKey is wrong or the record is corrupt", e);
+        }
+    }
+
+    private static SecretKeySpec keyFrom(ConfigurationManager config) {
+        String encodedKey = config.getConfiguration("storageEncryptionKey");
+        if (encodedKey == null || encodedKey.isEmpty()) {
+            return null;
+        }
+        String algorithm = config.getConfiguration("encryptionAlgorithm", "AES-256");
+        int separator = algorithm.indexOf('-');
+        if (separator < 0 || !algorithm.substring(0, separator).equalsIgnoreCase("AES")) {
+            throw new IllegalArgumentException("Stored credential values can only be encrypted with AES, not " + algorithm);
+        }
+        byte[] keyBytes = Base64.getDecoder().decode(encodedKey);
+        int keyBits = Integer.parseInt(algorithm.substring(separator + 1));
+        if (keyBytes.length * 8 != keyBits) {
+            throw new IllegalArgumentException("storageEncryptionKey has " + keyBytes.length * 8 + " bits, but "
+                    + algorithm + " needs " + keyBits);
+        }
+        return new SecretKeySpec(keyBytes, "AES");
+    }
+}
@@ -1,26 +1,602 @@
 package src.com.es2.designpatterns.Storage.Implementors;
 
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
 import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.ResourcePool.ResourcePoolManager;
+import src.com.es2.designpatterns.ResourcePool.SecureConnection;
+import src.com.es2.designpatterns.Storage.CredentialCodec;
 import src.com.es2.designpatterns.Storage.StorageImplementor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Cloud backend that talks HTTP to an S3-compatible object store, using path-style URLs
+ * (endpoint/bucket/key) and plain PUT and GET requests.
+ *
+ * In the default "packed" layout, every store call writes its credentials into one pack object. A
+ * pack starts with a header listing the id, offset and length of each record, followed by the records
+ * serialized by CredentialCodec. A manifest maps each id to its pack and byte range, so a read is a
+ * ranged GET. A batch read merges the ranges that sit close together in the same pack into one GET.
+ * The manifest is checkpointed to a "manifest" object every few packs and on close(). On startup it is
+ * loaded and then brought up to date by reading the headers of the packs written after the checkpoint.
+ * A checkpoint covers only the packs up to the first one still being written. The number of a pack whose
+ * upload failed is filled with an empty pack after the next successful upload; replay skips up to
+ * "cloudStorageReplayGapPacks" missing numbers in a row, for gaps left when the writer stopped first.
+ * Packs are numbered from one writer, so only one implementor may write to a bucket.
+ * Space of overwritten records is not reclaimed.
+ * The "object-per-credential" layout stores one object per credential, as a baseline to measure against.
+ *
+ * Requests run while holding a lease on a connection from the ResourcePoolManager CLOUD pool, which
+ * bounds the number of concurrent requests. The JDK HTTP client keeps those sockets alive between
+ * requests. Requests are not signed, so the endpoint must be a local stand-in or a gateway that signs them.
+ *
+ * Without a "cloudStorageEndpoint" the implementor keeps credentials in memory, as it originally did.
+ *
+ * Configuration: "cloudStorageEndpoint", "cloudStorageBucket", "cloudStorageLayout",
+ * "cloudStorageCheckpointPacks", "cloudStorageReplayGapPacks", "cloudStorageMergeGapBytes" and
+ * "cloudStorageTimeoutMs".
+ */
 public class CloudStorageImplementor implements StorageImplementor {
-    private Map<String, Credential> cloudStorage = new HashMap<>();
-    
+    private static final Logger LOGGER = Logger.getLogger(CloudStorageImplementor.class.getName());
+
+    public static final String LAYOUT_PACKED = "packed";
+    public static final String LAYOUT_OBJECT_PER_CREDENTIAL = "object-per-credential";
+
+    private static final int PACK_MAGIC = 0x43504B31; // "CPK1"
+    private static final int MANIFEST_MAGIC = 0x434D4631; // "CMF1"
+    // Pack prefix: magic, record count and total header length
+    private static final int PACK_PREFIX_BYTES = 12;
+    private static final String MANIFEST_KEY = "manifest";
+
+    private final String endpoint;
+    private final String bucket;
+    private final boolean packed;
+    private final int checkpointPacks;
+    private final int replayGapPacks;
+    private final int mergeGapBytes;
+    private final int timeoutMillis;
+
+    // id -> location of its latest record
+    private final Map<String, Location> manifest = new ConcurrentHashMap<>();
+    private final AtomicLong lastPack = new AtomicLong();
+    private final AtomicLong packsSinceCheckpoint = new AtomicLong();
+    // Every pack up to completedPack was stored or failed; finishedPacks holds those finished above it
+    private final Object completionLock = new Object();
+    private long completedPack;
+    private final TreeSet<Long> finishedPacks = new TreeSet<>();
+    // Numbers of packs whose upload failed, to be filled with empty packs
+    private final Queue<Long> failedPacks = new ConcurrentLinkedQueue<>();
+    private final LongAdder requests = new LongAdder();
+
+    private final Object openLock = new Object();
+    private volatile boolean opened;
+    // In-memory storage used when no endpoint is configured; lock-free reads under concurrent writes
+    private final Map<String, Credential> cloudStorage = new ConcurrentHashMap<>();
+
+    public CloudStorageImplementor() {
+        this(ConfigurationManager.getInstance().getConfiguration("cloudStorageEndpoint"));
+    }
+
+    /**
+     * @param endpoint The object store URL, e.g. http://127.0.0.1:9000, or null to keep credentials in memory
+     */
+    public CloudStorageImplementor(String endpoint) {
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        this.endpoint = endpoint != null && endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.bucket = config.getConfiguration("cloudStorageBucket", "credentials");
+        String layout = config.getConfiguration("cloudStorageLayout", LAYOUT_PACKED);
+        if (!LAYOUT_PACKED.equals(layout) && !LAYOUT_OBJECT_PER_CREDENTIAL.equals(layout)) {
+            throw new IllegalArgumentException("Unknown cloud storage layout: " + layout);
+        }
+        this.packed = LAYOUT_PACKED.equals(layout);
+        this.checkpointPacks = config.getConfiguration("cloudStorageCheckpointPacks", 64);
+        this.replayGapPacks = config.getConfiguration("cloudStorageReplayGapPacks", 8);
+        this.mergeGapBytes = config.getConfiguration("cloudStorageMergeGapBytes", 4096);
+        this.timeoutMillis = config.getConfiguration("cloudStorageTimeoutMs", 10_000);
+    }
+
     @Override
     public void storeCredential(Credential credential) {
-        cloudStorage.put(credential.getId(), credential);
+        if (endpoint == null) {
+            cloudStorage.put(credential.getId(), credential);
+        } else {
+            store(Collections.singletonList(credential));
+        }
         System.out.println("Credential saved in Cloud Storage implementation.");
     }
-    
+
     @Override
     public Credential retrieveCredential(String id) {
-        return cloudStorage.get(id);
+        if (endpoint == null) {
+            return cloudStorage.get(id);
+        }
+        return retrieve(Collections.singletonList(id)).get(id);
+    }
+
+    @Override
+    public void storeCredentials(Collection<Credential> credentials) {
+        if (endpoint == null) {
+            for (Credential credential : credentials) {
+                cloudStorage.put(credential.getId(), credential);
+            }
+        } else {
+            store(credentials);
+        }
+        System.out.println(credentials.size() + " credentials saved in Cloud Storage implementation.");
+    }
+
+    @Override
+    public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+        if (endpoint == null) {
+            Map<String, Credential> found = new LinkedHashMap<>();
+            for (String id : ids) {
+                Credential credential = cloudStorage.get(id);
+                if (credential != null) {
+                    found.put(id, credential);
+                }
+            }
+            return found;
+        }
+        return retrieve(ids);
     }
-    
+
     @Override
     public void allocateStorage() {
         System.out.println("Allocating cloud storage resources.");
     }
-}
\ No newline at end of file
+
+    @Override
+    public void forEachCredential(Consumer<Credential> action) {
+        if (endpoint == null) {
+            cloudStorage.values().forEach(action);
+            return;
+        }
+        if (!packed) {
+            throw new UnsupportedOperationException("The object-per-credential layout keeps no manifest to enumerate");
+        }
+        ensureOpen();
+        List<String> ids = new ArrayList<>(manifest.keySet());
+        for (int from = 0; from < ids.size(); from += 1024) {
+            retrieve(ids.subList(from, Math.min(ids.size(), from + 1024))).values().forEach(action);
+        }
+    }
+
+    // Only the in-memory mode can remove; packs are append-only
+    @Override
+    public boolean removeCredential(String id) {
+        if (endpoint != null) {
+            throw new UnsupportedOperationException("The object store layouts do not support removal");
+        }
+        return cloudStorage.remove(id) != null;
+    }
+
+    // Writes the manifest checkpoint, so the next startup reads only the packs written after it
+    public synchronized void checkpoint() {
+        if (endpoint == null || !packed) {
+            return;
+        }
+        ensureOpen();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            // Packs up to this number are merged into the manifest; later ones are re-read on startup
+            long coveredPack;
+            synchronized (completionLock) {
+                coveredPack = completedPack;
+            }
+            Map<String, Location> snapshot = new HashMap<>(manifest);
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeLong(coveredPack);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Location> entry : snapshot.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().pack);
+                out.writeInt(entry.getValue().offset);
+                out.writeInt(entry.getValue().length);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        withLease(() -> {
+            request("PUT", MANIFEST_KEY, bytes.toByteArray(), -1, -1);
+            return null;
+        });
+        packsSinceCheckpoint.set(0);
+    }
+
+    // Checkpoints the manifest
+    public void close() {
+        checkpoint();
+    }
+
+    // Gets the number of HTTP requests sent
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public boolean isInMemory() {
+        return endpoint == null;
+    }
+
+    private void store(Collection<Credential> credentials) {
+        if (!packed) {
+            withLease(() -> {
+                for (Credential credential : credentials) {
+                    request("PUT", objectKey(credential.getId()), CredentialCodec.encode(credential), -1, -1);
+                }
+                return null;
+            });
+            return;
+        }
+        ensureOpen();
+
+        // Header: magic, count, header length, then (id, offset, length) per record; records follow
+        List<String> ids = new ArrayList<>(credentials.size());
+        List<byte[]> records = new ArrayList<>(credentials.size());
+        int headerBytes = PACK_PREFIX_BYTES;
+        for (Credential credential : credentials) {
+            ids.add(credential.getId());
+            records.add(CredentialCodec.encode(credential));
+            headerBytes += utfLength(credential.getId()) + 2 * Integer.BYTES;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(headerBytes + records.size() * 128);
+        List<Location> locations = new ArrayList<>(records.size());
+        long pack = lastPack.incrementAndGet();
+        try {
+            writePack(bytes, pack, ids, records, headerBytes, locations);
+            withLease(() -> {
+                request("PUT", packKey(pack), bytes.toByteArray(), -1, -1);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // The number stays unused until an empty pack fills it
+            failedPacks.add(pack);
+            finishPack(pack);
+            throw e;
+        }
+        // Publish the new locations only once the pack exists
+        for (int i = 0; i < ids.size(); i++) {
+            manifest.merge(ids.get(i), locations.get(i), (current, next) -> next.pack > current.pack ? next : current);
+        }
+        finishPack(pack);
+        fillFailedPacks();
+        if (packsSinceCheckpoint.incrementAndGet() >= checkpointPacks) {
+            checkpoint();
+        }
+    }
+
+    // Serializes a pack and collects the location of each record
+    private static void writePack(ByteArrayOutputStream bytes, long pack, List<String> ids, List<byte[]> records,
+                                  int headerBytes, List<Location> locations) {
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(PACK_MAGIC);
+            out.writeInt(records.size());
+            out.writeInt(headerBytes);
+            int offset = headerBytes;
+            for (int i = 0; i < records.size(); i++) {
+                out.writeUTF(ids.get(i));
+                out.writeInt(offset);
+                out.writeInt(records.get(i).length);
+                locations.add(new Location(pack, offset, records.get(i).length));
+                offset += records.get(i).length;
+            }
+            for (byte[] record : records) {
+                out.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Advances completedPack over the packs finished without a gap
+    private void finishPack(long pack) {
+        synchronized (completionLock) {
+            finishedPacks.add(pack);
+            while (finishedPacks.remove(completedPack + 1)) {
+                completedPack++;
+            }
+        }
+    }
+
+    // Writes empty packs over the numbers of failed uploads, so replay does not have to skip them
+    private void fillFailedPacks() {
+        Long pack;
+        while ((pack = failedPacks.poll()) != null) {
+            long failed = pack;
+            ByteArrayOutputStream empty = new ByteArrayOutputStream(PACK_PREFIX_BYTES);
+            writePack(empty, failed, Collections.emptyList(), Collections.emptyList(), PACK_PREFIX_BYTES, new ArrayList<>());
+            try {
+                withLease(() -> {
+                    request("PUT", packKey(failed), empty.toByteArray(), -1, -1);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                failedPacks.add(failed);
+                LOGGER.log(Level.WARNING, "Cannot fill failed pack " + packKey(failed) + " in bucket " + bucket, e);
+                return;
+            }
+        }
+    }
+
+    private Map<String, Credential> retrieve(Collection<String> ids) {
+        Map<String, Credential> found = new LinkedHashMap<>();
+        if (!packed) {
+            withLease(() -> {
+                for (String id : ids) {
+                    byte[] data = request("GET", objectKey(id), null, -1, -1);
+                    if (data != null) {
+                        found.put(id, CredentialCodec.decode(data));
+                    }
+                }
+                return null;
+            });
+            return found;
+        }
+        ensureOpen();
+
+        // Group the requested records by pack and sort them by offset
+        Map<Long, List<Map.Entry<String, Location>>> byPack = new HashMap<>();
+        for (String id : ids) {
+            Location location = manifest.get(id);
+            if (location != null) {
+                byPack.computeIfAbsent(location.pack, pack -> new ArrayList<>())
+                        .add(new AbstractMap.SimpleImmutableEntry<>(id, location));
+            }
+        }
+        Map<String, Credential> byId = new HashMap<>();
+        withLease(() -> {
+            for (List<Map.Entry<String, Location>> records : byPack.values()) {
+                records.sort((a, b) -> Integer.compare(a.getValue().offset, b.getValue().offset));
+                int start = 0;
+                while (start < records.size()) {
+                    // Extend the range while the next record starts within the merge gap
+                    int end = start;
+                    int rangeEnd = records.get(start).getValue().end();
+                    while (end + 1 < records.size() && records.get(end + 1).getValue().offset - rangeEnd <= mergeGapBytes) {
+                        end++;
+                        rangeEnd = Math.max(rangeEnd, records.get(end).getValue().end());
+                    }
+                    Location first = records.get(start).getValue();
+                    byte[] range = request("GET", packKey(first.pack), null, first.offset, rangeEnd - 1);
+                    if (range == null) {
+                        throw new IllegalStateException("Pack " + packKey(first.pack) + " is missing from bucket " + bucket);
+                    }
+                    for (int i = start; i <= end; i++) {
+                        Location location = records.get(i).getValue();
+                        byId.put(records.get(i).getKey(), CredentialCodec.decode(range, location.offset - first.offset, location.length));
+                    }
+                    start = end + 1;
+                }
+            }
+            return null;
+        });
+        for (String id : ids) {
+            Credential credential = byId.get(id);
+            if (credential != null) {
+                found.put(id, credential);
+            }
+        }
+        return found;
+    }
+
+    // Loads the manifest checkpoint and reads the headers of the packs written after it
+    private void ensureOpen() {
+        if (opened) {
+            return;
+        }
+        synchronized (openLock) {
+            if (opened) {
+                return;
+            }
+            withLease(() -> {
+                byte[] checkpoint = request("GET", MANIFEST_KEY, null, -1, -1);
+                if (checkpoint != null) {
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint));
+                    if (in.readInt() != MANIFEST_MAGIC) {
+                        throw new IllegalStateException("Corrupt manifest in bucket " + bucket);
+                    }
+                    lastPack.set(in.readLong());
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        manifest.put(in.readUTF(), new Location(in.readLong(), in.readInt(), in.readInt()));
+                    }
+                }
+                int replayed = 0;
+                long pack = lastPack.get();
+                // A failed upload may leave a missing number before later packs
+                for (int missing = 0; missing <= replayGapPacks; ) {
+                    pack++;
+                    byte[] prefix = request("GET", packKey(pack), null, 0, PACK_PREFIX_BYTES - 1);
+                    if (prefix == null) {
+                        missing++;
+                        continue;
+                    }
+                    missing = 0;
+                    int headerBytes = ByteBuffer.wrap(prefix).getInt(8);
+                    byte[] header = request("GET", packKey(pack), null, 0, headerBytes - 1);
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(header));
+                    if (in.readInt() != PACK_MAGIC) {
+                        throw new IllegalStateException("Corrupt pack " + packKey(pack) + " in bucket " + bucket);
+                    }
+                    int count = in.readInt();
+                    in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        // The checkpoint may already hold a later location for the id
+                        manifest.merge(in.readUTF(), new Location(pack, in.readInt(), in.readInt()),
+                                (current, next) -> next.pack > current.pack ? next : current);
+                    }
+                    lastPack.set(pack);
+                    replayed++;
+                }
+                synchronized (completionLock) {
+                    completedPack = lastPack.get();
+                }
+                LOGGER.log(Level.INFO, "Opened cloud storage {0}/{1}: {2} credentials, {3} packs read after the checkpoint",
+                        new Object[] {endpoint, bucket, manifest.size(), replayed});
+                return null;
+            });
+            opened = true;
+        }
+    }
+
+    // Runs the requests while holding a connection from the CLOUD pool
+    private <T> T withLease(HttpWork<T> work) {
+        ResourcePoolManager pools = ResourcePoolManager.getInstance();
+        SecureConnection lease;
+        try {
+            lease = pools.getConnection("CLOUD", true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a cloud connection", e);
+        }
+        try {
+            return work.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cloud storage request to " + endpoint + " failed", e);
+        } finally {
+            pools.releaseConnection(lease);
+        }
+    }
+
+    /**
+     * Sends one request and reads the whole response, which lets the JDK reuse the socket.
+     * A ranged GET answered with the whole object (200, from a server that ignores Range) is sliced
+     * to the range; a partial response must hold exactly the requested bytes.
+     * @return The response body, or null on 404
+     */
+    private byte[] request(String method, String key, byte[] body, long rangeStart, long rangeEnd) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(endpoint + "/" + bucket + "/" + key).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        if (rangeStart >= 0) {
+            connection.setRequestProperty("Range", "bytes=" + rangeStart + "-" + rangeEnd);
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+        }
+        requests.increment();
+        int status = connection.getResponseCode();
+        if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+            drain(connection.getErrorStream());
+            return null;
+        }
+        if (status / 100 != 2) {
+            drain(connection.getErrorStream());
+            throw new IOException(method + " " + key + " returned HTTP " + status);
+        }
+        byte[] response;
+        try (InputStream in = connection.getInputStream()) {
+            response = readAll(in);
+        }
+        if (rangeStart < 0) {
+            return response;
+        }
+        int length = (int) (rangeEnd - rangeStart + 1);
+        if (status == HttpURLConnection.HTTP_OK) {
+            if (response.length < rangeEnd + 1) {
+                throw new IOException(method + " " + key + " returned " + response.length + " bytes, range ends at " + rangeEnd);
+            }
+            return Arrays.copyOfRange(response, (int) rangeStart, (int) rangeEnd + 1);
+        }
+        String contentRange = connection.getHeaderField("Content-Range");
+        if (status != HttpURLConnection.HTTP_PARTIAL || response.length != length
+                || (contentRange != null && !contentRange.startsWith("bytes " + rangeStart + "-"))) {
+            throw new IOException(method + " " + key + " returned HTTP " + status + " with " + response.length + " bytes"
+                    + (contentRange != null ? " (" + contentRange + ")" : "") + " for range " + rangeStart + "-" + rangeEnd);
+        }
+        return response;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in != null) {
+            try (InputStream stream = in) {
+                readAll(stream);
+            }
+        }
+    }
+
+    private static String packKey(long pack) {
+        return String.format("packs/%016d", pack);
+    }
+
+    private static String objectKey(String id) throws IOException {
+        return "objects/" + URLEncoder.encode(id, "UTF-8");
+    }
+
+    // Length of a string as written by DataOutputStream.writeUTF
+    private static int utfLength(String value) {
+        int length = 2;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+        }
+        return length;
+    }
+
+    // Where a credential's latest record is: pack number and byte range
+    private static final class Location {
+        private final long pack;
+        private final int offset;
+        private final int length;
+
+        Location(long pack, int offset, int length) {
+            this.pack = pack;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        int end() {
+            return offset + length;
+        }
+    }
+
+    // Requests made under one connection lease
+    @FunctionalInterface
+    private interface HttpWork<T> {
+        T run() throws IOException;
+    }
+}
@@ -1,26 +1,357 @@
 package src.com.es2.designpatterns.Storage.Implementors;
 
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
 import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.ResourcePool.JdbcConnectionPool;
+import src.com.es2.designpatterns.ResourcePool.PooledJdbcConnection;
+import src.com.es2.designpatterns.Storage.CredentialCodec;
 import src.com.es2.designpatterns.Storage.StorageImplementor;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Database backend on an embedded JDBC database (H2 or SQLite), so it runs without an external server.
+ *
+ * Credentials are kept in one table keyed by id, with the credential serialized by CredentialCodec.
+ * Connections come from a small JdbcConnectionPool and every connection caches its prepared statements.
+ * Writes are upserts; batches are sent with addBatch/executeBatch in one transaction, and a batch
+ * retrieval is one IN query per chunk of ids.
+ *
+ * If no JDBC driver for the configured URL is on the classpath, the implementor logs a warning and
+ * keeps credentials in memory, as the original implementation did.
+ *
+ * Configuration: "databaseStorageUrl", "databaseStorageUser", "databaseStoragePassword",
+ * "databaseStoragePoolSize" and "databaseStorageBatchSize".
+ */
 public class DatabaseStorageImplementor implements StorageImplementor {
-    private Map<String, Credential> dbStorage = new HashMap<>();
-    
+    private static final Logger LOGGER = Logger.getLogger(DatabaseStorageImplementor.class.getName());
+
+    // Largest IN list; smaller lists are padded to a power of two so few statement variants are cached
+    private static final int MAX_IN_PARAMETERS = 512;
+    private static final int MAX_CACHED_STATEMENTS = 32;
+
+    private static final String SELECT_ONE = "SELECT payload FROM credentials WHERE id = ?";
+    private static final String SELECT_ALL = "SELECT payload FROM credentials";
+    private static final String DELETE_ONE = "DELETE FROM credentials WHERE id = ?";
+
+    // SQL dialects of the supported embedded databases
+    private enum Dialect {
+        H2("VARBINARY",
+           "MERGE INTO credentials (id, name, created_at, payload) KEY (id) VALUES (?, ?, ?, ?)"),
+        SQLITE("BLOB",
+           "INSERT INTO credentials (id, name, created_at, payload) VALUES (?, ?, ?, ?) "
+                + "ON CONFLICT (id) DO UPDATE SET name = excluded.name, created_at = excluded.created_at, payload = excluded.payload");
+
+        private final String binaryType;
+        private final String upsert;
+
+        Dialect(String binaryType, String upsert) {
+            this.binaryType = binaryType;
+            this.upsert = upsert;
+        }
+
+        static Dialect forUrl(String url) {
+            if (url.startsWith("jdbc:h2:")) {
+                return H2;
+            }
+            if (url.startsWith("jdbc:sqlite:")) {
+                return SQLITE;
+            }
+            throw new IllegalArgumentException("Unsupported database URL, expected jdbc:h2: or jdbc:sqlite: " + url);
+        }
+
+        // The primary key gives the id its unique index
+        String createTable() {
+            return "CREATE TABLE IF NOT EXISTS credentials ("
+                    + "id VARCHAR(128) NOT NULL PRIMARY KEY, "
+                    + "name VARCHAR(64) NOT NULL, "
+                    + "created_at BIGINT NOT NULL, "
+                    + "payload " + binaryType + " NOT NULL)";
+        }
+    }
+
+    private final String url;
+    private final Dialect dialect;
+    private final int batchSize;
+    private final JdbcConnectionPool pool;
+
+    private final Object openLock = new Object();
+    private volatile boolean opened;
+    // In-memory storage used when no JDBC driver is available
+    private volatile boolean inMemory;
+    private final Map<String, Credential> dbStorage = new ConcurrentHashMap<>();
+
+    public DatabaseStorageImplementor() {
+        this(ConfigurationManager.getInstance().getConfiguration("databaseStorageUrl", "jdbc:h2:./data/credential-db"));
+    }
+
+    public DatabaseStorageImplementor(String url) {
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        this.url = url;
+        this.dialect = Dialect.forUrl(url);
+        this.batchSize = config.getConfiguration("databaseStorageBatchSize", 500);
+        int poolSize = config.getConfiguration("databaseStoragePoolSize", 4);
+        if (batchSize <= 0 || poolSize <= 0) {
+            throw new IllegalArgumentException("Invalid database storage configuration: batch size " + batchSize
+                    + ", pool size " + poolSize);
+        }
+        String user = config.getConfiguration("databaseStorageUser");
+        String password = config.getConfiguration("databaseStoragePassword");
+        this.pool = new JdbcConnectionPool(poolSize, url, user, password, MAX_CACHED_STATEMENTS);
+    }
+
     @Override
     public void storeCredential(Credential credential) {
-        dbStorage.put(credential.getId(), credential);
+        ensureOpen();
+        if (inMemory) {
+            dbStorage.put(credential.getId(), credential);
+        } else {
+            withConnection(connection -> {
+                PreparedStatement upsert = connection.prepare(dialect.upsert);
+                bindUpsert(upsert, credential);
+                upsert.executeUpdate();
+                return null;
+            });
+        }
         System.out.println("Credential saved in Database Storage implementation.");
     }
-    
+
     @Override
     public Credential retrieveCredential(String id) {
-        return dbStorage.get(id);
+        ensureOpen();
+        if (inMemory) {
+            return dbStorage.get(id);
+        }
+        return withConnection(connection -> {
+            PreparedStatement select = connection.prepare(SELECT_ONE);
+            select.setString(1, id);
+            try (ResultSet result = select.executeQuery()) {
+                return result.next() ? CredentialCodec.decode(result.getBytes(1)) : null;
+            }
+        });
+    }
+
+    @Override
+    public void storeCredentials(Collection<Credential> credentials) {
+        ensureOpen();
+        if (inMemory) {
+            for (Credential credential : credentials) {
+                dbStorage.put(credential.getId(), credential);
+            }
+        } else {
+            withConnection(connection -> {
+                Connection jdbc = connection.getConnection();
+                jdbc.setAutoCommit(false);
+                try {
+                    PreparedStatement upsert = connection.prepare(dialect.upsert);
+                    int pending = 0;
+                    for (Credential credential : credentials) {
+                        bindUpsert(upsert, credential);
+                        upsert.addBatch();
+                        if (++pending == batchSize) {
+                            upsert.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) {
+                        upsert.executeBatch();
+                    }
+                    jdbc.commit();
+                } catch (SQLException | RuntimeException e) {
+                    // Roll back before autocommit is restored, which would otherwise commit the partial batch
+                    try {
+                        jdbc.rollback();
+                    } catch (SQLException rollbackFailure) {
+                        e.addSuppressed(rollbackFailure);
+                    }
+                    throw e;
+                } finally {
+                    jdbc.setAutoCommit(true);
+                }
+                return null;
+            });
+        }
+        System.out.println(credentials.size() + " credentials saved in Database Storage implementation.");
     }
-    
+
+    @Override
+    public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+        ensureOpen();
+        Map<String, Credential> found = new LinkedHashMap<>();
+        if (inMemory) {
+            for (String id : ids) {
+                Credential credential = dbStorage.get(id);
+                if (credential != null) {
+                    found.put(id, credential);
+                }
+            }
+            return found;
+        }
+
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<String, Credential> byId = withConnection(connection -> {
+            Map<String, Credential> rows = new HashMap<>();
+            for (int from = 0; from < unique.size(); from += MAX_IN_PARAMETERS) {
+                List<String> chunk = unique.subList(from, Math.min(unique.size(), from + MAX_IN_PARAMETERS));
+                int parameters = Math.min(MAX_IN_PARAMETERS, Integer.highestOneBit(chunk.size() * 2 - 1));
+                PreparedStatement select = connection.prepare(selectIn(parameters));
+                for (int i = 0; i < parameters; i++) {
+                    // Padding repeats the last id, which does not change the result
+                    select.setString(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                }
+                try (ResultSet result = select.executeQuery()) {
+                    while (result.next()) {
+                        rows.put(result.getString(1), CredentialCodec.decode(result.getBytes(2)));
+                    }
+                }
+            }
+            return rows;
+        });
+        for (String id : ids) {
+            Credential credential = byId.get(id);
+            if (credential != null) {
+                found.put(id, credential);
+            }
+        }
+        return found;
+    }
+
     @Override
     public void allocateStorage() {
         System.out.println("Allocating database storage resources.");
+        ensureOpen();
+    }
+
+    @Override
+    public void forEachCredential(Consumer<Credential> action) {
+        ensureOpen();
+        if (inMemory) {
+            dbStorage.values().forEach(action);
+            return;
+        }
+        withConnection(connection -> {
+            try (Statement select = connection.getConnection().createStatement()) {
+                select.setFetchSize(batchSize);
+                try (ResultSet result = select.executeQuery(SELECT_ALL)) {
+                    while (result.next()) {
+                        action.accept(CredentialCodec.decode(result.getBytes(1)));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean removeCredential(String id) {
+        ensureOpen();
+        if (inMemory) {
+            return dbStorage.remove(id) != null;
+        }
+        return withConnection(connection -> {
+            PreparedStatement delete = connection.prepare(DELETE_ONE);
+            delete.setString(1, id);
+            return delete.executeUpdate() > 0;
+        });
+    }
+
+    // Whether credentials are kept in memory because no JDBC driver was found
+    public boolean isInMemory() {
+        ensureOpen();
+        return inMemory;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    // Closes the idle pooled connections
+    public void close() {
+        pool.closeAll();
+    }
+
+    // Creates the schema on first use, or falls back to memory when no driver accepts the URL
+    private void ensureOpen() {
+        if (opened) {
+            return;
+        }
+        synchronized (openLock) {
+            if (opened) {
+                return;
+            }
+            try {
+                DriverManager.getDriver(url);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "No JDBC driver for {0}; database storage is kept in memory", url);
+                inMemory = true;
+                opened = true;
+                return;
+            }
+            withConnection(connection -> {
+                try (Statement statement = connection.getConnection().createStatement()) {
+                    statement.execute(dialect.createTable());
+                }
+                return null;
+            });
+            opened = true;
+        }
+    }
+
+    private <T> T withConnection(SqlWork<T> work) {
+        PooledJdbcConnection connection;
+        try {
+            connection = pool.getConnection();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a database connection", e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot connect to " + url, e);
+        }
+        try {
+            return work.run(connection);
+        } catch (SQLException e) {
+            // The connection may be broken; reopen it on its next use
+            connection.invalidate();
+            throw new IllegalStateException("Database storage operation failed on " + url, e);
+        } finally {
+            pool.releaseConnection(connection);
+        }
+    }
+
+    private static void bindUpsert(PreparedStatement upsert, Credential credential) throws SQLException {
+        upsert.setString(1, credential.getId());
+        upsert.setString(2, credential.getName());
+        upsert.setLong(3, credential.getTimestampMillis());
+        upsert.setBytes(4, CredentialCodec.encode(credential));
+    }
+
+    private static String selectIn(int parameters) {
+        StringBuilder sql = new StringBuilder("SELECT id, payload FROM credentials WHERE id IN (");
+        for (int i = 0; i < parameters; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    // A unit of work on a pooled connection
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run(PooledJdbcConnection connection) throws SQLException;
     }
-}
\ No newline at end of file
+}
@@ -1,26 +1,833 @@
 package src.com.es2.designpatterns.Storage.Implementors;
 
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
 import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.CredentialCodec;
 import src.com.es2.designpatterns.Storage.StorageImplementor;
-import java.util.HashMap;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
+/**
+ * Durable file backend built as an append-only log.
+ *
+ * Credentials are serialized with CredentialCodec and appended to numbered segment files; a record is
+ * its length, a CRC32 of the payload and the payload. An in-memory hash index maps each id to the
+ * segment and offset of its latest record, so a read is one positional read. The index is rebuilt on
+ * startup by scanning the segments in order, and a torn record at the end of the log is truncated.
+ * A removal appends a tombstone record for the id. Compaction keeps a tombstone while an older segment,
+ * which may still hold a record of the id, exists.
+ *
+ * Writes are group-committed: a store returns once a flusher thread has fsynced past its record, and
+ * the flusher syncs at most once per flush interval, so concurrent writers share one fsync.
+ * A background compactor rewrites the live records of segments that are mostly overwritten data and
+ * deletes them. The directory is locked so only one process or implementor instance uses it.
+ * Segment I/O runs on the calling threads; a channel closed because one of them was interrupted is
+ * reopened, so an interrupt never fails the other threads using the segment.
+ *
+ * Configuration: "fileStorageDirectory", "fileStorageFlushIntervalMs", "fileStorageSegmentBytes",
+ * "fileStorageCompactionIntervalMs" and "fileStorageCompactionThreshold" (live-data ratio below which
+ * a segment is compacted).
+ */
 public class FileStorageImplementor implements StorageImplementor {
-    private Map<String, Credential> fileStorage = new HashMap<>();
+    private static final Logger LOGGER = Logger.getLogger(FileStorageImplementor.class.getName());
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String LOCK_FILE = "LOCK";
+    // Record header: payload length and payload CRC32
+    private static final int RECORD_HEADER_BYTES = 8;
+    // Index entries pack the segment id above a 40-bit offset
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    private static final int MAX_READ_ATTEMPTS = 3;
+    // First payload byte of a tombstone; credential payloads start with the CredentialCodec version
+    private static final byte TOMBSTONE = (byte) 0xFF;
+
+    private final Path directory;
+    private final long flushIntervalNanos;
+    private final long segmentBytes;
+    private final long compactionIntervalMillis;
+    private final double compactionThreshold;
+
+    // id -> packed (segment, offset) of the latest record
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+    // id -> packed location of the tombstone of a removed id; written under appendLock
+    private final Map<String, Long> tombstones = new ConcurrentHashMap<>();
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+
+    // Serializes appends; guards active and writes to appendedSequence
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private Segment active;
+    private volatile long appendedSequence;
+
+    // Group commit state, guarded by syncMonitor
+    private final Object syncMonitor = new Object();
+    private volatile long syncedSequence;
+    private IOException syncFailure;
+    private boolean flusherStopped;
+
+    // The compactor waits on this between runs, so close() can wake it without interrupting its channel I/O
+    private final Object compactionMonitor = new Object();
+
+    private final Object openLock = new Object();
+    private volatile boolean opened;
+    private volatile boolean closed;
+    private FileChannel lockChannel;
+    private FileLock directoryLock;
+    private Thread flusher;
+    private Thread compactor;
+
+    public FileStorageImplementor() {
+        this(Paths.get(ConfigurationManager.getInstance().getConfiguration("fileStorageDirectory", "data/file-storage")));
+    }
+
+    public FileStorageImplementor(Path directory) {
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        this.directory = directory;
+        int flushIntervalMillis = config.getConfiguration("fileStorageFlushIntervalMs", 2);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        int configuredSegmentBytes = config.getConfiguration("fileStorageSegmentBytes", 64 * 1024 * 1024);
+        this.segmentBytes = configuredSegmentBytes;
+        int configuredCompactionInterval = config.getConfiguration("fileStorageCompactionIntervalMs", 30_000);
+        this.compactionIntervalMillis = configuredCompactionInterval;
+        this.compactionThreshold = config.getConfiguration("fileStorageCompactionThreshold", 0.5);
+        if (flushIntervalMillis < 0 || segmentBytes <= RECORD_HEADER_BYTES || compactionIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Invalid file storage configuration: flush interval " + flushIntervalMillis
+                    + " ms, segment size " + segmentBytes + " bytes, compaction interval " + compactionIntervalMillis + " ms");
+        }
+    }
 
     @Override
     public void storeCredential(Credential credential) {
-        fileStorage.put(credential.getId(), credential);
+        ensureOpen();
+        long sequence = append(Collections.singletonList(credential));
+        awaitDurable(sequence);
         System.out.println("Credential saved in File Storage implementation.");
     }
 
     @Override
     public Credential retrieveCredential(String id) {
-        return fileStorage.get(id);
+        ensureOpen();
+        return read(id);
+    }
+
+    @Override
+    public void storeCredentials(Collection<Credential> credentials) {
+        ensureOpen();
+        long sequence = append(credentials);
+        awaitDurable(sequence);
+        System.out.println(credentials.size() + " credentials saved in File Storage implementation.");
+    }
+
+    @Override
+    public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+        ensureOpen();
+        Map<String, Credential> found = new LinkedHashMap<>();
+        for (String id : ids) {
+            Credential credential = read(id);
+            if (credential != null) {
+                found.put(id, credential);
+            }
+        }
+        return found;
     }
 
     @Override
     public void allocateStorage() {
         System.out.println("Allocating file storage resources.");
+        ensureOpen();
+    }
+
+    @Override
+    public void forEachCredential(Consumer<Credential> action) {
+        ensureOpen();
+        for (String id : index.keySet()) {
+            Credential credential = read(id);
+            if (credential != null) {
+                action.accept(credential);
+            }
+        }
+    }
+
+    // Appends a tombstone and waits until it is durable
+    @Override
+    public boolean removeCredential(String id) {
+        ensureOpen();
+        long sequence;
+        appendLock.lock();
+        try {
+            if (!index.containsKey(id)) {
+                return false;
+            }
+            appendRecord(id, tombstonePayload(id));
+            sequence = ++appendedSequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to file storage in " + directory, e);
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(sequence);
+        return true;
+    }
+
+    /**
+     * Compacts every sealed segment whose live-data ratio is below the threshold, without waiting for
+     * the background compactor.
+     * @return The number of segments compacted
+     */
+    public int compact() {
+        ensureOpen();
+        return compactSealedSegments();
+    }
+
+    private synchronized int compactSealedSegments() {
+        int compacted = 0;
+        for (Segment segment : sealedSegments()) {
+            if (closed) {
+                break;
+            }
+            if (segment.size > 0 && (double) segment.liveBytes / segment.size < compactionThreshold
+                    && segments.containsKey(segment.id)) {
+                try {
+                    compactSegment(segment);
+                    compacted++;
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to compact " + segment.path, e);
+                }
+            }
+        }
+        return compacted;
+    }
+
+    /*
+     * Stops the background threads, syncs the log and releases the directory.
+     * The compactor is woken rather than interrupted: an interrupt during channel I/O would close the
+     * active segment's channel under concurrent writers.
+     */
+    public void close() {
+        synchronized (openLock) {
+            if (!opened || closed) {
+                closed = true;
+                return;
+            }
+            closed = true;
+        }
+        synchronized (compactionMonitor) {
+            compactionMonitor.notifyAll();
+        }
+        synchronized (syncMonitor) {
+            syncMonitor.notifyAll();
+        }
+        try {
+            flusher.join();
+            compactor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            appendLock.lock();
+            try {
+                force(active);
+            } finally {
+                appendLock.unlock();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to sync file storage in " + directory + " on close", e);
+        } finally {
+            for (Segment segment : segments.values()) {
+                segment.retire();
+            }
+            try {
+                directoryLock.release();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to release the lock on " + directory, e);
+            } finally {
+                closeQuietly(lockChannel);
+            }
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public int getIndexedCredentials() {
+        return index.size();
+    }
+
+    // Gets the bytes used by all segments, live and overwritten records alike
+    public long getDiskBytes() {
+        long bytes = 0;
+        for (Segment segment : segments.values()) {
+            bytes += segment.size;
+        }
+        return bytes;
+    }
+
+    // Opens the directory on first use: takes the lock, rebuilds the index and starts the background threads
+    private void ensureOpen() {
+        if (opened && !closed) {
+            return;
+        }
+        synchronized (openLock) {
+            if (closed) {
+                throw new IllegalStateException("File storage in " + directory + " is closed");
+            }
+            if (opened) {
+                return;
+            }
+            try {
+                Files.createDirectories(directory);
+                lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                try {
+                    directoryLock = lockChannel.tryLock();
+                } catch (OverlappingFileLockException e) {
+                    directoryLock = null;
+                }
+                if (directoryLock == null) {
+                    lockChannel.close();
+                    throw new IllegalStateException("File storage directory " + directory + " is already in use");
+                }
+                rebuildIndex();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open file storage in " + directory, e);
+            }
+
+            flusher = new Thread(this::flushLoop, "file-storage-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+            compactor = new Thread(this::compactionLoop, "file-storage-compactor");
+            compactor.setDaemon(true);
+            compactor.start();
+            opened = true;
+        }
+    }
+
+    // Scans every segment in order; later records of an id replace earlier ones
+    private void rebuildIndex() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(ids);
+
+        for (int i = 0; i < ids.size(); i++) {
+            Segment segment = openSegment(ids.get(i));
+            segments.put(segment.id, segment);
+            scanSegment(segment, i == ids.size() - 1);
+        }
+        if (ids.isEmpty()) {
+            active = openSegment(0);
+            segments.put(active.id, active);
+        } else {
+            active = segments.get(ids.get(ids.size() - 1));
+        }
+        LOGGER.log(Level.INFO, "Opened file storage in {0}: {1} credentials in {2} segments",
+                new Object[] {directory, index.size(), segments.size()});
+    }
+
+    private void scanSegment(Segment segment, boolean last) throws IOException {
+        long fileSize = segment.channel.size();
+        // Not closed: closing the stream would close the segment channel
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(segment.channel), 1 << 16));
+        CRC32 crc = new CRC32();
+        long position = 0;
+        while (fileSize - position >= RECORD_HEADER_BYTES) {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > fileSize - position - RECORD_HEADER_BYTES) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            int recordBytes = RECORD_HEADER_BYTES + length;
+            segment.liveBytes += recordBytes;
+            indexRecord(payloadId(payload, length), pack(segment.id, position), isTombstone(payload));
+            position += recordBytes;
+        }
+
+        segment.size = position;
+        if (position < fileSize) {
+            LOGGER.log(Level.WARNING, "Discarding {0} bytes of torn or corrupt records at the end of {1}",
+                    new Object[] {fileSize - position, segment.path});
+            if (last) {
+                segment.channel.truncate(position);
+            }
+        }
+    }
+
+    // Appends the credentials as one batch and returns the sequence the batch must be synced to
+    private long append(Collection<Credential> credentials) {
+        List<byte[]> payloads = new ArrayList<>(credentials.size());
+        for (Credential credential : credentials) {
+            payloads.add(CredentialCodec.encode(credential));
+        }
+        appendLock.lock();
+        try {
+            int i = 0;
+            for (Credential credential : credentials) {
+                appendRecord(credential.getId(), payloads.get(i++));
+            }
+            return ++appendedSequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to file storage in " + directory, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Must hold appendLock
+    private void appendRecord(String id, byte[] payload) throws IOException {
+        int recordBytes = RECORD_HEADER_BYTES + payload.length;
+        if (active.size > 0 && active.size + recordBytes > segmentBytes) {
+            rollSegment();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer record = ByteBuffer.allocate(recordBytes);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        record.flip();
+
+        long offset = active.size;
+        while (record.hasRemaining()) {
+            io(active, channel -> channel.write(record, offset + record.position()));
+        }
+        active.size += recordBytes;
+        active.liveBytes += recordBytes;
+        indexRecord(id, pack(active.id, offset), isTombstone(payload));
+    }
+
+    // Points the id at its newest record, or at nothing for a tombstone, and releases what that replaces
+    private void indexRecord(String id, long location, boolean tombstone) throws IOException {
+        Long previous = tombstone ? index.remove(id) : index.put(id, location);
+        if (previous != null) {
+            releaseRecord(previous);
+        }
+        Long previousTombstone = tombstone ? tombstones.put(id, location) : tombstones.remove(id);
+        if (previousTombstone != null) {
+            releaseRecord(previousTombstone);
+        }
+    }
+
+    // Seals the active segment and starts the next one; must hold appendLock
+    private void rollSegment() throws IOException {
+        force(active);
+        Segment next = openSegment(active.id + 1);
+        segments.put(next.id, next);
+        active = next;
+    }
+
+    // Marks an overwritten record as dead space in its segment
+    private void releaseRecord(long location) throws IOException {
+        Segment segment = segments.get(segmentOf(location));
+        if (segment != null) {
+            segment.liveBytes -= RECORD_HEADER_BYTES + readInt(segment, offsetOf(location));
+        }
+    }
+
+    private Credential read(String id) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            Long location = index.get(id);
+            if (location == null) {
+                return null;
+            }
+            Segment segment = segments.get(segmentOf(location));
+            if (segment == null) {
+                continue; // Compacted away after the index lookup
+            }
+            try {
+                long offset = offsetOf(location);
+                ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+                readFully(segment, header, offset);
+                int length = header.getInt(0);
+                if (length <= 0) {
+                    throw new IllegalStateException("Corrupt record for credential " + id + " in " + segment.path);
+                }
+                byte[] payload = new byte[length];
+                readFully(segment, ByteBuffer.wrap(payload), offset + RECORD_HEADER_BYTES);
+                CRC32 crc = new CRC32();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != header.getInt(4)) {
+                    throw new IllegalStateException("Checksum mismatch for credential " + id + " in " + segment.path);
+                }
+                return CredentialCodec.decode(payload);
+            } catch (ClosedChannelException e) {
+                // Compacted away while reading, look the id up again
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read credential " + id, e);
+            }
+        }
+        throw new IllegalStateException("Credential " + id + " kept moving during compaction");
+    }
+
+    // Blocks until the flusher has synced past the given sequence
+    private void awaitDurable(long sequence) {
+        synchronized (syncMonitor) {
+            syncMonitor.notifyAll();
+            boolean interrupted = false;
+            while (syncedSequence < sequence && syncFailure == null && !flusherStopped) {
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (syncedSequence >= sequence) {
+                return;
+            }
+            if (syncFailure != null) {
+                throw new UncheckedIOException("Failed to sync file storage in " + directory, syncFailure);
+            }
+            throw new IllegalStateException("File storage in " + directory + " was closed before the write was synced");
+        }
+    }
+
+    private void flushLoop() {
+        try {
+            syncUntilClosed();
+        } finally {
+            synchronized (syncMonitor) {
+                flusherStopped = true;
+                syncMonitor.notifyAll();
+            }
+        }
+    }
+
+    private void syncUntilClosed() {
+        long lastSync = System.nanoTime() - flushIntervalNanos;
+        while (true) {
+            long target;
+            Segment segment;
+            try {
+                synchronized (syncMonitor) {
+                    while (!closed && appendedSequence <= syncedSequence) {
+                        syncMonitor.wait();
+                    }
+                }
+                // Let more writers join this sync if the previous one was recent
+                long wait = lastSync + flushIntervalNanos - System.nanoTime();
+                if (wait > 0 && !closed) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            } catch (InterruptedException e) {
+                // Not restored: forcing the channel on an interrupted thread would close it
+            }
+
+            appendLock.lock();
+            try {
+                target = appendedSequence;
+                segment = active;
+            } finally {
+                appendLock.unlock();
+            }
+            try {
+                force(segment);
+            } catch (ClosedChannelException e) {
+                // A sealed segment was synced by rollSegment before it was compacted; a closed active one was not
+                if (isActive(segment)) {
+                    failSync(e);
+                    return;
+                }
+            } catch (IOException e) {
+                failSync(e);
+                return;
+            }
+            lastSync = System.nanoTime();
+            synchronized (syncMonitor) {
+                syncedSequence = target;
+                syncMonitor.notifyAll();
+                if (closed && appendedSequence <= syncedSequence) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void failSync(IOException e) {
+        synchronized (syncMonitor) {
+            syncFailure = e;
+            syncMonitor.notifyAll();
+        }
+        LOGGER.log(Level.SEVERE, "Failed to sync file storage in " + directory, e);
+    }
+
+    private boolean isActive(Segment segment) {
+        appendLock.lock();
+        try {
+            return segment == active;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void compactionLoop() {
+        while (true) {
+            synchronized (compactionMonitor) {
+                long deadline = System.currentTimeMillis() + compactionIntervalMillis;
+                long remaining = compactionIntervalMillis;
+                while (!closed && remaining > 0) {
+                    try {
+                        compactionMonitor.wait(remaining);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            }
+            if (closed) {
+                return;
+            }
+            compactSealedSegments();
+        }
+    }
+
+    private List<Segment> sealedSegments() {
+        appendLock.lock();
+        try {
+            List<Segment> sealed = new ArrayList<>();
+            for (Segment segment : segments.values()) {
+                if (segment != active) {
+                    sealed.add(segment);
+                }
+            }
+            sealed.sort((a, b) -> Integer.compare(a.id, b.id));
+            return sealed;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Copies the records the index still points to into the active segment, then deletes the segment
+    private void compactSegment(Segment segment) throws IOException {
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        while (position < segment.size) {
+            header.clear();
+            readFully(segment, header, position);
+            int length = header.getInt(0);
+            byte[] payload = new byte[length];
+            readFully(segment, ByteBuffer.wrap(payload), position + RECORD_HEADER_BYTES);
+            String id = payloadId(payload, length);
+            long location = pack(segment.id, position);
+
+            appendLock.lock();
+            try {
+                // Skip records that were overwritten, including while this segment was being copied
+                Long current = isTombstone(payload) ? tombstones.get(id) : index.get(id);
+                if (current != null && current == location) {
+                    if (!isTombstone(payload) || hasOlderSegment(segment)) {
+                        appendRecord(id, payload);
+                    } else {
+                        // No older record is left for the tombstone to hide
+                        tombstones.remove(id);
+                    }
+                }
+            } finally {
+                appendLock.unlock();
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+
+        appendLock.lock();
+        try {
+            force(active);
+            segments.remove(segment.id);
+        } finally {
+            appendLock.unlock();
+        }
+        segment.retire();
+        Files.deleteIfExists(segment.path);
+        LOGGER.log(Level.FINE, "Compacted {0}", segment.path);
+    }
+
+    private boolean hasOlderSegment(Segment segment) {
+        for (int id : segments.keySet()) {
+            if (id < segment.id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] tombstonePayload(String id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(3 + id.length());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(TOMBSTONE);
+            out.writeUTF(id);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static boolean isTombstone(byte[] payload) {
+        return payload[0] == TOMBSTONE;
+    }
+
+    private static String payloadId(byte[] payload, int length) throws IOException {
+        if (!isTombstone(payload)) {
+            return CredentialCodec.decodeId(payload, 0, length);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 1, length - 1))) {
+            return in.readUTF();
+        }
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Path path = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to close a file storage channel", e);
+        }
+    }
+
+    private static int readInt(Segment segment, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+        readFully(segment, buffer, position);
+        return buffer.getInt(0);
+    }
+
+    private static void readFully(Segment segment, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = io(segment, channel -> channel.read(buffer, position + buffer.position()));
+            if (read < 0) {
+                throw new IOException("Unexpected end of segment at " + (position + buffer.position()));
+            }
+        }
+    }
+
+    private static void force(Segment segment) throws IOException {
+        io(segment, channel -> {
+            channel.force(false);
+            return null;
+        });
+    }
+
+    /*
+     * Runs one operation on a segment's channel. An interrupted thread's channel I/O closes the channel
+     * for every thread, so a channel closed that way is reopened and the operation retried; the
+     * interrupted caller gets its interrupt status back afterwards. Positional reads, writes and forces
+     * can be repeated safely. Only a retired segment reports ClosedChannelException.
+     */
+    private static <T> T io(Segment segment, ChannelOperation<T> operation) throws IOException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                FileChannel channel = segment.channel;
+                try {
+                    return operation.run(channel);
+                } catch (ClosedByInterruptException e) {
+                    interrupted = true;
+                    Thread.interrupted(); // Cleared for the retry
+                    segment.reopen(channel);
+                } catch (ClosedChannelException e) {
+                    // Closed by another thread's interrupt, unless the segment was retired
+                    segment.reopen(channel);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChannelOperation<T> {
+        T run(FileChannel channel) throws IOException;
+    }
+
+    private static long pack(int segment, long offset) {
+        return ((long) segment << OFFSET_BITS) | offset;
+    }
+
+    private static int segmentOf(long location) {
+        return (int) (location >>> OFFSET_BITS);
+    }
+
+    private static long offsetOf(long location) {
+        return location & OFFSET_MASK;
+    }
+
+    // One log file; size and liveBytes are written under appendLock
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private volatile FileChannel channel;
+        private volatile long size;
+        private volatile long liveBytes;
+        // Set once the segment is compacted away or the storage closed
+        private boolean retired;
+
+        Segment(int id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+
+        // Replaces a channel closed by an interrupt; a retired segment stays closed
+        synchronized void reopen(FileChannel closedChannel) throws IOException {
+            if (retired) {
+                throw new ClosedChannelException();
+            }
+            if (channel == closedChannel) {
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        }
+
+        synchronized void retire() {
+            retired = true;
+            closeQuietly(channel);
+        }
     }
 }
@@ -0,0 +1,600 @@
+package src.com.es2.designpatterns.Storage.Implementors;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.CredentialCodec;
+import src.com.es2.designpatterns.Storage.StorageImplementor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-optimized file backend that keeps credentials in memory-mapped files.
+ *
+ * Each credential is serialized with CredentialCodec into a fixed-size slot of slots.dat; a credential
+ * too large for a slot goes to overflow.dat and its slot holds the overflow position. index.dat is an
+ * open-addressing hash table, also memory-mapped, from a 64-bit hash of the id to the slot number.
+ * A read probes the mapped index and copies one slot out of the page cache, so nothing is loaded or
+ * deserialized at startup and no system call is made on the read path.
+ *
+ * An overwrite writes the new value to a fresh slot, repoints the index entry and only then frees the
+ * old slot. Freed slots are chained into a free list through the slots themselves; overflow space of
+ * overwritten values is not reclaimed. A removal frees the slot and shifts the following entries of its
+ * probe run back, so the index needs no deletion markers. Changes reach disk when the operating system writes back the
+ * mapped pages, and are only guaranteed to be durable and consistent after flush() or close().
+ * Overflow I/O runs on the calling threads; a channel closed because one of them was interrupted is
+ * reopened, as in FileStorageImplementor.
+ *
+ * Configuration: "mappedStorageDirectory", "mappedStorageSlotBytes" and "mappedStorageInitialSlots".
+ */
+public class MappedStorageImplementor implements StorageImplementor {
+    private static final Logger LOGGER = Logger.getLogger(MappedStorageImplementor.class.getName());
+
+    private static final String INDEX_FILE = "index.dat";
+    private static final String SLOTS_FILE = "slots.dat";
+    private static final String OVERFLOW_FILE = "overflow.dat";
+    private static final String LOCK_FILE = "LOCK";
+
+    // Index header, stored at the start of index.dat
+    private static final int MAGIC = 0x4D534931; // "MSI1"
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_SLOT_BYTES = 4;
+    private static final int HEADER_INDEX_CAPACITY = 8;
+    private static final int HEADER_COUNT = 12;
+    private static final int HEADER_SLOT_HIGH_WATER = 16;
+    private static final int HEADER_SLOT_CAPACITY = 20;
+    private static final int HEADER_FREE_HEAD = 24;
+    private static final int HEADER_OVERFLOW_END = 28;
+    private static final int HEADER_BYTES = 64;
+
+    // Index entry: 64-bit id hash and slot number plus one, 0 meaning the entry is empty
+    private static final int ENTRY_BYTES = 12;
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+    private static final double MAX_LOAD_FACTOR = 0.7;
+
+    // Slot header: flags and payload length, then the payload or an overflow reference
+    private static final int SLOT_HEADER_BYTES = 8;
+    private static final int FLAG_FREE = 1;
+    private static final int FLAG_OVERFLOW = 1 << 1;
+    private static final int NO_SLOT = -1;
+
+    private final Path directory;
+    private final int slotBytes;
+    private final int initialSlots;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object openLock = new Object();
+    // Guards replacing overflowChannel; separate from openLock, which close() holds while taking the write lock
+    private final Object overflowLock = new Object();
+    private volatile boolean opened;
+    private volatile boolean closed;
+    private FileChannel lockChannel;
+    private FileLock directoryLock;
+    private FileChannel indexChannel;
+    private FileChannel slotsChannel;
+    private volatile FileChannel overflowChannel;
+    // Remapped when the store grows, always under the write lock
+    private MappedByteBuffer index;
+    private MappedByteBuffer slots;
+
+    public MappedStorageImplementor() {
+        this(Paths.get(ConfigurationManager.getInstance().getConfiguration("mappedStorageDirectory", "data/mapped-storage")));
+    }
+
+    public MappedStorageImplementor(Path directory) {
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        this.directory = directory;
+        this.slotBytes = config.getConfiguration("mappedStorageSlotBytes", 256);
+        this.initialSlots = config.getConfiguration("mappedStorageInitialSlots", 4096);
+        if (slotBytes < SLOT_HEADER_BYTES + Long.BYTES + Integer.BYTES || initialSlots <= 0) {
+            throw new IllegalArgumentException("Invalid mapped storage configuration: slot size " + slotBytes
+                    + " bytes, initial slots " + initialSlots);
+        }
+    }
+
+    @Override
+    public void storeCredential(Credential credential) {
+        ensureOpen();
+        byte[] payload = CredentialCodec.encode(credential);
+        lock.writeLock().lock();
+        try {
+            put(credential.getId(), payload);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("Credential saved in Mapped Storage implementation.");
+    }
+
+    @Override
+    public Credential retrieveCredential(String id) {
+        ensureOpen();
+        lock.readLock().lock();
+        try {
+            return get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void storeCredentials(Collection<Credential> credentials) {
+        ensureOpen();
+        byte[][] payloads = new byte[credentials.size()][];
+        int i = 0;
+        for (Credential credential : credentials) {
+            payloads[i++] = CredentialCodec.encode(credential);
+        }
+        lock.writeLock().lock();
+        try {
+            i = 0;
+            for (Credential credential : credentials) {
+                put(credential.getId(), payloads[i++]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println(credentials.size() + " credentials saved in Mapped Storage implementation.");
+    }
+
+    @Override
+    public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+        ensureOpen();
+        Map<String, Credential> found = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String id : ids) {
+                Credential credential = get(id);
+                if (credential != null) {
+                    found.put(id, credential);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    @Override
+    public void allocateStorage() {
+        System.out.println("Allocating mapped storage resources.");
+        ensureOpen();
+    }
+
+    @Override
+    public void forEachCredential(Consumer<Credential> action) {
+        ensureOpen();
+        lock.readLock().lock();
+        try {
+            int capacity = index.getInt(HEADER_INDEX_CAPACITY);
+            for (int entry = 0; entry < capacity; entry++) {
+                int slot = entrySlot(entry);
+                if (slot != NO_SLOT) {
+                    action.accept(CredentialCodec.decode(readPayload(slot)));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean removeCredential(String id) {
+        ensureOpen();
+        lock.writeLock().lock();
+        try {
+            int entry = findEntry(id, hash(id));
+            if (entry < 0) {
+                return false;
+            }
+            int slot = entrySlot(entry);
+            deleteEntry(entry);
+            freeSlot(slot);
+            index.putInt(HEADER_COUNT, index.getInt(HEADER_COUNT) - 1);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Writes the mapped pages and the overflow file to disk
+    public void flush() {
+        ensureOpen();
+        lock.writeLock().lock();
+        try {
+            slots.force();
+            index.force();
+            overflowIo(channel -> {
+                channel.force(false);
+                return null;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to flush mapped storage in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Flushes and releases the directory
+    public void close() {
+        synchronized (openLock) {
+            if (!opened || closed) {
+                closed = true;
+                return;
+            }
+            flush();
+            closed = true;
+            try {
+                indexChannel.close();
+                slotsChannel.close();
+                synchronized (overflowLock) {
+                    overflowChannel.close();
+                }
+                directoryLock.release();
+                lockChannel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Error closing mapped storage in " + directory, e);
+            }
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getCredentialCount() {
+        ensureOpen();
+        lock.readLock().lock();
+        try {
+            return index.getInt(HEADER_COUNT);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Maps the files on first use; only the index header is read
+    private void ensureOpen() {
+        if (opened && !closed) {
+            return;
+        }
+        synchronized (openLock) {
+            if (closed) {
+                throw new IllegalStateException("Mapped storage in " + directory + " is closed");
+            }
+            if (opened) {
+                return;
+            }
+            try {
+                Files.createDirectories(directory);
+                lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                try {
+                    directoryLock = lockChannel.tryLock();
+                } catch (OverlappingFileLockException e) {
+                    directoryLock = null;
+                }
+                if (directoryLock == null) {
+                    lockChannel.close();
+                    throw new IllegalStateException("Mapped storage directory " + directory + " is already in use");
+                }
+
+                Path indexFile = directory.resolve(INDEX_FILE);
+                boolean created = !Files.exists(indexFile) || Files.size(indexFile) == 0;
+                indexChannel = open(indexFile);
+                slotsChannel = open(directory.resolve(SLOTS_FILE));
+                overflowChannel = open(directory.resolve(OVERFLOW_FILE));
+                if (created) {
+                    index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexFileBytes(INITIAL_INDEX_CAPACITY));
+                    index.putInt(HEADER_MAGIC, MAGIC);
+                    index.putInt(HEADER_SLOT_BYTES, slotBytes);
+                    index.putInt(HEADER_INDEX_CAPACITY, INITIAL_INDEX_CAPACITY);
+                    index.putInt(HEADER_SLOT_CAPACITY, initialSlots);
+                    index.putInt(HEADER_FREE_HEAD, NO_SLOT);
+                } else {
+                    index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+                    if (index.getInt(HEADER_MAGIC) != MAGIC) {
+                        throw new IllegalStateException("Not a mapped credential store: " + indexFile);
+                    }
+                    if (index.getInt(HEADER_SLOT_BYTES) != slotBytes) {
+                        throw new IllegalStateException("Mapped storage in " + directory + " uses "
+                                + index.getInt(HEADER_SLOT_BYTES) + "-byte slots, configured " + slotBytes);
+                    }
+                }
+                slots = slotsChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        (long) index.getInt(HEADER_SLOT_CAPACITY) * slotBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open mapped storage in " + directory, e);
+            }
+            opened = true;
+        }
+    }
+
+    // Must hold the read lock
+    private Credential get(String id) {
+        int entry = findEntry(id, hash(id));
+        if (entry < 0) {
+            return null;
+        }
+        return CredentialCodec.decode(readPayload(entrySlot(entry)));
+    }
+
+    // Must hold the write lock
+    private void put(String id, byte[] payload) {
+        int slot = allocateSlot();
+        writeSlot(slot, payload);
+
+        long hash = hash(id);
+        int entry = findEntry(id, hash);
+        if (entry >= 0) {
+            int previous = entrySlot(entry);
+            index.putInt(entryOffset(entry) + Long.BYTES, slot + 1);
+            freeSlot(previous);
+            return;
+        }
+        if (index.getInt(HEADER_COUNT) + 1 > index.getInt(HEADER_INDEX_CAPACITY) * MAX_LOAD_FACTOR) {
+            growIndex();
+        }
+        entry = -(findEntry(id, hash) + 1);
+        index.putLong(entryOffset(entry), hash);
+        index.putInt(entryOffset(entry) + Long.BYTES, slot + 1);
+        index.putInt(HEADER_COUNT, index.getInt(HEADER_COUNT) + 1);
+    }
+
+    /**
+     * Linear probing from the hash. Entries whose hash matches are confirmed against the id stored in
+     * their slot, so hash collisions cannot return the wrong credential.
+     * @return The entry holding the id, or -(empty entry + 1) when the id is absent
+     */
+    private int findEntry(String id, long hash) {
+        int mask = index.getInt(HEADER_INDEX_CAPACITY) - 1;
+        int entry = (int) (hash ^ (hash >>> 32)) & mask;
+        while (true) {
+            int slot = entrySlot(entry);
+            if (slot == NO_SLOT) {
+                return -(entry + 1);
+            }
+            if (index.getLong(entryOffset(entry)) == hash) {
+                byte[] payload = readPayload(slot);
+                if (id.equals(CredentialCodec.decodeId(payload, 0, payload.length))) {
+                    return entry;
+                }
+            }
+            entry = (entry + 1) & mask;
+        }
+    }
+
+    // Empties the entry, moving back later entries of the run that would no longer be reachable
+    private void deleteEntry(int entry) {
+        int mask = index.getInt(HEADER_INDEX_CAPACITY) - 1;
+        int gap = entry;
+        int next = entry;
+        while (true) {
+            next = (next + 1) & mask;
+            int slotPlusOne = index.getInt(entryOffset(next) + Long.BYTES);
+            if (slotPlusOne == 0) {
+                break;
+            }
+            long hash = index.getLong(entryOffset(next));
+            int home = (int) (hash ^ (hash >>> 32)) & mask;
+            // The entry stays if its home lies cyclically after the gap, up to its own position
+            if (((next - home) & mask) < ((next - gap) & mask)) {
+                continue;
+            }
+            index.putLong(entryOffset(gap), hash);
+            index.putInt(entryOffset(gap) + Long.BYTES, slotPlusOne);
+            gap = next;
+        }
+        index.putLong(entryOffset(gap), 0);
+        index.putInt(entryOffset(gap) + Long.BYTES, 0);
+    }
+
+    private int entrySlot(int entry) {
+        return index.getInt(entryOffset(entry) + Long.BYTES) - 1;
+    }
+
+    private static int entryOffset(int entry) {
+        return HEADER_BYTES + entry * ENTRY_BYTES;
+    }
+
+    private static long indexFileBytes(int capacity) {
+        return HEADER_BYTES + (long) capacity * ENTRY_BYTES;
+    }
+
+    // Rehashes into an index of twice the capacity, written to a new file and swapped in with a rename
+    private void growIndex() {
+        int capacity = index.getInt(HEADER_INDEX_CAPACITY);
+        int newCapacity = capacity * 2;
+        Path indexFile = directory.resolve(INDEX_FILE);
+        Path temporary = directory.resolve(INDEX_FILE + ".tmp");
+        try {
+            FileChannel newChannel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer grown = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexFileBytes(newCapacity));
+            for (int offset = 0; offset < HEADER_BYTES; offset += Integer.BYTES) {
+                grown.putInt(offset, index.getInt(offset));
+            }
+            grown.putInt(HEADER_INDEX_CAPACITY, newCapacity);
+            int mask = newCapacity - 1;
+            for (int entry = 0; entry < capacity; entry++) {
+                int slotPlusOne = index.getInt(entryOffset(entry) + Long.BYTES);
+                if (slotPlusOne != 0) {
+                    long hash = index.getLong(entryOffset(entry));
+                    int target = (int) (hash ^ (hash >>> 32)) & mask;
+                    while (grown.getInt(entryOffset(target) + Long.BYTES) != 0) {
+                        target = (target + 1) & mask;
+                    }
+                    grown.putLong(entryOffset(target), hash);
+                    grown.putInt(entryOffset(target) + Long.BYTES, slotPlusOne);
+                }
+            }
+            grown.force();
+            Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            indexChannel.close();
+            indexChannel = newChannel;
+            index = grown;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to grow the mapped storage index in " + directory, e);
+        }
+    }
+
+    // Pops the free list, or takes the next unused slot, doubling the slots file when it is full
+    private int allocateSlot() {
+        int free = index.getInt(HEADER_FREE_HEAD);
+        if (free != NO_SLOT) {
+            index.putInt(HEADER_FREE_HEAD, slots.getInt(slotOffset(free) + SLOT_HEADER_BYTES));
+            return free;
+        }
+        int slot = index.getInt(HEADER_SLOT_HIGH_WATER);
+        int capacity = index.getInt(HEADER_SLOT_CAPACITY);
+        if (slot == capacity) {
+            long newCapacity = (long) capacity * 2;
+            if (newCapacity * slotBytes > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Mapped storage in " + directory + " is full: " + capacity + " slots");
+            }
+            try {
+                slots = slotsChannel.map(FileChannel.MapMode.READ_WRITE, 0, newCapacity * slotBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to grow the mapped storage slots in " + directory, e);
+            }
+            index.putInt(HEADER_SLOT_CAPACITY, (int) newCapacity);
+        }
+        index.putInt(HEADER_SLOT_HIGH_WATER, slot + 1);
+        return slot;
+    }
+
+    private void freeSlot(int slot) {
+        int offset = slotOffset(slot);
+        slots.putInt(offset, FLAG_FREE);
+        slots.putInt(offset + SLOT_HEADER_BYTES, index.getInt(HEADER_FREE_HEAD));
+        index.putInt(HEADER_FREE_HEAD, slot);
+    }
+
+    private void writeSlot(int slot, byte[] payload) {
+        int offset = slotOffset(slot);
+        if (payload.length <= slotBytes - SLOT_HEADER_BYTES) {
+            ByteBuffer target = slots.duplicate();
+            target.position(offset + SLOT_HEADER_BYTES);
+            target.put(payload);
+            slots.putInt(offset + Integer.BYTES, payload.length);
+            slots.putInt(offset, 0);
+            return;
+        }
+        long overflowOffset = index.getLong(HEADER_OVERFLOW_END);
+        try {
+            ByteBuffer source = ByteBuffer.wrap(payload);
+            while (source.hasRemaining()) {
+                overflowIo(channel -> channel.write(source, overflowOffset + source.position()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write to the mapped storage overflow file in " + directory, e);
+        }
+        index.putLong(HEADER_OVERFLOW_END, overflowOffset + payload.length);
+        slots.putLong(offset + SLOT_HEADER_BYTES, overflowOffset);
+        slots.putInt(offset + Integer.BYTES, payload.length);
+        slots.putInt(offset, FLAG_OVERFLOW);
+    }
+
+    private byte[] readPayload(int slot) {
+        int offset = slotOffset(slot);
+        int flags = slots.getInt(offset);
+        byte[] payload = new byte[slots.getInt(offset + Integer.BYTES)];
+        if ((flags & FLAG_OVERFLOW) == 0) {
+            ByteBuffer source = slots.duplicate();
+            source.position(offset + SLOT_HEADER_BYTES);
+            source.get(payload);
+            return payload;
+        }
+        long overflowOffset = slots.getLong(offset + SLOT_HEADER_BYTES);
+        try {
+            ByteBuffer target = ByteBuffer.wrap(payload);
+            while (target.hasRemaining()) {
+                if (overflowIo(channel -> channel.read(target, overflowOffset + target.position())) < 0) {
+                    throw new IllegalStateException("Overflow record of slot " + slot + " is truncated in " + directory);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the mapped storage overflow file in " + directory, e);
+        }
+        return payload;
+    }
+
+    /*
+     * Runs one positional operation on the overflow channel. A thread interrupted during channel I/O
+     * closes the channel for every thread, so a channel closed that way is reopened and the operation
+     * retried; the interrupted caller gets its interrupt status back afterwards.
+     */
+    private <T> T overflowIo(ChannelOperation<T> operation) throws IOException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                FileChannel channel = overflowChannel;
+                try {
+                    return operation.run(channel);
+                } catch (ClosedByInterruptException e) {
+                    interrupted = true;
+                    Thread.interrupted(); // Cleared for the retry
+                    reopenOverflow(channel);
+                } catch (ClosedChannelException e) {
+                    // Closed by another thread's interrupt, unless the storage was closed
+                    reopenOverflow(channel);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void reopenOverflow(FileChannel closedChannel) throws IOException {
+        synchronized (overflowLock) {
+            if (closed) {
+                throw new ClosedChannelException();
+            }
+            if (overflowChannel == closedChannel) {
+                overflowChannel = open(directory.resolve(OVERFLOW_FILE));
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChannelOperation<T> {
+        T run(FileChannel channel) throws IOException;
+    }
+
+    private int slotOffset(int slot) {
+        return slot * slotBytes;
+    }
+
+    // 64-bit FNV-1a over the id characters
+    private static long hash(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+}
@@ -0,0 +1,598 @@
+package src.com.es2.designpatterns.Storage.Replication;
+
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.Storage;
+import src.com.es2.designpatterns.Storage.StorageImplementor;
+import src.com.es2.designpatterns.Storage.StorageType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * StorageImplementor that writes every credential to several storage types in parallel.
+ *
+ * A write returns once writeQuorum replicas have stored it, so its latency is that of the slowest
+ * replica in the quorum, not the sum of all of them. The remaining replicas finish in the background.
+ * A replica whose write failed is marked behind for that id, and a repair thread stores the latest
+ * value there later. On each replica, writes and repairs of one id run in order on the same lane
+ * thread, so an older value never overwrites a newer one.
+ *
+ * A write that misses the quorum throws, but it is not rolled back: the replicas that acknowledged it
+ * keep it, and the others are repaired to it like any other write. Its outcome is unknown to the caller
+ * rather than failed, so callers that need to know should read the id back or write it again.
+ *
+ * Reads go to the healthy replica with the lowest read latency (an exponentially weighted moving
+ * average). Replicas still behind for the id are skipped. Now and then a read goes to the second
+ * fastest replica, so a replica that was slow once can win again. After three consecutive failures a
+ * replica is unhealthy for the retry interval. Writes to it are then only queued for repair.
+ *
+ * A replica falling behind does not grow its lane queues without limit: once maxBacklog writes wait on
+ * its lanes, it is marked unhealthy and further writes are only recorded as behind. That map holds the
+ * latest write per id, so rewriting an id does not add to it, and repairs store only the latest value.
+ *
+ * Each replica is a bridge Storage. Its current implementor is used on every call, so switchImplementor
+ * also applies to replicated writes.
+ */
+public class ReplicatedStorageImplementor implements StorageImplementor {
+    private static final Logger LOGGER = Logger.getLogger(ReplicatedStorageImplementor.class.getName());
+
+    private static final int LANES = 4;
+    private static final int FAILURES_BEFORE_UNHEALTHY = 3;
+    private static final double LATENCY_WEIGHT = 0.2;
+    private static final int EXPLORE_ONE_IN = 64;
+    private static final long DEFAULT_DRAIN_MILLIS = 5_000;
+    private static final int DEFAULT_MAX_BACKLOG = 10_000;
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final int writeQuorum;
+    private final long retryNanos;
+    private final int maxBacklog;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Thread repairer;
+    // closed stops new writes; once close() has drained them or given up, repairs stop and queued lane tasks are skipped
+    private volatile boolean closed;
+    private volatile boolean stopped;
+
+    private final LongAdder quorumWrites = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private final LongAdder repairs = new LongAdder();
+
+    /**
+     * @param replicas The storages to replicate to, by type
+     * @param writeQuorum How many replicas must store a write before it returns
+     * @param retryMillis How long an unhealthy replica is skipped, and how often repairs are retried
+     */
+    public ReplicatedStorageImplementor(Map<StorageType, Storage> replicas, int writeQuorum, long retryMillis) {
+        this(replicas, writeQuorum, retryMillis, DEFAULT_MAX_BACKLOG);
+    }
+
+    /**
+     * @param replicas The storages to replicate to, by type
+     * @param writeQuorum How many replicas must store a write before it returns
+     * @param retryMillis How long an unhealthy replica is skipped, and how often repairs are retried
+     * @param maxBacklog How many writes may wait on a replica's lanes before it is marked unhealthy
+     */
+    public ReplicatedStorageImplementor(Map<StorageType, Storage> replicas, int writeQuorum, long retryMillis, int maxBacklog) {
+        if (replicas.isEmpty() || writeQuorum <= 0 || writeQuorum > replicas.size() || retryMillis <= 0 || maxBacklog <= 0) {
+            throw new IllegalArgumentException("Invalid replication settings: " + replicas.size() + " replicas, write quorum "
+                    + writeQuorum + ", retry " + retryMillis + " ms, backlog " + maxBacklog);
+        }
+        for (Map.Entry<StorageType, Storage> entry : replicas.entrySet()) {
+            this.replicas.add(new Replica(entry.getKey(), entry.getValue()));
+        }
+        this.writeQuorum = writeQuorum;
+        this.retryNanos = TimeUnit.MILLISECONDS.toNanos(retryMillis);
+        this.maxBacklog = maxBacklog;
+        this.repairer = new Thread(this::runRepairs, "replication-repair");
+        repairer.setDaemon(true);
+        repairer.start();
+    }
+
+    @Override
+    public void storeCredential(Credential credential) {
+        replicate(Collections.singletonList(credential));
+    }
+
+    @Override
+    public void storeCredentials(Collection<Credential> credentials) {
+        if (!credentials.isEmpty()) {
+            replicate(credentials);
+        }
+    }
+
+    @Override
+    public Credential retrieveCredential(String id) {
+        RuntimeException failure = null;
+        for (Replica replica : readOrder()) {
+            if (replica.behind.containsKey(id)) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                Credential credential = replica.implementor().retrieveCredential(id);
+                replica.recordRead(System.nanoTime() - start);
+                return credential;
+            } catch (RuntimeException e) {
+                replica.recordFailure();
+                failure = e;
+            }
+        }
+        // Every replica is behind for this id or failed; the latest write is still pending somewhere
+        for (Replica replica : replicas) {
+            Pending pending = replica.behind.get(id);
+            if (pending != null) {
+                return pending.credentials.get(id);
+            }
+        }
+        if (failure != null) {
+            throw new IllegalStateException("No replica could serve credential " + id, failure);
+        }
+        return null;
+    }
+
+    @Override
+    public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+        Map<String, Credential> found = new LinkedHashMap<>();
+        Set<String> remaining = new LinkedHashSet<>(ids);
+        for (Replica replica : readOrder()) {
+            List<String> askable = new ArrayList<>();
+            for (String id : remaining) {
+                if (!replica.behind.containsKey(id)) {
+                    askable.add(id);
+                }
+            }
+            if (askable.isEmpty()) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                found.putAll(replica.implementor().retrieveCredentials(askable));
+                replica.recordRead(System.nanoTime() - start);
+                remaining.removeAll(askable);
+            } catch (RuntimeException e) {
+                replica.recordFailure();
+            }
+            if (remaining.isEmpty()) {
+                break;
+            }
+        }
+        for (String id : remaining) {
+            Credential credential = retrieveCredential(id);
+            if (credential != null) {
+                found.put(id, credential);
+            }
+        }
+        // Keep the request order
+        Map<String, Credential> ordered = new LinkedHashMap<>();
+        for (String id : ids) {
+            Credential credential = found.get(id);
+            if (credential != null) {
+                ordered.put(id, credential);
+            }
+        }
+        return ordered;
+    }
+
+    // The replicas are allocated by the StorageFactory that owns them
+    @Override
+    public void allocateStorage() {
+    }
+
+    // Enumerates the fastest replica that is not behind on any write
+    @Override
+    public void forEachCredential(Consumer<Credential> action) {
+        for (Replica replica : readOrder()) {
+            if (replica.behind.isEmpty()) {
+                replica.implementor().forEachCredential(action);
+                return;
+            }
+        }
+        throw new IllegalStateException("Every replica has writes pending; retry once repairs have caught up");
+    }
+
+    /**
+     * Waits until no replica is behind or the timeout expires.
+     * @return Whether every replica caught up
+     */
+    public boolean awaitReplication(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (System.nanoTime() < deadline) {
+            if (getBehindCount() == 0) {
+                return true;
+            }
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        return getBehindCount() == 0;
+    }
+
+    // Closes after waiting up to the default drain time for pending writes and repairs
+    public void close() {
+        close(DEFAULT_DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops accepting writes, waits up to the timeout for the replicas to catch up, then stops the repair
+     * thread and the replica lanes. Writes still behind at that point are logged and abandoned; those
+     * queued on a lane are skipped rather than run.
+     * @return Whether every replica caught up before closing
+     */
+    public boolean close(long timeout, TimeUnit unit) {
+        synchronized (this) {
+            if (closed) {
+                return getBehindCount() == 0;
+            }
+            closed = true;
+        }
+        boolean caughtUp;
+        try {
+            caughtUp = awaitReplication(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            caughtUp = getBehindCount() == 0;
+        }
+        stopped = true;
+        repairer.interrupt();
+        for (Replica replica : replicas) {
+            for (ExecutorService lane : replica.lanes) {
+                lane.shutdown();
+            }
+        }
+        if (!caughtUp) {
+            for (Replica replica : replicas) {
+                if (!replica.behind.isEmpty()) {
+                    LOGGER.log(Level.WARNING, "Closing replicated storage with {0} credentials never stored in replica {1}",
+                            new Object[] {replica.behind.size(), replica.type});
+                }
+            }
+        }
+        return caughtUp;
+    }
+
+    public int getWriteQuorum() {
+        return writeQuorum;
+    }
+
+    public List<StorageType> getReplicaTypes() {
+        List<StorageType> types = new ArrayList<>();
+        for (Replica replica : replicas) {
+            types.add(replica.type);
+        }
+        return types;
+    }
+
+    public long getQuorumWriteCount() {
+        return quorumWrites.sum();
+    }
+
+    // Writes that returned an error because fewer than writeQuorum replicas stored them
+    public long getFailedWriteCount() {
+        return failedWrites.sum();
+    }
+
+    public long getRepairCount() {
+        return repairs.sum();
+    }
+
+    // Number of (replica, credential) pairs with a write in flight or waiting for repair
+    public int getBehindCount() {
+        int behind = 0;
+        for (Replica replica : replicas) {
+            behind += replica.behind.size();
+        }
+        return behind;
+    }
+
+    // Writes queued on a replica's lanes and not started yet
+    public int getQueuedWriteCount(StorageType type) {
+        return replica(type).queued.get();
+    }
+
+    public boolean isHealthy(StorageType type) {
+        return replica(type).isHealthy();
+    }
+
+    // Read latency moving average of a replica in nanoseconds
+    public double getReadLatencyNanos(StorageType type) {
+        return replica(type).readLatency;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("Replicated to ");
+        for (Replica replica : replicas) {
+            text.append(String.format("%s (%s, %.0f ns reads, %d behind) ", replica.type,
+                    replica.isHealthy() ? "healthy" : "unhealthy", replica.readLatency, replica.behind.size()));
+        }
+        return text.append(String.format("quorum %d/%d: %d writes, %d failed, %d repairs", writeQuorum, replicas.size(),
+                getQuorumWriteCount(), getFailedWriteCount(), getRepairCount())).toString();
+    }
+
+    // Sends the batch to every replica and waits for the write quorum
+    private void replicate(Collection<Credential> credentials) {
+        if (closed) {
+            throw new IllegalStateException("Replicated storage is closed");
+        }
+        List<List<Credential>> byLane = new ArrayList<>(LANES);
+        for (int i = 0; i < LANES; i++) {
+            byLane.add(new ArrayList<>());
+        }
+        for (Credential credential : credentials) {
+            byLane.get(laneOf(credential.getId())).add(credential);
+        }
+
+        CompletableFuture<Void> quorum = new CompletableFuture<>();
+        AtomicInteger acknowledged = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        int allowedFailures = replicas.size() - writeQuorum;
+        for (Replica replica : replicas) {
+            boolean accepting = replica.accepting();
+            AtomicInteger lanesLeft = new AtomicInteger();
+            AtomicInteger laneFailures = new AtomicInteger();
+            Runnable onLaneDone = () -> {
+                if (lanesLeft.decrementAndGet() > 0) {
+                    return;
+                }
+                if (laneFailures.get() == 0) {
+                    if (acknowledged.incrementAndGet() == writeQuorum) {
+                        quorum.complete(null);
+                    }
+                } else if (failed.incrementAndGet() == allowedFailures + 1) {
+                    quorum.completeExceptionally(new IllegalStateException("Write quorum not reached: " + failed.get()
+                            + " of " + replicas.size() + " replicas failed, " + writeQuorum + " acknowledgements needed"));
+                }
+            };
+            for (int lane = 0; lane < LANES; lane++) {
+                if (!byLane.get(lane).isEmpty()) {
+                    lanesLeft.incrementAndGet();
+                }
+            }
+            for (int lane = 0; lane < LANES; lane++) {
+                List<Credential> group = byLane.get(lane);
+                if (group.isEmpty()) {
+                    continue;
+                }
+                Pending pending = new Pending(sequence.incrementAndGet(), group);
+                for (Credential credential : group) {
+                    replica.behind.merge(credential.getId(), pending, (current, next) -> next.sequence > current.sequence ? next : current);
+                }
+                Runnable dropped = () -> {
+                    pending.failed = true;
+                    laneFailures.incrementAndGet();
+                    onLaneDone.run();
+                };
+                if (!accepting) {
+                    dropped.run();
+                    continue;
+                }
+                replica.submit(lane, () -> {
+                    if (!replica.write(pending)) {
+                        laneFailures.incrementAndGet();
+                    }
+                    onLaneDone.run();
+                }, dropped);
+            }
+        }
+
+        try {
+            quorum.join();
+            quorumWrites.increment();
+        } catch (CompletionException e) {
+            failedWrites.increment();
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private List<Replica> readOrder() {
+        List<Replica> order = new ArrayList<>();
+        for (Replica replica : replicas) {
+            if (replica.isHealthy()) {
+                order.add(replica);
+            }
+        }
+        order.sort(Comparator.comparingDouble(replica -> replica.readLatency));
+        if (order.size() > 1 && ThreadLocalRandom.current().nextInt(EXPLORE_ONE_IN) == 0) {
+            Collections.swap(order, 0, 1);
+        }
+        // Unhealthy replicas are the last resort
+        for (Replica replica : replicas) {
+            if (!order.contains(replica)) {
+                order.add(replica);
+            }
+        }
+        return order;
+    }
+
+    private void runRepairs() {
+        while (!stopped) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(retryNanos);
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (Replica replica : replicas) {
+                if (!replica.isHealthy() && System.nanoTime() < replica.retryAt) {
+                    continue;
+                }
+                Set<Pending> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (Pending pending : replica.behind.values()) {
+                    if (pending.failed) {
+                        failed.add(pending);
+                    }
+                }
+                for (Pending pending : failed) {
+                    if (replica.queued.get() >= maxBacklog) {
+                        break;
+                    }
+                    pending.failed = false;
+                    replica.submit(laneOf(pending.credentials.keySet().iterator().next()), () -> {
+                        if (replica.write(pending)) {
+                            repairs.increment();
+                        }
+                    }, () -> pending.failed = true);
+                }
+            }
+        }
+    }
+
+    private Replica replica(StorageType type) {
+        for (Replica replica : replicas) {
+            if (replica.type == type) {
+                return replica;
+            }
+        }
+        throw new IllegalArgumentException("Not a replica: " + type);
+    }
+
+    private static int laneOf(String id) {
+        int hash = id.hashCode();
+        return ((hash ^ (hash >>> 16)) & 0x7fffffff) % LANES;
+    }
+
+    // Credentials written to one replica lane in one call, newest write first per id
+    private static final class Pending {
+        private final long sequence;
+        private final Map<String, Credential> credentials = new LinkedHashMap<>();
+        private volatile boolean failed;
+
+        Pending(long sequence, List<Credential> group) {
+            this.sequence = sequence;
+            for (Credential credential : group) {
+                credentials.put(credential.getId(), credential);
+            }
+        }
+    }
+
+    private final class Replica {
+        private final StorageType type;
+        private final Storage storage;
+        private final ExecutorService[] lanes = new ExecutorService[LANES];
+        // Ids whose latest write this replica has not stored yet
+        private final Map<String, Pending> behind = new ConcurrentHashMap<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private volatile double readLatency;
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile long retryAt;
+
+        Replica(StorageType type, Storage storage) {
+            this.type = type;
+            this.storage = storage;
+            for (int i = 0; i < LANES; i++) {
+                String name = "replica-" + type.name().toLowerCase() + "-" + i;
+                lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+
+        StorageImplementor implementor() {
+            return storage.getImplementor();
+        }
+
+        boolean isHealthy() {
+            return consecutiveFailures.get() < FAILURES_BEFORE_UNHEALTHY || System.nanoTime() >= retryAt;
+        }
+
+        // Whether new writes go to the lanes; a replica with a full backlog is marked unhealthy instead
+        boolean accepting() {
+            if (!isHealthy()) {
+                return false;
+            }
+            if (queued.get() < maxBacklog) {
+                return true;
+            }
+            consecutiveFailures.set(FAILURES_BEFORE_UNHEALTHY);
+            retryAt = System.nanoTime() + retryNanos;
+            LOGGER.log(Level.WARNING, "Replica {0} has {1} writes queued; marked unhealthy until it catches up",
+                    new Object[] {type, queued.get()});
+            return false;
+        }
+
+        // Runs the task on a lane, or dropped instead once the lanes are shut down or stopped
+        void submit(int lane, Runnable task, Runnable dropped) {
+            queued.incrementAndGet();
+            try {
+                lanes[lane].execute(() -> {
+                    queued.decrementAndGet();
+                    if (stopped) {
+                        dropped.run();
+                    } else {
+                        task.run();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                queued.decrementAndGet();
+                dropped.run();
+            }
+        }
+
+        /**
+         * Stores the credentials that are still the latest for their ids. Runs on the ids' lane.
+         * @return Whether the replica stored them; on failure they stay behind for repair
+         */
+        boolean write(Pending pending) {
+            if (!isHealthy()) {
+                pending.failed = true;
+                return false;
+            }
+            List<Credential> latest = new ArrayList<>();
+            for (Credential credential : pending.credentials.values()) {
+                if (behind.get(credential.getId()) == pending) {
+                    latest.add(credential);
+                }
+            }
+            try {
+                if (latest.size() == 1) {
+                    implementor().storeCredential(latest.get(0));
+                } else if (!latest.isEmpty()) {
+                    implementor().storeCredentials(latest);
+                }
+            } catch (RuntimeException e) {
+                recordFailure();
+                pending.failed = true;
+                LOGGER.log(Level.FINE, "Write to replica " + type + " failed; queued for repair", e);
+                return false;
+            }
+            consecutiveFailures.set(0);
+            for (String id : pending.credentials.keySet()) {
+                behind.remove(id, pending);
+            }
+            return true;
+        }
+
+        void recordRead(long nanos) {
+            consecutiveFailures.set(0);
+            double current = readLatency;
+            readLatency = current == 0 ? nanos : current + LATENCY_WEIGHT * (nanos - current);
+        }
+
+        void recordFailure() {
+            if (consecutiveFailures.incrementAndGet() >= FAILURES_BEFORE_UNHEALTHY) {
+                retryAt = System.nanoTime() + retryNanos;
+            }
+        }
+    }
+}
@@ -2,9 +2,12 @@ package src.com.es2.designpatterns.Storage;
 
 import src.com.es2.designpatterns.Credential.Credential;
 
+import java.util.Collection;
+import java.util.Map;
+
 public abstract class Storage {
-    // Bridge to the implementor
-    protected StorageImplementor implementor;
+    // Bridge to the implementor; volatile so a switch is seen by threads already using this storage
+    protected volatile StorageImplementor implementor;
     
     public Storage(StorageImplementor implementor) {
         this.implementor = implementor;
@@ -15,6 +18,20 @@ public abstract class Storage {
     public abstract Credential retrieveCredential(String id);
     public abstract StorageType getStorageType();
     
+    // Saves a batch of credentials; concrete so existing subclasses keep compiling, override to add processing
+    public void saveCredentials(Collection<Credential> credentials) {
+        implementor.storeCredentials(credentials);
+    }
+    
+    // Retrieves a batch of credentials keyed by ID; credentials that are not found are left out
+    public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+        return implementor.retrieveCredentials(ids);
+    }
+    
+    public StorageImplementor getImplementor() {
+        return implementor;
+    }
+    
     // Method to change the implementor at runtime
     public void setImplementor(StorageImplementor implementor) {
         this.implementor = implementor;
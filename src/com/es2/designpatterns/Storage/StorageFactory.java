@@ -1,46 +1,69 @@
 // StorageFactory.java - Factory that creates bridges and manages default storage
 package src.com.es2.designpatterns.Storage;
 
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
 import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.Cache.CachingStorageImplementor;
 import src.com.es2.designpatterns.Storage.Implementors.CloudStorageImplementor;
 import src.com.es2.designpatterns.Storage.Implementors.DatabaseStorageImplementor;
 import src.com.es2.designpatterns.Storage.Implementors.FileStorageImplementor;
+import src.com.es2.designpatterns.Storage.Replication.ReplicatedStorageImplementor;
+import src.com.es2.designpatterns.Storage.WriteBehind.WriteBehindStorageImplementor;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class StorageFactory {
     // Singleton pattern
     private static StorageFactory instance;
     
-    // Storage implementors
-    private final StorageImplementor cloudImplementor;
-    private final StorageImplementor databaseImplementor;
-    private final StorageImplementor fileImplementor;
+    // Storage implementors per type, without the cache and write-behind decorators; closed when replaced
+    private final Map<StorageType, StorageImplementor> implementors = new EnumMap<>(StorageType.class);
     
     // Storage instances (using the Bridge pattern)
     private final Storage cloudStorage;
     private final Storage databaseStorage;
     private final Storage fileStorage;
     
-    // Default storage to use
-    private Storage defaultStorage;
+    // Default storage to use; volatile so setDefaultStorage is seen by concurrent callers
+    private volatile Storage defaultStorage;
+    
+    // Fans default storage writes out to several storage types while replication is enabled, otherwise null
+    private volatile ReplicatedStorageImplementor replication;
     
     private StorageFactory(StorageType defaultType) {
         // Create implementors
-        this.cloudImplementor = new CloudStorageImplementor();
-        this.databaseImplementor = new DatabaseStorageImplementor();
-        this.fileImplementor = new FileStorageImplementor();
+        implementors.put(StorageType.CLOUD, new CloudStorageImplementor());
+        implementors.put(StorageType.DATABASE, new DatabaseStorageImplementor());
+        implementors.put(StorageType.FILE, new FileStorageImplementor());
         
-        // Initialize storage with implementors (Bridge pattern)
-        this.cloudStorage = new CredentialStorage(cloudImplementor, StorageType.CLOUD);
-        this.databaseStorage = new CredentialStorage(databaseImplementor, StorageType.DATABASE);
-        this.fileStorage = new CredentialStorage(fileImplementor, StorageType.FILE);
+        // Initialize storage with implementors (Bridge pattern), behind a cache and write-behind buffer where configured
+        this.cloudStorage = new CredentialStorage(decorate(StorageType.CLOUD, implementors.get(StorageType.CLOUD)), StorageType.CLOUD);
+        this.databaseStorage = new CredentialStorage(decorate(StorageType.DATABASE, implementors.get(StorageType.DATABASE)), StorageType.DATABASE);
+        this.fileStorage = new CredentialStorage(decorate(StorageType.FILE, implementors.get(StorageType.FILE)), StorageType.FILE);
         
         // Set the default storage based on the specified type
         setDefaultStorage(defaultType);
         
         // Allocate storage resources
-        cloudImplementor.allocateStorage();
-        databaseImplementor.allocateStorage();
-        fileImplementor.allocateStorage();
+        for (StorageImplementor implementor : implementors.values()) {
+            implementor.allocateStorage();
+        }
+        
+        // Replicate the default storage when "storageReplicationTypes" lists types, e.g. "CLOUD,DATABASE,FILE"
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        String replicaTypes = config.getConfiguration("storageReplicationTypes", "");
+        if (!replicaTypes.trim().isEmpty()) {
+            String[] names = replicaTypes.split(",");
+            StorageType[] types = new StorageType[names.length];
+            for (int i = 0; i < names.length; i++) {
+                types[i] = StorageType.valueOf(names[i].trim().toUpperCase());
+            }
+            enableReplication(config.getConfiguration("storageReplicationWriteQuorum", types.length / 2 + 1), types);
+        }
     }
     
     public static synchronized StorageFactory getInstance(StorageType defaultType) {
@@ -50,8 +73,8 @@ public class StorageFactory {
         return instance;
     }
     
-    // Method to change the default storage type
-    public void setDefaultStorage(StorageType type) {
+    // Method to change the default storage type; this ends replication mode once pending repairs are drained
+    public synchronized void setDefaultStorage(StorageType type) {
         switch (type) {
             case CLOUD:
                 defaultStorage = cloudStorage;
@@ -63,14 +86,72 @@ public class StorageFactory {
                 defaultStorage = fileStorage;
                 break;
         }
+        ReplicatedStorageImplementor old = replication;
+        replication = null;
+        if (old != null) {
+            closeReplication(old);
+        }
         System.out.println("Default storage set to " + type);
     }
     
-    // Method to save a credential using the default storage
+    /**
+     * Makes the default storage write every credential to all the given storage types in parallel.
+     * A save returns once writeQuorum of them have stored it, and the rest are repaired in the background.
+     * Reads go to the fastest healthy replica. The first type is reported as the default storage type.
+     */
+    public synchronized void enableReplication(int writeQuorum, StorageType... types) {
+        Map<StorageType, Storage> replicas = new LinkedHashMap<>();
+        for (StorageType type : types) {
+            replicas.put(type, getStorageByType(type));
+        }
+        int retryMillis = ConfigurationManager.getInstance().getConfiguration("storageReplicationRetryMs", 1000);
+        int maxBacklog = ConfigurationManager.getInstance().getConfiguration("storageReplicationMaxBacklog", 10_000);
+        ReplicatedStorageImplementor old = replication;
+        replication = new ReplicatedStorageImplementor(replicas, writeQuorum, retryMillis, maxBacklog);
+        defaultStorage = new CredentialStorage(replication, types[0]);
+        if (old != null) {
+            closeReplication(old);
+        }
+        System.out.println("Default storage replicated to " + replicas.keySet() + " with write quorum " + writeQuorum);
+    }
+    
+    // Ends replication mode; the default storage becomes the first replica type
+    public synchronized void disableReplication() {
+        if (replication != null) {
+            setDefaultStorage(replication.getReplicaTypes().get(0));
+        }
+    }
+    
+    // Gives pending repairs up to "storageReplicationDrainMs" to reach the replicas; the rest are logged and dropped
+    private static void closeReplication(ReplicatedStorageImplementor old) {
+        int drainMillis = ConfigurationManager.getInstance().getConfiguration("storageReplicationDrainMs", 5000);
+        old.close(drainMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    // Gets the replicated storage behind the default storage, or null when replication is off
+    public ReplicatedStorageImplementor getReplication() {
+        return replication;
+    }
+    
+    /**
+     * Saves a credential using the default storage.
+     * With replication enabled, an exception for a missed write quorum does not mean the credential was
+     * not saved: replicas that stored it keep it, and the others are repaired to it in the background.
+     */
     public void saveCredential(Credential credential) {
         defaultStorage.saveCredential(credential);
     }
     
+    // Method to save a batch of credentials using the default storage; a missed quorum is as for saveCredential
+    public void saveCredentials(Collection<Credential> credentials) {
+        defaultStorage.saveCredentials(credentials);
+    }
+    
+    // Method to save a batch of credentials in a specific storage type
+    public void saveCredentials(StorageType type, Collection<Credential> credentials) {
+        getStorageByType(type).saveCredentials(credentials);
+    }
+    
     // Method to retrieve a credential from a specific storage type
     public Credential retrieveCredential(StorageType type, String id) {
         Storage storage = getStorageByType(type);
@@ -82,6 +163,16 @@ public class StorageFactory {
         return defaultStorage.retrieveCredential(id);
     }
     
+    // Method to retrieve a batch of credentials from a specific storage type, keyed by ID
+    public Map<String, Credential> retrieveCredentials(StorageType type, Collection<String> ids) {
+        return getStorageByType(type).retrieveCredentials(ids);
+    }
+    
+    // Method to retrieve a batch of credentials from the default storage, keyed by ID
+    public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+        return defaultStorage.retrieveCredentials(ids);
+    }
+    
     // Method to print credential information
     public void printCredential(StorageType type, String id) {
         Credential credential = retrieveCredential(type, id);
@@ -90,8 +181,9 @@ public class StorageFactory {
     
     // Method to print credential information from default storage
     public void printCredential(String id) {
-        Credential credential = retrieveCredential(id);
-        printCredentialInfo(credential, defaultStorage.getStorageType());
+        Storage storage = defaultStorage;
+        Credential credential = storage.retrieveCredential(id);
+        printCredentialInfo(credential, storage.getStorageType());
     }
     
     // Helper method to print credential information
@@ -119,11 +211,43 @@ public class StorageFactory {
         }
     }
     
+    // Waits until every write-behind buffer has stored its credentials
+    public void flush() {
+        for (StorageType type : StorageType.values()) {
+            StorageImplementor implementor = getImplementor(type);
+            if (implementor instanceof WriteBehindStorageImplementor) {
+                ((WriteBehindStorageImplementor) implementor).flush();
+            }
+        }
+    }
+    
+    // Gets the implementor currently behind a storage type, e.g. to read its cache statistics
+    public StorageImplementor getImplementor(StorageType type) {
+        return getStorageByType(type).getImplementor();
+    }
+    
     // Method to demonstrate the flexibility of the Bridge pattern
     // This allows changing implementors at runtime
-    public void switchImplementor(StorageType storageType, StorageImplementor newImplementor) {
+    // The new implementor gets the cache and write-behind buffer configured for the storage type;
+    // writes still buffered for the old implementor are stored in it, and then it is closed,
+    // e.g. so a file implementor releases its directory for the new one
+    public synchronized void switchImplementor(StorageType storageType, StorageImplementor newImplementor) {
         Storage storage = getStorageByType(storageType);
-        storage.setImplementor(newImplementor);
+        StorageImplementor old = storage.getImplementor();
+        StorageImplementor replaced = implementors.put(storageType, newImplementor);
+        storage.setImplementor(decorate(storageType, newImplementor));
+        if (old instanceof WriteBehindStorageImplementor) {
+            ((WriteBehindStorageImplementor) old).close();
+        }
+        // Not closed while another storage type still uses it
+        if (replaced != null && !implementors.containsValue(replaced)) {
+            replaced.close();
+        }
         System.out.println("Switched implementor for " + storageType);
     }
+    
+    // The write-behind buffer goes outside the cache, so a flush invalidates the entries it stores
+    private static StorageImplementor decorate(StorageType type, StorageImplementor implementor) {
+        return WriteBehindStorageImplementor.wrapIfEnabled(type, CachingStorageImplementor.wrapIfEnabled(type, implementor));
+    }
 }
\ No newline at end of file
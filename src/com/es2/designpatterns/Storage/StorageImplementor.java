@@ -2,8 +2,69 @@ package src.com.es2.designpatterns.Storage;
 
 import src.com.es2.designpatterns.Credential.Credential;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
 public interface StorageImplementor {
     void storeCredential(Credential credential);
     Credential retrieveCredential(String id);
     void allocateStorage();
-}
\ No newline at end of file
+
+    /**
+     * Stores a batch of credentials. Implementors should override this to store the batch in one
+     * operation; the default stores them one at a time.
+     * @param credentials The credentials to store
+     */
+    default void storeCredentials(Collection<Credential> credentials) {
+        for (Credential credential : credentials) {
+            storeCredential(credential);
+        }
+    }
+
+    /**
+     * Retrieves a batch of credentials. Implementors should override this to look the batch up in one
+     * operation; the default retrieves them one at a time.
+     * @param ids The IDs to look up
+     * @return The credentials found, keyed by ID in the order of the given IDs; missing IDs have no entry
+     */
+    default Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+        Map<String, Credential> found = new LinkedHashMap<>();
+        for (String id : ids) {
+            Credential credential = retrieveCredential(id);
+            if (credential != null) {
+                found.put(id, credential);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Visits every stored credential, e.g. to rebuild an index at startup.
+     * Implementors that cannot enumerate their contents keep this default.
+     * @param action Called once per stored credential
+     * @throws UnsupportedOperationException If the implementor cannot enumerate its credentials
+     */
+    default void forEachCredential(Consumer<Credential> action) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot enumerate its credentials");
+    }
+
+    /**
+     * Removes a credential, e.g. when a tiered storage moves it out of its hot tier.
+     * Implementors that cannot delete keep this default.
+     * @param id The ID of the credential to remove
+     * @return Whether a credential was removed
+     * @throws UnsupportedOperationException If the implementor cannot remove credentials
+     */
+    default boolean removeCredential(String id) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot remove credentials");
+    }
+
+    /**
+     * Releases the implementor's files, connections and threads, e.g. when the StorageFactory replaces it.
+     * Implementors that hold none keep this default.
+     */
+    default void close() {
+    }
+}
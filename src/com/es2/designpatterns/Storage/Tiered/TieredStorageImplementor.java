@@ -0,0 +1,464 @@
+package src.com.es2.designpatterns.Storage.Tiered;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.Cache.FrequencySketch;
+import src.com.es2.designpatterns.Storage.StorageImplementor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * StorageImplementor that combines a small, fast hot tier with a large, durable cold tier, e.g. an
+ * in-memory CloudStorageImplementor in front of a FileStorageImplementor.
+ *
+ * The cold tier holds every credential, and writes go to it first (write-through). A write also
+ * updates the hot tier when the id is hot there or the hot tier has room. Reads are served from the
+ * hot tier when possible. A credential read from the cold tier is promoted into the hot tier once a
+ * FrequencySketch has seen it promotionThreshold times, so a single scan does not fill the hot tier.
+ * A background demoter removes credentials idle longer than the idle time. It then removes the least
+ * frequently and least recently used ones until the hot tier is back under its capacity. Promotions
+ * stop at 10% over capacity, so memory stays bounded between demoter runs.
+ *
+ * The hot tier must support removeCredential.
+ *
+ * Configuration: "tieredStorageHotCapacity", "tieredStorageHotIdleMs", "tieredStorageDemotionIntervalMs"
+ * and "tieredStoragePromotionThreshold".
+ */
+public class TieredStorageImplementor implements StorageImplementor {
+    private static final Logger LOGGER = Logger.getLogger(TieredStorageImplementor.class.getName());
+    private static final int STRIPES = 64;
+
+    private final StorageImplementor hot;
+    private final StorageImplementor cold;
+    private final int hotCapacity;
+    private final int hotCeiling;
+    private final long idleNanos;
+    private final long demotionIntervalNanos;
+    private final int promotionThreshold;
+
+    // Credentials in the hot tier and how they have been used
+    private final Map<String, Residency> residents = new ConcurrentHashMap<>();
+    private final FrequencySketch coldReads;
+    // Serializes hot-tier changes per id; the stamps let a promotion detect a write it overlapped
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final AtomicLongArray writeStamps = new AtomicLongArray(STRIPES);
+    private final Thread demoter;
+    private volatile boolean closed;
+
+    private final LongAdder hotHits = new LongAdder();
+    private final LongAdder coldHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder promotions = new LongAdder();
+    private final LongAdder demotions = new LongAdder();
+
+    public TieredStorageImplementor(StorageImplementor hot, StorageImplementor cold) {
+        this(hot, cold,
+                ConfigurationManager.getInstance().getConfiguration("tieredStorageHotCapacity", 100_000),
+                ConfigurationManager.getInstance().getConfiguration("tieredStorageHotIdleMs", 600_000),
+                ConfigurationManager.getInstance().getConfiguration("tieredStorageDemotionIntervalMs", 1_000),
+                ConfigurationManager.getInstance().getConfiguration("tieredStoragePromotionThreshold", 2));
+    }
+
+    /**
+     * @param hot The fast tier; must support removeCredential
+     * @param cold The durable tier holding every credential
+     * @param hotCapacity The number of credentials the hot tier is trimmed back to
+     * @param idleMillis How long a hot credential may go unread before it is demoted
+     * @param demotionIntervalMillis How often the demoter runs
+     * @param promotionThreshold How many recent cold reads promote a credential
+     */
+    public TieredStorageImplementor(StorageImplementor hot, StorageImplementor cold, int hotCapacity, long idleMillis,
+                                    long demotionIntervalMillis, int promotionThreshold) {
+        if (hotCapacity <= 0 || idleMillis <= 0 || demotionIntervalMillis <= 0 || promotionThreshold <= 0) {
+            throw new IllegalArgumentException("Invalid tiered storage settings: capacity " + hotCapacity + ", idle "
+                    + idleMillis + " ms, interval " + demotionIntervalMillis + " ms, threshold " + promotionThreshold);
+        }
+        this.hot = hot;
+        this.cold = cold;
+        this.hotCapacity = hotCapacity;
+        this.hotCeiling = hotCapacity + Math.max(1, hotCapacity / 10);
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.demotionIntervalNanos = TimeUnit.MILLISECONDS.toNanos(demotionIntervalMillis);
+        this.promotionThreshold = Math.min(15, promotionThreshold);
+        // Cold reads span far more ids than fit in the hot tier, so the sketch is sized well above it
+        this.coldReads = new FrequencySketch((int) Math.min(1 << 24, hotCapacity * 16L));
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.demoter = new Thread(this::runDemoter, "tiered-storage-demoter");
+        demoter.setDaemon(true);
+        demoter.start();
+    }
+
+    @Override
+    public void storeCredential(Credential credential) {
+        int stripe = stripeOf(credential.getId());
+        writeStamps.incrementAndGet(stripe);
+        cold.storeCredential(credential);
+        stripes[stripe].lock();
+        try {
+            updateHot(credential);
+            writeStamps.incrementAndGet(stripe);
+        } finally {
+            stripes[stripe].unlock();
+        }
+    }
+
+    @Override
+    public Credential retrieveCredential(String id) {
+        Residency residency = residents.get(id);
+        if (residency != null) {
+            Credential credential = hot.retrieveCredential(id);
+            if (credential != null) {
+                residency.touch();
+                hotHits.increment();
+                return credential;
+            }
+        }
+        int stripe = stripeOf(id);
+        long stamp = writeStamps.get(stripe);
+        Credential credential = cold.retrieveCredential(id);
+        if (credential == null) {
+            misses.increment();
+            return null;
+        }
+        coldHits.increment();
+        if (shouldPromote(id)) {
+            promote(credential, stripe, stamp);
+        }
+        return credential;
+    }
+
+    @Override
+    public void storeCredentials(Collection<Credential> credentials) {
+        boolean[] touched = new boolean[STRIPES];
+        for (Credential credential : credentials) {
+            touched[stripeOf(credential.getId())] = true;
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            if (touched[i]) {
+                writeStamps.incrementAndGet(i);
+            }
+        }
+        cold.storeCredentials(credentials);
+        // Stripes are always locked in index order, so concurrent batches cannot deadlock
+        for (int i = 0; i < STRIPES; i++) {
+            if (touched[i]) {
+                stripes[i].lock();
+            }
+        }
+        try {
+            List<Credential> hotBatch = new ArrayList<>();
+            for (Credential credential : credentials) {
+                if (residents.containsKey(credential.getId()) || residents.size() + hotBatch.size() < hotCapacity) {
+                    hotBatch.add(credential);
+                }
+            }
+            if (!hotBatch.isEmpty()) {
+                hot.storeCredentials(hotBatch);
+                for (Credential credential : hotBatch) {
+                    residents.computeIfAbsent(credential.getId(), id -> new Residency()).touch();
+                }
+            }
+            for (int i = 0; i < STRIPES; i++) {
+                if (touched[i]) {
+                    writeStamps.incrementAndGet(i);
+                }
+            }
+        } finally {
+            for (int i = STRIPES - 1; i >= 0; i--) {
+                if (touched[i]) {
+                    stripes[i].unlock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+        Map<String, Credential> fromHot = new LinkedHashMap<>();
+        List<String> hotIds = new ArrayList<>();
+        for (String id : ids) {
+            if (residents.containsKey(id)) {
+                hotIds.add(id);
+            }
+        }
+        if (!hotIds.isEmpty()) {
+            fromHot = hot.retrieveCredentials(hotIds);
+            for (String id : fromHot.keySet()) {
+                Residency residency = residents.get(id);
+                if (residency != null) {
+                    residency.touch();
+                }
+            }
+            hotHits.add(fromHot.size());
+        }
+
+        List<String> coldIds = new ArrayList<>();
+        for (String id : ids) {
+            if (!fromHot.containsKey(id)) {
+                coldIds.add(id);
+            }
+        }
+        Map<String, Credential> fromCold = new LinkedHashMap<>();
+        if (!coldIds.isEmpty()) {
+            long[] stamps = new long[STRIPES];
+            for (int i = 0; i < STRIPES; i++) {
+                stamps[i] = writeStamps.get(i);
+            }
+            fromCold = cold.retrieveCredentials(coldIds);
+            coldHits.add(fromCold.size());
+            misses.add(coldIds.size() - fromCold.size());
+            for (Credential credential : fromCold.values()) {
+                if (shouldPromote(credential.getId())) {
+                    int stripe = stripeOf(credential.getId());
+                    promote(credential, stripe, stamps[stripe]);
+                }
+            }
+        }
+
+        Map<String, Credential> found = new LinkedHashMap<>();
+        for (String id : ids) {
+            Credential credential = fromHot.containsKey(id) ? fromHot.get(id) : fromCold.get(id);
+            if (credential != null) {
+                found.put(id, credential);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void allocateStorage() {
+        hot.allocateStorage();
+        cold.allocateStorage();
+    }
+
+    // The cold tier holds every credential
+    @Override
+    public void forEachCredential(Consumer<Credential> action) {
+        cold.forEachCredential(action);
+    }
+
+    // Requires a cold tier that can remove credentials; the hot copy is dropped once the cold one is gone
+    @Override
+    public boolean removeCredential(String id) {
+        int stripe = stripeOf(id);
+        stripes[stripe].lock();
+        try {
+            writeStamps.incrementAndGet(stripe);
+            boolean removed = cold.removeCredential(id);
+            if (residents.remove(id) != null) {
+                hot.removeCredential(id);
+            }
+            return removed;
+        } finally {
+            stripes[stripe].unlock();
+        }
+    }
+
+    /**
+     * Runs one demotion pass: demotes idle credentials, then the coldest ones until the hot tier is
+     * back at its capacity. Frequencies are halved afterwards, so past popularity fades.
+     * @return The number of credentials demoted
+     */
+    public int demote() {
+        long now = System.nanoTime();
+        List<Candidate> candidates = new ArrayList<>();
+        int demoted = 0;
+        for (Map.Entry<String, Residency> entry : residents.entrySet()) {
+            Residency residency = entry.getValue();
+            long lastAccess = residency.lastAccess;
+            if (now - lastAccess > idleNanos) {
+                demoted += demote(entry.getKey(), residency) ? 1 : 0;
+            } else {
+                candidates.add(new Candidate(entry.getKey(), residency, residency.accesses, lastAccess));
+            }
+        }
+        int excess = residents.size() - hotCapacity;
+        if (excess > 0) {
+            // Least frequently used first, then least recently used
+            candidates.sort(Comparator.<Candidate>comparingInt(candidate -> candidate.accesses)
+                    .thenComparingLong(candidate -> candidate.lastAccess));
+            for (int i = 0; i < candidates.size() && excess > 0; i++) {
+                if (demote(candidates.get(i).id, candidates.get(i).residency)) {
+                    excess--;
+                    demoted++;
+                }
+            }
+        }
+        for (Residency residency : residents.values()) {
+            residency.accesses >>>= 1;
+        }
+        return demoted;
+    }
+
+    // Stops the background demoter; the tiers themselves stay open
+    public void close() {
+        closed = true;
+        demoter.interrupt();
+        try {
+            demoter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public StorageImplementor getHotTier() {
+        return hot;
+    }
+
+    public StorageImplementor getColdTier() {
+        return cold;
+    }
+
+    public int getHotCount() {
+        return residents.size();
+    }
+
+    public int getHotCapacity() {
+        return hotCapacity;
+    }
+
+    public long getHotHitCount() {
+        return hotHits.sum();
+    }
+
+    public long getColdHitCount() {
+        return coldHits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getPromotionCount() {
+        return promotions.sum();
+    }
+
+    public long getDemotionCount() {
+        return demotions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Tiered %s over %s: %d/%d hot, %d hot hits, %d cold hits, %d misses, %d promotions, %d demotions",
+                hot.getClass().getSimpleName(), cold.getClass().getSimpleName(), getHotCount(), hotCapacity,
+                getHotHitCount(), getColdHitCount(), getMissCount(), getPromotionCount(), getDemotionCount());
+    }
+
+    // Called with the stripe locked, after the credential was stored in the cold tier
+    private void updateHot(Credential credential) {
+        Residency residency = residents.get(credential.getId());
+        if (residency == null && residents.size() >= hotCapacity) {
+            return;
+        }
+        hot.storeCredential(credential);
+        if (residency == null) {
+            residents.put(credential.getId(), new Residency());
+        } else {
+            residency.touch();
+        }
+    }
+
+    private boolean shouldPromote(String id) {
+        synchronized (coldReads) {
+            coldReads.increment(id.hashCode());
+            return coldReads.frequency(id.hashCode()) >= promotionThreshold;
+        }
+    }
+
+    // Skipped if the id was written since the cold read, so a promotion never puts back an old value
+    private void promote(Credential credential, int stripe, long stamp) {
+        String id = credential.getId();
+        if (residents.size() >= hotCeiling) {
+            return;
+        }
+        stripes[stripe].lock();
+        try {
+            if (writeStamps.get(stripe) != stamp || residents.containsKey(id)) {
+                return;
+            }
+            hot.storeCredential(credential);
+            residents.put(id, new Residency());
+            promotions.increment();
+        } finally {
+            stripes[stripe].unlock();
+        }
+    }
+
+    private boolean demote(String id, Residency residency) {
+        int stripe = stripeOf(id);
+        stripes[stripe].lock();
+        try {
+            if (!residents.remove(id, residency)) {
+                return false;
+            }
+            hot.removeCredential(id);
+            demotions.increment();
+            return true;
+        } finally {
+            stripes[stripe].unlock();
+        }
+    }
+
+    private void runDemoter() {
+        while (!closed) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(demotionIntervalNanos);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                demote();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Demotion from the hot tier failed", e);
+            }
+        }
+    }
+
+    private static int stripeOf(String id) {
+        int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    // A hot credential's use, copied so sorting sees values that do not change underneath it
+    private static final class Candidate {
+        private final String id;
+        private final Residency residency;
+        private final int accesses;
+        private final long lastAccess;
+
+        Candidate(String id, Residency residency, int accesses, long lastAccess) {
+            this.id = id;
+            this.residency = residency;
+            this.accesses = accesses;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    // Use of a hot credential; updated without locking, so counts may lose the odd concurrent increment
+    private static final class Residency {
+        private volatile long lastAccess = System.nanoTime();
+        private volatile int accesses = 1;
+
+        void touch() {
+            lastAccess = System.nanoTime();
+            if (accesses < Integer.MAX_VALUE) {
+                accesses++;
+            }
+        }
+    }
+}
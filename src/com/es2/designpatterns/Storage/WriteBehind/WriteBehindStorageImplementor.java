@@ -0,0 +1,330 @@
+package src.com.es2.designpatterns.Storage.WriteBehind;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.StorageImplementor;
+import src.com.es2.designpatterns.Storage.StorageType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decorator that acknowledges writes immediately and stores them in the wrapped implementor in the background.
+ *
+ * Writes go into a bounded buffer keyed by id, so repeated writes to one credential collapse into a
+ * single store. A flusher thread drains the buffer in batches through storeCredentials, whenever a
+ * batch is full or the flush interval has passed. Reads look at the buffer first, so a caller always
+ * reads its own writes. When the buffer is full, writers of new ids wait for the flusher instead of
+ * letting the buffer grow. A batch that fails stays buffered and is retried on the next interval.
+ *
+ * Credentials are durable only once flushed; flush() and close() wait for that. Under a steady
+ * stream of writes flush() keeps draining until the buffer is empty.
+ *
+ * StorageFactory wraps a type's implementor when "<type>StorageWriteBehindEnabled" is true, configured by
+ * "<type>StorageWriteBehindCapacity", "<type>StorageWriteBehindBatchSize" and "<type>StorageWriteBehindFlushIntervalMs".
+ */
+public class WriteBehindStorageImplementor implements StorageImplementor {
+    private static final Logger LOGGER = Logger.getLogger(WriteBehindStorageImplementor.class.getName());
+
+    private final StorageImplementor delegate;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+
+    // Credentials written but not yet stored; read without locking
+    private final Map<String, Credential> pending = new ConcurrentHashMap<>();
+    // Guards additions to the buffer and the waiting writers and flusher
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition batchReady = lock.newCondition();
+    // Only one drain at a time, so an older value can never be stored after a newer one
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder backpressureWaits = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    /**
+     * @param delegate The implementor the credentials are eventually stored in
+     * @param capacity The maximum number of buffered credentials
+     * @param batchSize The number of credentials per storeCredentials call
+     * @param flushIntervalMillis How long a credential may wait before a partial batch is flushed
+     */
+    public WriteBehindStorageImplementor(StorageImplementor delegate, int capacity, int batchSize, long flushIntervalMillis) {
+        if (capacity <= 0 || batchSize <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Invalid write-behind settings: capacity " + capacity + ", batch size "
+                    + batchSize + ", flush interval " + flushIntervalMillis + " ms");
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.flusher = new Thread(this::runFlusher, "write-behind-" + delegate.getClass().getSimpleName());
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Wraps the implementor if write-behind is enabled for the storage type in the ConfigurationManager
+    public static StorageImplementor wrapIfEnabled(StorageType type, StorageImplementor implementor) {
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        String prefix = type.name().toLowerCase() + "StorageWriteBehind";
+        if (implementor instanceof WriteBehindStorageImplementor || !config.getConfiguration(prefix + "Enabled", false)) {
+            return implementor;
+        }
+        int capacity = config.getConfiguration(prefix + "Capacity", 10_000);
+        int batchSize = config.getConfiguration(prefix + "BatchSize", 500);
+        int flushIntervalMillis = config.getConfiguration(prefix + "FlushIntervalMs", 100);
+        return new WriteBehindStorageImplementor(implementor, capacity, batchSize, flushIntervalMillis);
+    }
+
+    @Override
+    public void storeCredential(Credential credential) {
+        buffer(credential);
+    }
+
+    @Override
+    public Credential retrieveCredential(String id) {
+        Credential credential = pending.get(id);
+        return credential != null ? credential : delegate.retrieveCredential(id);
+    }
+
+    @Override
+    public void storeCredentials(Collection<Credential> credentials) {
+        for (Credential credential : credentials) {
+            buffer(credential);
+        }
+    }
+
+    @Override
+    public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+        Map<String, Credential> buffered = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            Credential credential = pending.get(id);
+            if (credential != null) {
+                buffered.put(id, credential);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return buffered;
+        }
+        Map<String, Credential> stored = delegate.retrieveCredentials(missing);
+        Map<String, Credential> found = new LinkedHashMap<>();
+        for (String id : ids) {
+            Credential credential = buffered.containsKey(id) ? buffered.get(id) : stored.get(id);
+            if (credential != null) {
+                found.put(id, credential);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void allocateStorage() {
+        delegate.allocateStorage();
+    }
+
+    // Flushes first, so the wrapped implementor holds every credential written so far
+    @Override
+    public void forEachCredential(Consumer<Credential> action) {
+        flush();
+        delegate.forEachCredential(action);
+    }
+
+    // Drops a buffered write too, so the removal is not undone by a later flush
+    @Override
+    public boolean removeCredential(String id) {
+        drainLock.lock();
+        try {
+            boolean buffered = pending.remove(id) != null;
+            return delegate.removeCredential(id) || buffered;
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Stores every buffered credential in the wrapped implementor before returning.
+     * @throws RuntimeException If the wrapped implementor fails; the credentials stay buffered
+     */
+    public void flush() {
+        drainLock.lock();
+        try {
+            while (!pending.isEmpty()) {
+                drainBatch();
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Stops the flusher after storing the buffered credentials; later writes are stored directly
+    public void close() {
+        closed = true;
+        lock.lock();
+        try {
+            batchReady.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public StorageImplementor getDelegate() {
+        return delegate;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    // Writes that replaced a buffered write to the same id
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getFlushedCount() {
+        return flushed.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    // Times a writer had to wait because the buffer was full
+    public long getBackpressureWaitCount() {
+        return backpressureWaits.sum();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatches.sum();
+    }
+
+    private void buffer(Credential credential) {
+        String id = credential.getId();
+        lock.lock();
+        try {
+            boolean waited = false;
+            while (!closed && pending.size() >= capacity && !pending.containsKey(id)) {
+                if (!waited) {
+                    backpressureWaits.increment();
+                    waited = true;
+                }
+                // Wake the flusher in case it is waiting for the interval
+                batchReady.signal();
+                notFull.awaitUninterruptibly();
+            }
+            if (!closed) {
+                writes.increment();
+                if (pending.put(id, credential) != null) {
+                    coalesced.increment();
+                }
+                if (pending.size() >= batchSize) {
+                    batchReady.signal();
+                }
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // A write racing close(), e.g. during switchImplementor, is stored directly, replacing any buffered value
+        drainLock.lock();
+        try {
+            pending.remove(id);
+            delegate.storeCredential(credential);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void runFlusher() {
+        while (!closed) {
+            lock.lock();
+            try {
+                long remaining = flushIntervalNanos;
+                while (!closed && pending.size() < batchSize && remaining > 0) {
+                    remaining = batchReady.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            if (closed) {
+                return;
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // The batch stays buffered and is retried after the next interval
+                LOGGER.log(Level.SEVERE, "Write-behind flush to " + delegate.getClass().getSimpleName() + " failed", e);
+                lock.lock();
+                try {
+                    batchReady.awaitNanos(flushIntervalNanos);
+                } catch (InterruptedException interrupted) {
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    // Stores up to one batch, then drops each entry from the buffer unless it was rewritten meanwhile
+    private void drainBatch() {
+        List<Credential> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<Credential> iterator = pending.values().iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            batch.add(iterator.next());
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            delegate.storeCredentials(batch);
+        } catch (RuntimeException e) {
+            failedBatches.increment();
+            throw e;
+        }
+        for (Credential credential : batch) {
+            pending.remove(credential.getId(), credential);
+        }
+        flushed.add(batch.size());
+        batches.increment();
+        lock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,12 +1,12 @@
 package src.com.es2.designpatterns.StructuredManagement;
 
 import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Identity.IdGenerator;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * Manages the overall category structure of the password manager.
@@ -47,7 +47,7 @@ public class CategoryManager {
      * @return The newly created category
      */
     public PasswordCategory createRootCategory(String name) {
-        String id = UUID.randomUUID().toString();
+        String id = IdGenerator.nextIdString();
         PasswordCategory category = new PasswordCategory(id, name);
         rootCategories.add(category);
         itemIndex.put(id, category);
@@ -84,7 +84,7 @@ public class CategoryManager {
         PasswordItem category = itemIndex.get(categoryId);
         
         if (category instanceof PasswordCategory) {
-            String id = UUID.randomUUID().toString();
+            String id = IdGenerator.nextIdString();
             PasswordEntry entry = new PasswordEntry(id, name, credential);
             ((PasswordCategory) category).addItem(entry);
             itemIndex.put(id, entry);
@@ -1,9 +1,10 @@
 package src.com.es2.designpatterns.StructuredManagement;
 
+import src.com.es2.designpatterns.Identity.IdGenerator;
+
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * Represents a category of passwords that can contain other categories or
@@ -124,7 +125,7 @@ public class PasswordCategory extends PasswordItem {
      * @return The newly created subcategory
      */
     public PasswordCategory createSubcategory(String name) {
-        String id = UUID.randomUUID().toString();
+        String id = IdGenerator.nextIdString();
         PasswordCategory subcategory = new PasswordCategory(id, name);
         addItem(subcategory);
         return subcategory;
@@ -0,0 +1,179 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.Implementors.CloudStorageImplementor;
+import src.com.es2.designpatterns.Storage.Implementors.FileStorageImplementor;
+import src.com.es2.designpatterns.Storage.StorageImplementor;
+import src.com.es2.designpatterns.Storage.Tiered.TieredStorageImplementor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class TieredStorageTest {
+    private static final int CREDENTIALS = 50_000;
+    private static final int HOT_CAPACITY = 1_000;
+    private static final int READS = 200_000;
+    private static final long IDLE_MILLIS = 100;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.out.println("===== Testing Tiered Storage =====\n");
+
+        Path directory = Files.createTempDirectory("tiered-storage");
+        FileStorageImplementor cold = new FileStorageImplementor(directory);
+        CloudStorageImplementor hot = new CloudStorageImplementor(null);
+        // Long idle time and interval, so the test drives demotion itself
+        TieredStorageImplementor storage = new TieredStorageImplementor(hot, cold, HOT_CAPACITY, 60_000, 60_000, 2);
+
+        PrintStream stdout = System.out;
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        });
+        System.setOut(discard);
+        try {
+            List<Credential> batch = new ArrayList<>();
+            for (int i = 0; i < CREDENTIALS; i++) {
+                batch.add(new Credential("id-" + i, "API Key", "value-" + i));
+                if (batch.size() == 1_000) {
+                    storage.storeCredentials(batch);
+                    batch.clear();
+                }
+            }
+        } finally {
+            System.setOut(stdout);
+        }
+        check(storage.getHotCount() == HOT_CAPACITY, "Writes filled the hot tier to its capacity of " + storage.getHotCount());
+
+        System.out.println("\n--- Skewed reads ---");
+        int[] keys = zipf(READS, CREDENTIALS, 0.99, 7);
+        // The first credentials were written first; read a different hot set so promotion has to find it
+        int maxHot = 0;
+        System.setOut(discard);
+        try {
+            for (int i = 0; i < READS; i++) {
+                String id = "id-" + (CREDENTIALS - 1 - keys[i]);
+                Credential credential = storage.retrieveCredential(id);
+                if (credential == null || !credential.getId().equals(id)) {
+                    throw new IllegalStateException("FAILED: wrong credential for " + id);
+                }
+                if (i % 10_000 == 0) {
+                    maxHot = Math.max(maxHot, storage.getHotCount());
+                    storage.demote();
+                }
+            }
+        } finally {
+            System.setOut(stdout);
+        }
+        System.out.println(storage);
+        double hotRate = (double) storage.getHotHitCount() / READS;
+        check(hotRate > 0.5, String.format("%.1f%% of skewed reads served from the hot tier", hotRate * 100));
+        check(maxHot <= HOT_CAPACITY + HOT_CAPACITY / 10, "Hot tier peaked at " + maxHot + " credentials");
+        storage.demote();
+        check(storage.getHotCount() <= HOT_CAPACITY, "Demotion trims the hot tier back to " + storage.getHotCount());
+
+        System.out.println("\n--- Latency ---");
+        String hotId = "id-" + (CREDENTIALS - 1);
+        String coldId = "id-" + (CREDENTIALS / 2);
+        check(storage.retrieveCredential(hotId) != null, "Hottest credential is readable");
+        long hotNanos = time(storage, hotId);
+        long coldNanos = time(cold, coldId);
+        System.out.printf("hot tier read %,d ns, cold tier read %,d ns%n", hotNanos, coldNanos);
+
+        System.out.println("\n--- Scan resistance ---");
+        long promotions = storage.getPromotionCount();
+        System.setOut(discard);
+        try {
+            for (int i = 10_000; i < 20_000; i++) {
+                storage.retrieveCredential("id-" + i);
+            }
+        } finally {
+            System.setOut(stdout);
+        }
+        check(storage.getPromotionCount() - promotions < 500,
+                "A scan of 10000 credentials promoted " + (storage.getPromotionCount() - promotions));
+
+        System.out.println("\n--- Writes ---");
+        System.setOut(discard);
+        try {
+            storage.storeCredential(new Credential(hotId, "API Key", "updated"));
+            storage.storeCredentials(Arrays.asList(new Credential(coldId, "API Key", "updated")));
+        } finally {
+            System.setOut(stdout);
+        }
+        check(storage.retrieveCredential(hotId).getValue().equals("updated"), "A hot credential is rewritten in both tiers");
+        check(cold.retrieveCredential(hotId).getValue().equals("updated"), "Writes go through to the cold tier");
+        check(storage.retrieveCredential(coldId).getValue().equals("updated"), "A cold credential reads its new value");
+
+        System.out.println("\n--- Removal ---");
+        check(storage.removeCredential(hotId) && storage.retrieveCredential(hotId) == null, "A hot credential is removed from both tiers");
+        check(cold.retrieveCredential(hotId) == null && !storage.removeCredential(hotId), "The cold tier no longer holds it");
+
+        System.out.println("\n--- Idle demotion ---");
+        storage.close();
+        // The background demoter never runs during the test; the pass is run directly once the idle time has passed
+        TieredStorageImplementor idle = new TieredStorageImplementor(new CloudStorageImplementor(null), cold, HOT_CAPACITY,
+                IDLE_MILLIS, TimeUnit.HOURS.toMillis(1), 2);
+        idle.retrieveCredential("id-10");
+        idle.retrieveCredential("id-10");
+        check(idle.getHotCount() == 1, "Second read promoted the credential");
+        TimeUnit.MILLISECONDS.sleep(IDLE_MILLIS + 50);
+        int demoted = idle.demote();
+        check(demoted == 1 && idle.getHotCount() == 0 && idle.getDemotionCount() == 1, "A demotion pass removed the idle credential");
+        idle.close();
+
+        cold.close();
+        FileStorageImplementor reopened = new FileStorageImplementor(directory);
+        check(reopened.retrieveCredential(hotId) == null && reopened.retrieveCredential(coldId) != null,
+                "The removal survives a restart of the cold tier");
+        reopened.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        System.out.println("\nAll tiered storage checks passed.");
+    }
+
+    // Average nanoseconds per read over repeated reads of one credential
+    private static long time(StorageImplementor storage, String id) {
+        int rounds = 20_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            storage.retrieveCredential(id);
+        }
+        return (System.nanoTime() - start) / rounds;
+    }
+
+    // Indexes drawn from a Zipf distribution with the given exponent
+    private static int[] zipf(int count, int items, double exponent, long seed) {
+        double[] cumulative = new double[items];
+        double sum = 0;
+        for (int i = 0; i < items; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(seed);
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            keys[i] = index >= 0 ? index : Math.min(items - 1, -index - 1);
+        }
+        return keys;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("OK: " + message);
+    }
+}
@@ -0,0 +1,137 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Credential.CredentialFactory;
+import src.com.es2.designpatterns.Credential.CredentialReservoir;
+import src.com.es2.designpatterns.Credential.CredentialType;
+import src.com.es2.designpatterns.Credential.Uniqueness.CredentialUniquenessGuard;
+import src.com.es2.designpatterns.Storage.Implementors.FileStorageImplementor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class UniquenessGuardTest {
+    private static final int STORED_KEYS = 100;
+    private static final int GENERATED_KEYS = 200_000;
+    private static final int CLAIMING_THREADS = 8;
+    private static final int CONTENDED_VALUES = 20_000;
+    private static final int RESERVOIR_KEYS = 2_000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.out.println("===== Testing Credential Uniqueness Guard =====\n");
+
+        Path directory = Files.createTempDirectory("uniqueness-guard");
+        Path snapshot = directory.resolve("issued.digests");
+        CredentialFactory factory = CredentialFactory.getInstance();
+
+        // Storage already holding some API keys
+        FileStorageImplementor storage = new FileStorageImplementor(directory.resolve("file-storage"));
+        String[] storedValues = new String[STORED_KEYS];
+        for (int i = 0; i < STORED_KEYS; i++) {
+            Credential credential = factory.createCredential(CredentialType.API_KEY);
+            storage.storeCredential(credential);
+            storedValues[i] = credential.getValue();
+        }
+
+        System.out.println("\n--- Loading from storage ---");
+        CredentialUniquenessGuard guard = CredentialUniquenessGuard.open(snapshot, Collections.singletonList(storage));
+        check(guard.getTrackedValues() == STORED_KEYS, "Guard loaded " + guard.getTrackedValues() + " stored values");
+        check(!guard.claim(storedValues[0]), "A stored value is rejected");
+        check(guard.claim("never-issued-value"), "A new value is accepted");
+        check(!guard.claim("never-issued-value"), "A claimed value is rejected before it is stored");
+
+        System.out.println("\n--- Concurrent claims ---");
+        // Every thread claims the same values; each value must be won by exactly one of them
+        AtomicInteger won = new AtomicInteger();
+        Thread[] threads = new Thread[CLAIMING_THREADS];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < CONTENDED_VALUES; i++) {
+                    if (guard.claim("contended-" + i)) {
+                        won.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        check(won.get() == CONTENDED_VALUES, CLAIMING_THREADS + " threads claimed " + CONTENDED_VALUES
+                + " shared values " + won.get() + " times in total");
+
+        System.out.println("\n--- Issuing through the factory ---");
+        factory.setUniquenessGuard(guard);
+        long start = System.nanoTime();
+        for (int i = 0; i < GENERATED_KEYS; i++) {
+            factory.createCredential(i % 2 == 0 ? CredentialType.API_KEY : CredentialType.SECRET_KEY);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Issued %,d guarded credentials in %d ms (%,.0f ns/credential)%n",
+                GENERATED_KEYS, elapsed / 1_000_000, (double) elapsed / GENERATED_KEYS);
+        System.out.printf("Claims: %,d, duplicates: %,d, tables: %,d bytes for %,d values%n",
+                guard.getClaims(), guard.getDuplicates(), guard.getTableBytes(), guard.getTrackedValues());
+
+        // Bulk generation runs on every core; claims must not serialize it
+        start = System.nanoTime();
+        List<Credential> bulk = factory.createCredentials(CredentialType.API_KEY, GENERATED_KEYS);
+        elapsed = System.nanoTime() - start;
+        Set<String> values = new HashSet<>();
+        for (Credential credential : bulk) {
+            values.add(credential.getValue());
+        }
+        System.out.printf("Bulk issued %,d guarded credentials in %d ms (%,.0f ns/credential)%n",
+                GENERATED_KEYS, elapsed / 1_000_000, (double) elapsed / GENERATED_KEYS);
+        check(values.size() == GENERATED_KEYS, "Every bulk-issued value is distinct");
+
+        System.out.println("\n--- Issuing from the reservoir ---");
+        // Credentials buffered before the guard was set were never claimed and must not be issued
+        factory.setUniquenessGuard(null);
+        CredentialReservoir reservoir = factory.enableReservoir();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reservoir.getAvailable(CredentialType.API_KEY) < reservoir.getLowWatermark()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        check(reservoir.getAvailable(CredentialType.API_KEY) >= reservoir.getLowWatermark(), "The reservoir filled unguarded");
+        factory.setUniquenessGuard(guard);
+        int unclaimed = 0;
+        for (int i = 0; i < RESERVOIR_KEYS; i++) {
+            if (guard.claim(factory.createCredential(CredentialType.API_KEY).getValue())) {
+                unclaimed++;
+            }
+        }
+        factory.disableReservoir();
+        check(unclaimed == 0, "Every one of " + RESERVOIR_KEYS + " reservoir credentials was claimed by the guard");
+        long tracked = guard.getTrackedValues();
+        factory.setUniquenessGuard(null);
+
+        System.out.println("\n--- Reopening from disk ---");
+        // Claims since the last save are replayed from the journal without rescanning storage
+        CredentialUniquenessGuard reopened = CredentialUniquenessGuard.open(snapshot, Collections.emptyList());
+        check(reopened.getTrackedValues() == tracked, "Reopened guard tracks " + reopened.getTrackedValues() + " values");
+        reopened.close();
+        guard.close();
+
+        storage.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        System.out.println("\nAll uniqueness checks passed.");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("OK: " + message);
+    }
+}
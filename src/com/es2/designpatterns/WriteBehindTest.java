@@ -0,0 +1,215 @@
+package src.com.es2.designpatterns;
+
+import src.com.es2.designpatterns.Configuration.ConfigurationManager;
+import src.com.es2.designpatterns.Credential.Credential;
+import src.com.es2.designpatterns.Storage.StorageFactory;
+import src.com.es2.designpatterns.Storage.StorageImplementor;
+import src.com.es2.designpatterns.Storage.StorageType;
+import src.com.es2.designpatterns.Storage.WriteBehind.WriteBehindStorageImplementor;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+public class WriteBehindTest {
+    private static final int WRITES = 5_000;
+    // Simulated cost of one call to a durable backend, whatever the number of credentials in it
+    private static final long BACKEND_CALL_NANOS = 200_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("===== Testing Write-Behind Storage =====\n");
+
+        System.out.println("--- Throughput ---");
+        SlowStorage direct = new SlowStorage();
+        long start = System.nanoTime();
+        for (int i = 0; i < WRITES; i++) {
+            direct.storeCredential(new Credential("id-" + i, "API Key", "value-" + i));
+        }
+        long synchronous = System.nanoTime() - start;
+
+        SlowStorage backend = new SlowStorage();
+        WriteBehindStorageImplementor buffered = new WriteBehindStorageImplementor(backend, 1_000, 250, 20);
+        start = System.nanoTime();
+        for (int i = 0; i < WRITES; i++) {
+            buffered.storeCredential(new Credential("id-" + i, "API Key", "value-" + i));
+        }
+        long acknowledged = System.nanoTime() - start;
+        buffered.flush();
+        long durable = System.nanoTime() - start;
+        System.out.printf("synchronous %,d ms, write-behind %,d ms acknowledged / %,d ms flushed (%.1fx), %,d backend calls%n",
+                synchronous / 1_000_000, acknowledged / 1_000_000, durable / 1_000_000, (double) synchronous / durable, backend.calls.get());
+        check(backend.credentials.size() == WRITES, "All " + WRITES + " credentials reached the backend");
+        check(backend.calls.get() < WRITES / 10, "Writes were batched into " + backend.calls.get() + " backend calls");
+
+        System.out.println("\n--- Read your writes and coalescing ---");
+        backend.calls.set(0);
+        for (int round = 0; round < 1_000; round++) {
+            buffered.storeCredential(new Credential("hot", "API Key", "value-" + round));
+            Credential read = buffered.retrieveCredential("hot");
+            if (!read.getValue().equals("value-" + round)) {
+                throw new IllegalStateException("FAILED: read " + read.getValue() + " after writing value-" + round);
+            }
+        }
+        check(true, "Every read returned the value just written");
+        buffered.flush();
+        check(backend.credentials.get("hot").getValue().equals("value-999"), "Backend holds the latest value");
+        check(backend.stores.get("hot").get() < 1_000, "1000 writes to one id stored " + backend.stores.get("hot").get()
+                + " times, " + buffered.getCoalescedCount() + " coalesced");
+        Map<String, Credential> batch = buffered.retrieveCredentials(Arrays.asList("hot", "id-1", "missing"));
+        check(batch.size() == 2, "Batch read combines buffered and stored credentials");
+
+        System.out.println("\n--- Backpressure ---");
+        SlowStorage blocked = new SlowStorage();
+        CountDownLatch gate = new CountDownLatch(1);
+        blocked.gate = gate;
+        WriteBehindStorageImplementor bounded = new WriteBehindStorageImplementor(blocked, 100, 50, 5);
+        AtomicInteger written = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 1_000; i++) {
+                bounded.storeCredential(new Credential("bp-" + i, "API Key", "value"));
+                written.incrementAndGet();
+            }
+        });
+        writer.start();
+        TimeUnit.MILLISECONDS.sleep(200);
+        check(bounded.getPendingCount() <= 100 && written.get() < 1_000,
+                "Writer blocked at " + written.get() + " writes with " + bounded.getPendingCount() + " buffered");
+        check(bounded.getBackpressureWaitCount() > 0, "Backpressure waits were counted");
+        gate.countDown();
+        writer.join();
+        bounded.close();
+        check(blocked.credentials.size() == 1_000, "All writes stored after the backend recovered");
+
+        System.out.println("\n--- Failure and retry ---");
+        SlowStorage failing = new SlowStorage();
+        failing.failures.set(2);
+        WriteBehindStorageImplementor retrying = new WriteBehindStorageImplementor(failing, 100, 10, 5);
+        for (int i = 0; i < 20; i++) {
+            retrying.storeCredential(new Credential("retry-" + i, "API Key", "value"));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (retrying.getPendingCount() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        check(failing.credentials.size() == 20 && retrying.getFailedBatchCount() == 2,
+                "Stored all credentials after " + retrying.getFailedBatchCount() + " failed batches");
+        retrying.close();
+        retrying.storeCredential(new Credential("after-close", "API Key", "value"));
+        check(failing.credentials.containsKey("after-close"), "A write after close is stored directly");
+
+        System.out.println("\n--- Enabling through the configuration ---");
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        config.setConfiguration("cloudStorageWriteBehindEnabled", true);
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        StorageFactory storageFactory;
+        StorageImplementor implementor;
+        boolean readBack;
+        try {
+            storageFactory = StorageFactory.getInstance(StorageType.CLOUD);
+            implementor = storageFactory.getImplementor(StorageType.CLOUD);
+            storageFactory.saveCredential(new Credential("factory-1", "API Key", "value"));
+            readBack = storageFactory.retrieveCredential("factory-1") != null;
+            storageFactory.flush();
+            storageFactory.switchImplementor(StorageType.CLOUD, backend);
+        } finally {
+            System.setOut(stdout);
+            config.setConfiguration("cloudStorageWriteBehindEnabled", false);
+        }
+        check(implementor instanceof WriteBehindStorageImplementor, "CLOUD storage is write-behind");
+        check(readBack, "Factory reads a buffered write");
+        check(((WriteBehindStorageImplementor) implementor).getFlushedCount() == 1, "StorageFactory.flush stored the write");
+        check(storageFactory.getImplementor(StorageType.CLOUD) instanceof WriteBehindStorageImplementor,
+                "A switched-in implementor is buffered as well");
+        buffered.close();
+
+        System.out.println("\nAll write-behind checks passed.");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    // In-memory implementor that pays a fixed cost per call, like a durable backend
+    private static final class SlowStorage implements StorageImplementor {
+        private final Map<String, Credential> credentials = new ConcurrentHashMap<>();
+        private final Map<String, AtomicLong> stores = new ConcurrentHashMap<>();
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile CountDownLatch gate;
+
+        @Override
+        public void storeCredential(Credential credential) {
+            store(Collections.singletonList(credential));
+        }
+
+        @Override
+        public Credential retrieveCredential(String id) {
+            return credentials.get(id);
+        }
+
+        @Override
+        public void storeCredentials(Collection<Credential> batch) {
+            store(batch);
+        }
+
+        @Override
+        public Map<String, Credential> retrieveCredentials(Collection<String> ids) {
+            Map<String, Credential> found = new LinkedHashMap<>();
+            for (String id : ids) {
+                Credential credential = credentials.get(id);
+                if (credential != null) {
+                    found.put(id, credential);
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public void allocateStorage() {
+        }
+
+        @Override
+        public void forEachCredential(Consumer<Credential> action) {
+            credentials.values().forEach(action);
+        }
+
+        private void store(Collection<Credential> batch) {
+            CountDownLatch current = gate;
+            if (current != null) {
+                try {
+                    current.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+                throw new IllegalStateException("Simulated backend failure");
+            }
+            calls.incrementAndGet();
+            LockSupport.parkNanos(BACKEND_CALL_NANOS);
+            for (Credential credential : batch) {
+                credentials.put(credential.getId(), credential);
+                stores.computeIfAbsent(credential.getId(), id -> new AtomicLong()).incrementAndGet();
+            }
+        }
+    }
+}